@@ -0,0 +1,94 @@
+package fr.brandon.planning.benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import fr.brandon.planning.GenerateurInstances;
+import fr.brandon.planning.InstancePlanning;
+import fr.brandon.planning.SolveurPlanning;
+import fr.brandon.planning.StrategiesPredefinies;
+
+/**
+ * Paramètres de l'instance mesurée. Les instances sont faisables et tirées avec une graine fixe, chaque exécution
+ * mesure donc exactement les mêmes plannings. L'instance est générée une fois avant les mesures, qui ne comptent pas
+ * le générateur. Les affichages du planning sur la sortie standard sont coupés pendant les mesures.
+ *
+ * @author Brandon Gommard
+ */
+@State(Scope.Thread)
+public class InstanceBenchmark {
+
+	@Param({ "12", "20" })
+	public int nbInternes;
+
+	@Param({ "28", "56" })
+	public int nbJours;
+
+	@Param({ "2", "3" })
+	public int nbServices;
+
+	/**
+	 * probabilité des indisponibilités, des inaptitudes et des incompatibilités entre internes
+	 */
+	@Param({ "0.0", "0.05" })
+	public double densite;
+
+	@Param({ "DOM_WDEG" })
+	public String strategie;
+
+	@Param({ "42" })
+	public long graine;
+
+	private PrintStream sortie;
+	private InstancePlanning instance;
+
+	@Setup(Level.Trial)
+	public void genererInstance(){
+		GenerateurInstances generateur = new GenerateurInstances();
+		generateur.setNbInternes(nbInternes);
+		generateur.setNbJours(nbJours);
+		generateur.setNbServices(nbServices);
+		generateur.setDensiteIndispoForte(densite);
+		generateur.setDensiteIndispoSouple(densite);
+		generateur.setDensiteConflits(densite);
+		generateur.setDensiteInaptitudes(densite);
+		generateur.setGraine(graine);
+		instance = generateur.generer();
+	}
+
+	@Setup(Level.Trial)
+	public void couperSortie(){
+		sortie = System.out;
+		System.setOut(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int octet) {
+			}
+
+			@Override
+			public void write(byte[] octets, int debut, int longueur) {
+			}
+		}));
+	}
+
+	@TearDown(Level.Trial)
+	public void retablirSortie(){
+		System.setOut(sortie);
+	}
+
+	/**
+	 * @return un nouveau planning sur l'instance générée, pas encore initialisé
+	 */
+	public SolveurPlanning creerPlanning(){
+		SolveurPlanning planning = instance.creerSolveur();
+		planning.setStrategie(StrategiesPredefinies.valueOf(strategie));
+		planning.setGraine(graine);
+		return planning;
+	}
+}
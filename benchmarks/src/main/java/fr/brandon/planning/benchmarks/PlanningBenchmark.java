@@ -0,0 +1,124 @@
+package fr.brandon.planning.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import solver.Solver;
+import util.ESat;
+import fr.brandon.planning.DecompositionSemaines;
+import fr.brandon.planning.SolutionPlanning;
+import fr.brandon.planning.SolveurPlanning;
+
+/**
+ * Mesure de la construction du modèle, du temps jusqu'à la première solution et du temps jusqu'à l'optimum, et de
+ * la résolution par semaines selon le nombre de threads. La recherche de l'optimum est limitée en temps : les
+ * compteurs optimumsProuves et limitesAtteintes disent combien de recherches ont fini sans la limite.
+ *
+ * Le taux d'allocation s'obtient en lançant les mesures avec le profileur gc de JMH (voir README).
+ *
+ * @author Brandon Gommard
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PlanningBenchmark {
+
+	/**
+	 * Planning initialisé avant chaque appel, pour ne mesurer que la résolution
+	 */
+	@State(Scope.Thread)
+	public static class ModeleInitialise extends InstanceBenchmark {
+
+		/**
+		 * limite de temps de la recherche de l'optimum, en millisecondes
+		 */
+		@Param({ "60000" })
+		public long limiteOptimum;
+
+		SolveurPlanning planning;
+
+		@Setup(Level.Invocation)
+		public void initialiser(){
+			planning = creerPlanning();
+			planning.initialisation();
+		}
+	}
+
+	/**
+	 * Issue des recherches de l'optimum de chaque itération
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class IssueOptimum {
+
+		public long optimumsProuves;
+		public long limitesAtteintes;
+
+		@Setup(Level.Iteration)
+		public void remettreAZero(){
+			optimumsProuves = 0;
+			limitesAtteintes = 0;
+		}
+	}
+
+	/**
+	 * Planning résolu par semaines sur nbSolveurs threads
+	 */
+	@State(Scope.Thread)
+	public static class Decomposition extends InstanceBenchmark {
+
+		@Param({ "1", "2", "4" })
+		public int nbSolveurs;
+
+		/**
+		 * limite de temps de chaque semaine, en millisecondes
+		 */
+		@Param({ "2000" })
+		public long limiteSemaine;
+	}
+
+	@Benchmark
+	public Solver construction(InstanceBenchmark instance){
+		SolveurPlanning planning = instance.creerPlanning();
+		planning.initialisation();
+		return planning.getSolveur();
+	}
+
+	@Benchmark
+	public ESat premiereSolution(ModeleInitialise modele){
+		return modele.planning.verifier();
+	}
+
+	@Benchmark
+	public SolutionPlanning optimum(ModeleInitialise modele, IssueOptimum issue){
+		modele.planning.setLimiteTemps(modele.limiteOptimum);
+		SolutionPlanning solution = modele.planning.solve();
+		if(modele.planning.getSolveur().hasReachedLimit())
+			issue.limitesAtteintes++;
+		else
+			issue.optimumsProuves++;
+		return solution;
+	}
+
+	@Benchmark
+	public SolutionPlanning decomposition(Decomposition instance){
+		SolveurPlanning planning = instance.creerPlanning();
+		planning.setLimiteTemps(instance.limiteSemaine);
+		return new DecompositionSemaines(planning, instance.nbSolveurs).resoudre();
+	}
+}
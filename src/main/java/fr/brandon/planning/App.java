@@ -1,13 +1,38 @@
 package fr.brandon.planning;
 
+import java.io.File;
+import java.io.IOException;
+
 /**
  * 
  * @author Brandon Gommard
  */
 public class App 
 {
-    public static void main( String[] args )
+    public static void main( String[] args ) throws IOException
     {
+    	//avec un fichier d'instances en argument, chaque site du fichier est planifié
+    	if(args.length > 0){
+    		ChargeurInstances chargeur = ChargeurInstances.ouvrir(new File(args[0]));
+    		try{
+    			InstancePlanning instance;
+    			while((instance = chargeur.suivante()) != null){
+    				SolveurPlanning planning = instance.creerSolveur();
+    				if(chargeur.getNomSite() != null)
+    					planning.setNom(chargeur.getNomSite());
+    				planning.initialisation();
+    				for(VerificationFaisabilite.Violation violation : planning.getViolations())
+    					System.out.println("Données impossibles : " + violation);
+    				planning.solve();
+    				planning.displayResult();
+    			}
+    		}
+    		finally{
+    			chargeur.close();
+    		}
+    		return;
+    	}
+    	
     	int nbServices = 3;
     	int nbAstreinte = 1;
     	int nbInternes = 10;
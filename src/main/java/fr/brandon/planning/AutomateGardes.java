@@ -0,0 +1,117 @@
+package fr.brandon.planning;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+import solver.constraints.nary.automata.FA.FiniteAutomaton;
+
+/**
+ * Automate décrivant les enchaînements de gardes autorisés pour un interne.
+ *
+ * Le mot reconnu est la suite des occupations journalières de l'interne (1 s'il est de garde, 0 sinon),
+ * le premier symbole correspondant à un lundi. Un état mémorise le jour de la semaine et les 4 derniers jours,
+ * ce qui suffit pour vérifier :
+ * - le repos le lendemain d'une garde (pas de 11)
+ * - les enchainements désagréables (pas de garde en t, t+2 et t+4)
+ * - la règle VD (garde le vendredi si et seulement si garde le dimanche)
+ *
+ * @author Brandon Gommard
+ */
+public class AutomateGardes {
+
+	private static final int TAILLE_HISTORIQUE = 4;
+	private static final int MASQUE_HISTORIQUE = (1 << TAILLE_HISTORIQUE) - 1;
+
+	private final boolean reposLendemain;
+	private final boolean enchainementDesagreable;
+	private final boolean enchainementVD;
+
+	/**
+	 * @param reposLendemain true pour interdire deux gardes consécutives
+	 * @param enchainementDesagreable true pour interdire les gardes en t, t+2 et t+4
+	 * @param enchainementVD true pour imposer la règle VD
+	 */
+	public AutomateGardes(boolean reposLendemain, boolean enchainementDesagreable, boolean enchainementVD){
+		this.reposLendemain = reposLendemain;
+		this.enchainementDesagreable = enchainementDesagreable;
+		this.enchainementVD = enchainementVD;
+	}
+
+	/**
+	 * @param jour jour de la semaine du symbole lu
+	 * @param historique les 4 derniers jours, le bit 0 correspondant à la veille
+	 * @param garde 1 si l'interne est de garde ce jour, 0 sinon
+	 * @return true si la garde peut suivre l'historique
+	 */
+	public boolean estAutorise(int jour, int historique, int garde){
+		if(garde == 1){
+			if(reposLendemain && (historique & 1) == 1)
+				return false;
+			if(enchainementDesagreable && ((historique >> 1) & 1) == 1 && ((historique >> 3) & 1) == 1)
+				return false;
+		}
+		//le vendredi est deux jours avant le dimanche, il est donc dans le bit 1 de l'historique
+		if(enchainementVD && jour == SolveurPlanning.DIMANCHE && garde != ((historique >> 1) & 1))
+			return false;
+		return true;
+	}
+
+	/**
+	 * Construit l'automate en ne gardant que les états accessibles depuis l'état initial (lundi, aucune garde)
+	 * @return l'automate à poser avec ICF.regular sur l'occupation journalière d'un interne
+	 */
+	public FiniteAutomaton construire(){
+		return construire(0);
+	}
+
+	/**
+	 * Construit l'automate pour une période qui suit d'autres jours déjà planifiés, les règles étant vérifiées
+	 * à la jonction des deux périodes
+	 * @param historiqueInitial les 4 jours précédant le lundi de départ, le bit 0 correspondant au dimanche
+	 * @return l'automate à poser avec ICF.regular sur l'occupation journalière d'un interne
+	 */
+	public FiniteAutomaton construire(int historiqueInitial){
+		FiniteAutomaton automate = new FiniteAutomaton();
+		Map<Integer, Integer> etats = new HashMap<Integer, Integer>();
+		LinkedList<Integer> aTraiter = new LinkedList<Integer>();
+
+		int cleInitiale = cle(SolveurPlanning.LUNDI, historiqueInitial & MASQUE_HISTORIQUE);
+		int initial = automate.addState();
+		etats.put(cleInitiale, initial);
+		automate.setInitialState(initial);
+		automate.setFinal(initial);
+		aTraiter.add(cleInitiale);
+
+		while(!aTraiter.isEmpty()){
+			int cleCourante = aTraiter.removeFirst();
+			int jour = cleCourante / (MASQUE_HISTORIQUE + 1);
+			int historique = cleCourante % (MASQUE_HISTORIQUE + 1);
+			for(int garde=0 ; garde<=1 ; garde++){
+				if(estAutorise(jour, historique, garde)){
+					int cleSuivante = cle((jour + 1) % SolveurPlanning.NB_JOURS_SEMAINE, historiqueSuivant(historique, garde));
+					Integer suivant = etats.get(cleSuivante);
+					if(suivant == null){
+						suivant = automate.addState();
+						automate.setFinal(suivant);
+						etats.put(cleSuivante, suivant);
+						aTraiter.add(cleSuivante);
+					}
+					automate.addTransition(etats.get(cleCourante), suivant, garde);
+				}
+			}
+		}
+		return automate;
+	}
+
+	/**
+	 * @return l'historique du lendemain, après un jour avec ou sans garde
+	 */
+	static int historiqueSuivant(int historique, int garde){
+		return ((historique << 1) | garde) & MASQUE_HISTORIQUE;
+	}
+
+	private static int cle(int jour, int historique){
+		return jour * (MASQUE_HISTORIQUE + 1) + historique;
+	}
+}
@@ -0,0 +1,124 @@
+package fr.brandon.planning;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Lecture d'instances CSV, une ligne à la fois. Chaque ligne est un enregistrement dont le premier champ est le
+ * type, les champs étant séparés par des points-virgules ; les lignes vides et celles commençant par # sont
+ * ignorées.
+ *
+ * En-tête d'un site, avant les données des internes :
+ * site;nom | debut;aaaa-mm-jj | jours;n | ecarts;gardes;astreintes | services;MAT;SAMU;... | astreintes;AST;... |
+ * internes;n
+ *
+ * Données des internes, par indice d'interne :
+ * vd;i;oui|non | indispoForte;i;jours... | indispoSouple;i;jours... | inapte;i;service[;jours...] (tous les jours
+ * si aucun) | incompatible;i;j...
+ *
+ * @author Brandon Gommard
+ */
+class ChargeurCsv extends ChargeurInstances {
+
+	private final BufferedReader lignes;
+	private int ligne = 0;
+	//// ligne "site" déjà lue qui commence le site suivant
+	private String[] siteSuivant;
+
+	ChargeurCsv(BufferedReader lignes){
+		super(lignes);
+		this.lignes = lignes;
+	}
+
+	@Override
+	public InstancePlanning suivante() throws IOException {
+		if(siteSuivant != null){
+			setNomSite(champ(siteSuivant, 1));
+			siteSuivant = null;
+		}
+		String texte;
+		while((texte = lignes.readLine()) != null){
+			ligne++;
+			texte = texte.trim();
+			if(texte.isEmpty() || texte.startsWith("#"))
+				continue;
+			String[] champs = texte.split(";", -1);
+			if(champs[0].trim().equals("site") && siteCommence()){
+				siteSuivant = champs;
+				return terminer();
+			}
+			lire(champs);
+		}
+		return siteCommence() ? terminer() : null;
+	}
+
+	private void lire(String[] champs){
+		String type = champs[0].trim();
+		if(type.equals("site"))
+			setNomSite(champ(champs, 1));
+		else if(type.equals("debut"))
+			setDebut(champ(champs, 1));
+		else if(type.equals("jours"))
+			setNbJours(entier(champ(champs, 1)));
+		else if(type.equals("ecarts")){
+			setEcartGardes(entier(champ(champs, 1)));
+			setEcartAstreintes(entier(champ(champs, 2)));
+		}
+		else if(type.equals("services"))
+			setNomServices(noms(champs));
+		else if(type.equals("astreintes"))
+			setNomAstreintes(noms(champs));
+		else if(type.equals("internes"))
+			setNbInternes(entier(champ(champs, 1)));
+		else if(type.equals("vd")){
+			String valeur = champ(champs, 2);
+			if(!valeur.equals("oui") && !valeur.equals("non"))
+				throw erreur("oui ou non attendu : " + valeur);
+			setVD(entier(champ(champs, 1)), valeur.equals("oui"));
+		}
+		else if(type.equals("indispoForte")){
+			int iInterne = entier(champ(champs, 1));
+			for(int k=2 ; k<champs.length ; k++)
+				indispoForte(iInterne, champs[k]);
+		}
+		else if(type.equals("indispoSouple")){
+			int iInterne = entier(champ(champs, 1));
+			for(int k=2 ; k<champs.length ; k++)
+				indispoSouple(iInterne, champs[k]);
+		}
+		else if(type.equals("inapte")){
+			int iInterne = entier(champ(champs, 1));
+			String service = champ(champs, 2);
+			if(champs.length == 3)
+				inapte(iInterne, service, null);
+			for(int k=3 ; k<champs.length ; k++)
+				inapte(iInterne, service, champs[k]);
+		}
+		else if(type.equals("incompatible")){
+			int iInterne = entier(champ(champs, 1));
+			for(int k=2 ; k<champs.length ; k++)
+				incompatible(iInterne, entier(champs[k]));
+		}
+		else
+			throw erreur("enregistrement inconnu : " + type);
+	}
+
+	private String champ(String[] champs, int indice){
+		if(indice >= champs.length || champs[indice].trim().isEmpty())
+			throw erreur("champ " + (indice + 1) + " manquant");
+		return champs[indice].trim();
+	}
+
+	private String[] noms(String[] champs){
+		String[] noms = Arrays.copyOfRange(champs, 1, champs.length);
+		for(int k=0 ; k<noms.length ; k++)
+			noms[k] = champ(champs, k + 1);
+		return noms;
+	}
+
+	@Override
+	int getLigne() {
+		return ligne;
+	}
+}
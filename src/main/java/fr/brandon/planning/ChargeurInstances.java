@@ -0,0 +1,346 @@
+package fr.brandon.planning;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Lecture d'instances depuis un fichier JSON ou CSV, site par site, sans construire d'arbre intermédiaire : les
+ * dimensions d'un site sont validées dès son en-tête, puis ses indisponibilités, aptitudes et incompatibilités sont
+ * écrites directement dans les tableaux de l'instance.
+ *
+ * Par défaut, chaque interne respecte la règle VD, est disponible, apte à tous les services et compatible avec
+ * tous les autres internes : le fichier ne donne que les exceptions. Les jours sont donnés par leur indice, par
+ * une date aaaa-mm-jj si le site a une date de début (un lundi), ou par un intervalle "debut..fin" de l'un ou
+ * l'autre.
+ *
+ * @author Brandon Gommard
+ */
+public abstract class ChargeurInstances implements Closeable {
+
+	private static final long MS_PAR_JOUR = 24L * 3600 * 1000;
+
+	private final Reader lecteur;
+
+	//// en-tête du site en cours de lecture (-1 : pas encore lu)
+	private String nomSite;
+	private String nomSiteLu;
+	private Date debut;
+	private int nbJours;
+	private int ecartGardes;
+	private int ecartAstreintes;
+	private int nbInternes;
+	private String[] nomServices;
+	private String[] nomAstreintes;
+	//// données du site, allouées une fois l'en-tête complet
+	private boolean[] VD;
+	private boolean[][] indispoForte;
+	private boolean[][] indispoSouple;
+	private boolean[][] peutTravailEnsemble;
+	private boolean[][][] aptitude;
+
+	ChargeurInstances(Reader lecteur){
+		this.lecteur = lecteur;
+		nouveauSite();
+	}
+
+	/**
+	 * @param lecteur fichier JSON : un objet par site, ou un tableau d'objets pour plusieurs sites
+	 */
+	public static ChargeurInstances json(Reader lecteur){
+		return new ChargeurJson(lecteur);
+	}
+
+	/**
+	 * @param lecteur fichier CSV séparé par des points-virgules, une ligne "site" commençant chaque site
+	 */
+	public static ChargeurInstances csv(Reader lecteur){
+		return new ChargeurCsv(new BufferedReader(lecteur));
+	}
+
+	/**
+	 * @param fichier fichier .json ou .csv encodé en UTF-8
+	 * @return le chargeur du fichier, à fermer après lecture
+	 */
+	public static ChargeurInstances ouvrir(File fichier) throws IOException {
+		Reader lecteur = new BufferedReader(new InputStreamReader(new FileInputStream(fichier), "UTF-8"));
+		if(fichier.getName().toLowerCase().endsWith(".json"))
+			return json(lecteur);
+		if(fichier.getName().toLowerCase().endsWith(".csv"))
+			return csv(lecteur);
+		lecteur.close();
+		throw new IllegalArgumentException("Format de fichier inconnu : " + fichier.getName());
+	}
+
+	/**
+	 * Lit le site suivant du fichier
+	 * @return l'instance du site, null s'il n'y a plus de site
+	 * @throws IllegalArgumentException si le fichier est mal formé ou incohérent, avec la ligne fautive
+	 */
+	public abstract InstancePlanning suivante() throws IOException;
+
+	/**
+	 * @return le nom du dernier site lu, null s'il n'en a pas
+	 */
+	public String getNomSite() {
+		return nomSiteLu;
+	}
+
+	@Override
+	public void close() throws IOException {
+		lecteur.close();
+	}
+
+	/**
+	 * @return le numéro de la ligne en cours de lecture, pour les messages d'erreur
+	 */
+	abstract int getLigne();
+
+	IllegalArgumentException erreur(String message){
+		return new IllegalArgumentException("Ligne " + getLigne() + " : " + message);
+	}
+
+	//// en-tête
+
+	void nouveauSite(){
+		nomSite = null;
+		debut = null;
+		nbJours = -1;
+		ecartGardes = -1;
+		ecartAstreintes = -1;
+		nbInternes = -1;
+		nomServices = null;
+		nomAstreintes = null;
+		VD = null;
+	}
+
+	/**
+	 * @return true si une donnée du site en cours a déjà été lue
+	 */
+	boolean siteCommence(){
+		return nomSite != null || debut != null || nbJours >= 0 || ecartGardes >= 0 || ecartAstreintes >= 0
+				|| nbInternes >= 0 || nomServices != null || nomAstreintes != null;
+	}
+
+	void setNomSite(String nomSite) {
+		this.nomSite = nomSite;
+	}
+
+	void setDebut(String date){
+		verifierEnTeteOuvert("debut");
+		debut = date(date);
+		Calendar calendrier = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+		calendrier.setTime(debut);
+		if(calendrier.get(Calendar.DAY_OF_WEEK) != Calendar.MONDAY)
+			throw erreur("la période doit commencer un lundi : " + date);
+	}
+
+	void setNbJours(int nbJours){
+		verifierEnTeteOuvert("jours");
+		if(nbJours < 1)
+			throw erreur("nombre de jours invalide : " + nbJours);
+		this.nbJours = nbJours;
+	}
+
+	void setEcartGardes(int ecartGardes){
+		verifierEnTeteOuvert("ecartGardes");
+		if(ecartGardes < 0)
+			throw erreur("écart de gardes négatif : " + ecartGardes);
+		this.ecartGardes = ecartGardes;
+	}
+
+	void setEcartAstreintes(int ecartAstreintes){
+		verifierEnTeteOuvert("ecartAstreintes");
+		if(ecartAstreintes < 0)
+			throw erreur("écart d'astreintes négatif : " + ecartAstreintes);
+		this.ecartAstreintes = ecartAstreintes;
+	}
+
+	void setNomServices(String[] nomServices){
+		verifierEnTeteOuvert("services");
+		if(nomServices.length == 0)
+			throw erreur("aucun service");
+		verifierNomsUniques(nomServices);
+		this.nomServices = nomServices;
+	}
+
+	void setNomAstreintes(String[] nomAstreintes){
+		verifierEnTeteOuvert("astreintes");
+		verifierNomsUniques(nomAstreintes);
+		this.nomAstreintes = nomAstreintes;
+	}
+
+	void setNbInternes(int nbInternes){
+		verifierEnTeteOuvert("internes");
+		if(nbInternes < 1)
+			throw erreur("nombre d'internes invalide : " + nbInternes);
+		this.nbInternes = nbInternes;
+	}
+
+	int getNbInternes() {
+		return nbInternes;
+	}
+
+	private void verifierEnTeteOuvert(String champ){
+		if(VD != null)
+			throw erreur("\"" + champ + "\" doit précéder les données des internes");
+	}
+
+	private void verifierNomsUniques(String[] noms){
+		for(int i=0 ; i<noms.length ; i++){
+			for(int j=0 ; j<i ; j++){
+				if(noms[i].equals(noms[j]))
+					throw erreur("nom en double : " + noms[i]);
+			}
+		}
+	}
+
+	/**
+	 * allouer valide l'en-tête du site et crée ses tableaux, avec les valeurs par défaut
+	 */
+	void allouer(){
+		if(VD != null)
+			return;
+		if(nbJours < 0)
+			throw erreur("nombre de jours manquant");
+		if(nbInternes < 0)
+			throw erreur("nombre d'internes manquant");
+		if(nomServices == null)
+			throw erreur("services manquants");
+		if(ecartGardes < 0)
+			throw erreur("écart de gardes manquant");
+		if(ecartAstreintes < 0)
+			throw erreur("écart d'astreintes manquant");
+		if(nomAstreintes == null)
+			nomAstreintes = new String[0];
+
+		VD = new boolean[nbInternes];
+		Arrays.fill(VD, true);
+		indispoForte = new boolean[nbInternes][nbJours];
+		indispoSouple = new boolean[nbInternes][nbJours];
+		peutTravailEnsemble = new boolean[nbInternes][nbInternes];
+		for(boolean[] ligne : peutTravailEnsemble)
+			Arrays.fill(ligne, true);
+		aptitude = new boolean[nomServices.length][nbInternes][nbJours];
+		for(boolean[][] aptitudeService : aptitude){
+			for(boolean[] ligne : aptitudeService)
+				Arrays.fill(ligne, true);
+		}
+	}
+
+	/**
+	 * @return l'instance du site en cours, le chargeur passant au site suivant
+	 */
+	InstancePlanning terminer(){
+		allouer();
+		InstancePlanning instance = new InstancePlanning(nomServices.length, nomAstreintes.length, nbInternes, nbJours,
+				ecartGardes, ecartAstreintes, nomServices, nomAstreintes, VD, indispoForte, indispoSouple,
+				peutTravailEnsemble, aptitude);
+		nomSiteLu = nomSite;
+		nouveauSite();
+		return instance;
+	}
+
+	//// données des internes
+
+	void setVD(int iInterne, boolean respecteVD){
+		allouer();
+		VD[interne(iInterne)] = respecteVD;
+	}
+
+	void indispoForte(int iInterne, String jours){
+		allouer();
+		marquer(indispoForte[interne(iInterne)], jours, true);
+	}
+
+	void indispoSouple(int iInterne, String jours){
+		allouer();
+		marquer(indispoSouple[interne(iInterne)], jours, true);
+	}
+
+	/**
+	 * @param jours jours d'inaptitude, null pour tous les jours
+	 */
+	void inapte(int iInterne, String service, String jours){
+		allouer();
+		int iService = Arrays.asList(nomServices).indexOf(service);
+		if(iService < 0)
+			throw erreur("service inconnu : " + service);
+		boolean[] ligne = aptitude[iService][interne(iInterne)];
+		if(jours == null)
+			Arrays.fill(ligne, false);
+		else
+			marquer(ligne, jours, false);
+	}
+
+	void incompatible(int iInterne, int jInterne){
+		allouer();
+		if(interne(iInterne) == interne(jInterne))
+			throw erreur("un interne ne peut pas être incompatible avec lui-même : " + iInterne);
+		peutTravailEnsemble[iInterne][jInterne] = false;
+		peutTravailEnsemble[jInterne][iInterne] = false;
+	}
+
+	private int interne(int iInterne){
+		if(iInterne < 0 || iInterne >= nbInternes)
+			throw erreur("interne hors limites : " + iInterne);
+		return iInterne;
+	}
+
+	/**
+	 * marquer donne la valeur aux jours d'un indice, d'une date ou d'un intervalle
+	 */
+	private void marquer(boolean[] ligne, String jours, boolean valeur){
+		int separateur = jours.indexOf("..");
+		int premier = jour(separateur < 0 ? jours : jours.substring(0, separateur));
+		int dernier = separateur < 0 ? premier : jour(jours.substring(separateur + 2));
+		if(dernier < premier)
+			throw erreur("intervalle vide : " + jours);
+		Arrays.fill(ligne, premier, dernier + 1, valeur);
+	}
+
+	private int jour(String valeur){
+		valeur = valeur.trim();
+		int jour;
+		if(valeur.indexOf('-') > 0){
+			if(debut == null)
+				throw erreur("date sans date de début : " + valeur);
+			jour = (int) ((date(valeur).getTime() - debut.getTime()) / MS_PAR_JOUR);
+		}
+		else
+			jour = entier(valeur);
+		if(jour < 0 || jour >= nbJours)
+			throw erreur("jour hors de la période : " + valeur);
+		return jour;
+	}
+
+	int entier(String valeur){
+		try{
+			return Integer.parseInt(valeur.trim());
+		}
+		catch(NumberFormatException e){
+			throw erreur("entier attendu : " + valeur);
+		}
+	}
+
+	private Date date(String valeur){
+		SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd");
+		format.setTimeZone(TimeZone.getTimeZone("UTC"));
+		format.setLenient(false);
+		ParsePosition position = new ParsePosition(0);
+		Date date = format.parse(valeur.trim(), position);
+		if(date == null || position.getIndex() != valeur.trim().length())
+			throw erreur("date invalide : " + valeur);
+		return date;
+	}
+}
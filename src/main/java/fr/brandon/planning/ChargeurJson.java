@@ -0,0 +1,323 @@
+package fr.brandon.planning;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lecture d'instances JSON caractère par caractère. Le fichier est un objet par site, ou un tableau d'objets :
+ *
+ * { "nom": "...", "debut": "aaaa-mm-jj", "jours": n, "ecartGardes": n, "ecartAstreintes": n,
+ *   "services": ["MAT", ...], "astreintes": ["AST", ...], "nbInternes": n,
+ *   "internes": [ { "vd": false, "indispoForte": [jours...], "indispoSouple": [jours...],
+ *                   "inaptitudes": { "SAMU": [jours...] ou "tous" }, "incompatibles": [internes...] }, ... ] }
+ *
+ * L'en-tête doit précéder "internes", et chaque champ d'un interne est facultatif.
+ *
+ * @author Brandon Gommard
+ */
+class ChargeurJson extends ChargeurInstances {
+
+	private final Reader lecteur;
+	private int ligne = 1;
+	//// caractère lu d'avance, -2 si aucun
+	private int avance = -2;
+	//// null tant que le début du fichier n'est pas lu, true si le fichier est un tableau de sites
+	private Boolean tableau;
+	private boolean fini = false;
+
+	ChargeurJson(Reader lecteur){
+		super(lecteur);
+		this.lecteur = lecteur;
+	}
+
+	@Override
+	public InstancePlanning suivante() throws IOException {
+		if(fini)
+			return null;
+		if(tableau == null){
+			tableau = prochain() == '[';
+			if(tableau)
+				lire();
+			if(tableau && prochain() == ']')
+				return terminerFichier();
+		}
+		else if(!virgule(']'))
+			return terminerFichier();
+
+		lireSite();
+		InstancePlanning instance = terminer();
+		if(!tableau)
+			terminerFichier();
+		return instance;
+	}
+
+	private InstancePlanning terminerFichier() throws IOException {
+		if(tableau && prochain() == ']')
+			lire();
+		if(prochain() != -1)
+			throw erreur("fin de fichier attendue");
+		fini = true;
+		return null;
+	}
+
+	private void lireSite() throws IOException {
+		attendre('{');
+		if(prochain() == '}'){
+			lire();
+			throw erreur("site vide");
+		}
+		do{
+			String cle = chaine();
+			attendre(':');
+			if(cle.equals("nom"))
+				setNomSite(chaine());
+			else if(cle.equals("debut"))
+				setDebut(chaine());
+			else if(cle.equals("jours"))
+				setNbJours(entier(litteral()));
+			else if(cle.equals("ecartGardes"))
+				setEcartGardes(entier(litteral()));
+			else if(cle.equals("ecartAstreintes"))
+				setEcartAstreintes(entier(litteral()));
+			else if(cle.equals("services"))
+				setNomServices(chaines());
+			else if(cle.equals("astreintes"))
+				setNomAstreintes(chaines());
+			else if(cle.equals("nbInternes"))
+				setNbInternes(entier(litteral()));
+			else if(cle.equals("internes"))
+				lireInternes();
+			else
+				throw erreur("champ inconnu : " + cle);
+		} while(virgule('}'));
+	}
+
+	private void lireInternes() throws IOException {
+		allouer();
+		attendre('[');
+		int iInterne = 0;
+		if(prochain() == ']')
+			lire();
+		else{
+			do{
+				if(iInterne >= getNbInternes())
+					throw erreur("plus de " + getNbInternes() + " internes");
+				lireInterne(iInterne);
+				iInterne++;
+			} while(virgule(']'));
+		}
+		if(iInterne != getNbInternes())
+			throw erreur(getNbInternes() + " internes attendus, " + iInterne + " lus");
+	}
+
+	private void lireInterne(int iInterne) throws IOException {
+		attendre('{');
+		if(prochain() == '}'){
+			lire();
+			return;
+		}
+		do{
+			String cle = chaine();
+			attendre(':');
+			if(cle.equals("vd")){
+				String valeur = litteral();
+				if(!valeur.equals("true") && !valeur.equals("false"))
+					throw erreur("true ou false attendu : " + valeur);
+				setVD(iInterne, valeur.equals("true"));
+			}
+			else if(cle.equals("indispoForte")){
+				attendre('[');
+				if(!tableauVide()){
+					do{
+						indispoForte(iInterne, jours());
+					} while(virgule(']'));
+				}
+			}
+			else if(cle.equals("indispoSouple")){
+				attendre('[');
+				if(!tableauVide()){
+					do{
+						indispoSouple(iInterne, jours());
+					} while(virgule(']'));
+				}
+			}
+			else if(cle.equals("inaptitudes"))
+				lireInaptitudes(iInterne);
+			else if(cle.equals("incompatibles")){
+				attendre('[');
+				if(!tableauVide()){
+					do{
+						incompatible(iInterne, entier(litteral()));
+					} while(virgule(']'));
+				}
+			}
+			else
+				throw erreur("champ d'interne inconnu : " + cle);
+		} while(virgule('}'));
+	}
+
+	private void lireInaptitudes(int iInterne) throws IOException {
+		attendre('{');
+		if(prochain() == '}'){
+			lire();
+			return;
+		}
+		do{
+			String service = chaine();
+			attendre(':');
+			if(prochain() == '"'){
+				String valeur = chaine();
+				if(!valeur.equals("tous"))
+					throw erreur("\"tous\" ou liste de jours attendu : " + valeur);
+				inapte(iInterne, service, null);
+			}
+			else{
+				attendre('[');
+				if(!tableauVide()){
+					do{
+						inapte(iInterne, service, jours());
+					} while(virgule(']'));
+				}
+			}
+		} while(virgule('}'));
+	}
+
+	//// lecture des valeurs
+
+	/**
+	 * @return un jour, un intervalle ou une date, donné comme nombre ou chaîne
+	 */
+	private String jours() throws IOException {
+		return prochain() == '"' ? chaine() : litteral();
+	}
+
+	private String[] chaines() throws IOException {
+		List<String> chaines = new ArrayList<String>();
+		attendre('[');
+		if(!tableauVide()){
+			do{
+				chaines.add(chaine());
+			} while(virgule(']'));
+		}
+		return chaines.toArray(new String[chaines.size()]);
+	}
+
+	/**
+	 * @return le texte d'un nombre ou d'un mot-clé (true, false, null)
+	 */
+	private String litteral() throws IOException {
+		prochain();
+		StringBuilder texte = new StringBuilder();
+		while(avance >= 0 && (Character.isLetterOrDigit(avance) || avance == '-' || avance == '+' || avance == '.')){
+			texte.append((char) avance);
+			avance = lecteur.read();
+		}
+		if(texte.length() == 0)
+			throw erreur("valeur attendue");
+		return texte.toString();
+	}
+
+	private String chaine() throws IOException {
+		attendre('"');
+		StringBuilder texte = new StringBuilder();
+		int c;
+		while((c = lecteur.read()) != '"'){
+			if(c == -1 || c == '\n')
+				throw erreur("chaîne non terminée");
+			if(c == '\\'){
+				c = lecteur.read();
+				switch(c){
+				case 'n':
+					c = '\n';
+					break;
+				case 't':
+					c = '\t';
+					break;
+				case 'r':
+					c = '\r';
+					break;
+				case 'b':
+					c = '\b';
+					break;
+				case 'f':
+					c = '\f';
+					break;
+				case 'u':
+					char[] code = new char[4];
+					for(int k=0 ; k<4 ; k++)
+						code[k] = (char) lecteur.read();
+					try{
+						c = Integer.parseInt(new String(code), 16);
+					}
+					catch(NumberFormatException e){
+						throw erreur("échappement invalide : \\u" + new String(code));
+					}
+					break;
+				case '"':
+				case '\\':
+				case '/':
+					break;
+				default:
+					throw erreur("échappement invalide : \\" + (char) c);
+				}
+			}
+			texte.append((char) c);
+		}
+		return texte.toString();
+	}
+
+	/**
+	 * @return true si le tableau ouvert est vide, son crochet fermant étant alors lu
+	 */
+	private boolean tableauVide() throws IOException {
+		if(prochain() != ']')
+			return false;
+		lire();
+		return true;
+	}
+
+	/**
+	 * @return true s'il y a une virgule avant l'élément suivant, false si c'est la fin de l'objet ou du tableau
+	 */
+	private boolean virgule(char fin) throws IOException {
+		int c = prochain();
+		if(c == ',' || c == fin){
+			lire();
+			return c == ',';
+		}
+		throw erreur("',' ou '" + fin + "' attendu");
+	}
+
+	private void attendre(char attendu) throws IOException {
+		if(prochain() != attendu)
+			throw erreur("'" + attendu + "' attendu");
+		lire();
+	}
+
+	/**
+	 * @return le prochain caractère qui n'est pas un blanc, sans le lire, -1 en fin de fichier
+	 */
+	private int prochain() throws IOException {
+		if(avance == -2)
+			avance = lecteur.read();
+		while(avance == ' ' || avance == '\t' || avance == '\r' || avance == '\n'){
+			if(avance == '\n')
+				ligne++;
+			avance = lecteur.read();
+		}
+		return avance;
+	}
+
+	private int lire() throws IOException {
+		int c = prochain();
+		avance = -2;
+		return c;
+	}
+
+	@Override
+	int getLigne() {
+		return ligne;
+	}
+}
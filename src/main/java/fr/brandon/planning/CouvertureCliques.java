@@ -0,0 +1,107 @@
+package fr.brandon.planning;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Couverture par cliques du graphe des incompatibilités entre internes.
+ *
+ * Deux internes sont en conflit si l'un des deux ne peut pas travailler avec l'autre. Chaque conflit est couvert
+ * par au moins une clique : dans une clique, au plus un interne peut être de garde un jour donné.
+ *
+ * @author Brandon Gommard
+ */
+public class CouvertureCliques {
+
+	private final int nbInternes;
+	private final boolean[][] conflit;
+
+	/**
+	 * @param peutTravaillerEnsemble matrice de concordance des jours de travail des internes
+	 */
+	public CouvertureCliques(boolean[][] peutTravaillerEnsemble){
+		this.nbInternes = peutTravaillerEnsemble.length;
+		this.conflit = new boolean[nbInternes][nbInternes];
+		for(int iInterne=0 ; iInterne<nbInternes ; iInterne++){
+			for(int jInterne=iInterne+1 ; jInterne<nbInternes ; jInterne++){
+				if(!peutTravaillerEnsemble[iInterne][jInterne] || !peutTravaillerEnsemble[jInterne][iInterne]){
+					conflit[iInterne][jInterne] = true;
+					conflit[jInterne][iInterne] = true;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return true si les deux internes ne peuvent pas être de garde le même jour
+	 */
+	public boolean estEnConflit(int iInterne, int jInterne){
+		return conflit[iInterne][jInterne];
+	}
+
+	/**
+	 * Couverture gloutonne : chaque conflit non couvert donne une nouvelle clique, que l'on agrandit en ajoutant
+	 * l'interne en conflit avec tous les membres qui couvre le plus de conflits encore non couverts.
+	 * @return la liste des cliques, chacune donnée par les indices de ses internes
+	 */
+	public List<int[]> calculer(){
+		List<int[]> cliques = new ArrayList<int[]>();
+		boolean[][] couvert = new boolean[nbInternes][nbInternes];
+
+		for(int iInterne=0 ; iInterne<nbInternes ; iInterne++){
+			for(int jInterne=iInterne+1 ; jInterne<nbInternes ; jInterne++){
+				if(conflit[iInterne][jInterne] && !couvert[iInterne][jInterne]){
+					List<Integer> clique = new ArrayList<Integer>();
+					clique.add(iInterne);
+					clique.add(jInterne);
+
+					int candidat = meilleurCandidat(clique, couvert);
+					while(candidat >= 0){
+						clique.add(candidat);
+						candidat = meilleurCandidat(clique, couvert);
+					}
+
+					int[] membres = new int[clique.size()];
+					for(int k=0 ; k<membres.length ; k++){
+						membres[k] = clique.get(k);
+					}
+					for(int a : membres){
+						for(int b : membres){
+							couvert[a][b] = true;
+						}
+					}
+					cliques.add(membres);
+				}
+			}
+		}
+		return cliques;
+	}
+
+	/**
+	 * @return l'interne en conflit avec tous les membres de la clique qui couvre le plus de nouveaux conflits,
+	 * -1 s'il n'y en a pas
+	 */
+	private int meilleurCandidat(List<Integer> clique, boolean[][] couvert){
+		int meilleur = -1;
+		int meilleurGain = -1;
+		for(int kInterne=0 ; kInterne<nbInternes ; kInterne++){
+			if(clique.contains(kInterne))
+				continue;
+			int gain = 0;
+			boolean adjacent = true;
+			for(int membre : clique){
+				if(!conflit[kInterne][membre]){
+					adjacent = false;
+					break;
+				}
+				if(!couvert[kInterne][membre])
+					gain++;
+			}
+			if(adjacent && gain > meilleurGain){
+				meilleur = kInterne;
+				meilleurGain = gain;
+			}
+		}
+		return meilleur;
+	}
+}
@@ -0,0 +1,310 @@
+package fr.brandon.planning;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import solver.constraints.nary.automata.FA.FiniteAutomaton;
+
+/**
+ * Décomposition de la période en semaines résolues en parallèle, puis recousues.
+ *
+ * Les semaines sont résolues par vagues de nbSolveurs semaines, chacune seule sur son propre thread. Les quotas
+ * d'équilibre de chaque semaine sont tirés des objectifs de toute la période : les semaines de la vague qui la
+ * précèdent sont supposées réparties équitablement à partir du report réel des vagues précédentes. Les semaines
+ * sont ensuite recousues dans l'ordre avec le report réel des semaines précédentes :
+ * - une semaine qui ne s'enchaîne pas avec la précédente (repos, enchaînements désagréables) est d'abord réparée
+ *   sur ses premiers jours, le reste étant figé
+ * - une semaine qui sort de l'équilibre cumulé, ou dont la réparation échoue, est résolue à nouveau entièrement
+ * - si les semaines précédentes ne lui laissent aucune solution, elle est résolue avec elles en une seule fenêtre
+ *
+ * Les coutures d'une vague sont lancées ensemble sur les threads, chaque semaine partant du report où les semaines
+ * précédentes de la vague gardent leur solution. Elles sont ensuite vérifiées dans l'ordre avec le report réel :
+ * une couture qui ne le suit plus, parce qu'une semaine précédente a été réparée, est refaite sur le thread appelant.
+ *
+ * @author Brandon Gommard
+ */
+public class DecompositionSemaines {
+
+	//// les enchaînements interdits dépassent la jonction d'au plus 4 jours, comme l'historique de l'automate
+	private static final int JOURS_JONCTION = 4;
+	//// nombre maximal de semaines précédentes reprises avec une semaine qui n'a plus de solution
+	private static final int SEMAINES_REPRISES = 3;
+
+	private final SolveurPlanning modele;
+	private final int nbSolveurs;
+	private long graine = 0;
+	private final AtomicInteger nbReparations = new AtomicInteger();
+
+	/**
+	 * @param modele le planning de toute la période, commençant un lundi, dont les options sont reprises pour
+	 * chaque semaine. Son report, s'il en a un, précède la première semaine.
+	 * @param nbSolveurs nombre de semaines résolues en parallèle
+	 */
+	public DecompositionSemaines(SolveurPlanning modele, int nbSolveurs){
+		if(nbSolveurs < 1)
+			throw new IllegalArgumentException("La décomposition doit utiliser au moins un solveur");
+		this.modele = modele;
+		this.nbSolveurs = nbSolveurs;
+	}
+
+	/**
+	 * @param graine graine de la première semaine, la semaine k utilise graine + k
+	 */
+	public void setGraine(long graine) {
+		this.graine = graine;
+	}
+
+	/**
+	 * @return le nombre de semaines résolues à nouveau par le dernier resoudre(), coutures refaites comprises
+	 */
+	public int getNbReparations() {
+		return nbReparations.get();
+	}
+
+	/**
+	 * Résout les semaines en parallèle puis répare leurs jonctions
+	 * @return le planning de toute la période, dont le temps est la durée totale, null si une semaine n'a pas de
+	 * solution même reprise avec les précédentes
+	 */
+	public SolutionPlanning resoudre(){
+		long debutResolution = System.nanoTime();
+		int nbSemaines = (modele.getNbJours() + SolveurPlanning.NB_JOURS_SEMAINE - 1) / SolveurPlanning.NB_JOURS_SEMAINE;
+		SolutionPlanning[] semaines = new SolutionPlanning[nbSemaines];
+		//reports[k] : report réel des semaines avant la semaine k
+		ReportPlanning[] reports = new ReportPlanning[nbSemaines + 1];
+		reports[0] = modele.getReport() != null ? modele.getReport() : new ReportPlanning(modele.getNbInternes());
+		nbReparations.set(0);
+
+		ExecutorService executeur = Executors.newFixedThreadPool(nbSolveurs);
+		try{
+			//les semaines sont résolues par vagues de nbSolveurs, chaque vague partant du report réel des précédentes
+			for(int debut=0 ; debut<nbSemaines ; debut+=nbSolveurs){
+				int fin = Math.min(debut + nbSolveurs, nbSemaines);
+				List<Future<SolutionPlanning>> resultats = new ArrayList<Future<SolutionPlanning>>();
+				for(int semaine=debut ; semaine<fin ; semaine++){
+					ReportPlanning reportSuppose = ReportPlanning.partEquitable(reports[debut], modele, semaine - debut);
+					resultats.add(executeur.submit(new Resolution(semaine, 1, reportSuppose, null)));
+				}
+				for(int semaine=debut ; semaine<fin ; semaine++){
+					semaines[semaine] = resultats.get(semaine - debut).get();
+				}
+
+				//couture : les semaines qui ne suivent pas la précédente sont réparées, en parallèle avec le report
+				//où les précédentes gardent leur solution
+				List<Future<SolutionPlanning>> coutures = new ArrayList<Future<SolutionPlanning>>();
+				ReportPlanning reportSuppose = reports[debut];
+				for(int semaine=debut ; semaine<fin ; semaine++){
+					coutures.add(executeur.submit(new Couture(semaine, reportSuppose, semaines[semaine])));
+					if(semaines[semaine] != null)
+						reportSuppose = reportSuppose.cumuler(semaines[semaine], modele.getNomServices());
+					else
+						reportSuppose = ReportPlanning.partEquitable(reportSuppose, modele, 1);
+				}
+				//le report supposé reste le report réel tant que les semaines gardent leur solution
+				boolean reportReel = true;
+				for(int semaine=debut ; semaine<fin ; semaine++){
+					SolutionPlanning cousue = coutures.get(semaine - debut).get();
+					if(!reportReel && !suit(reports[semaine], cousue))
+						cousue = new Couture(semaine, reports[semaine], semaines[semaine]).call();
+					reportReel = reportReel && cousue != null && cousue == semaines[semaine];
+					semaines[semaine] = cousue;
+					if(semaines[semaine] == null && !reprendre(semaines, reports, semaine))
+						return null;
+					reports[semaine + 1] = reports[semaine].cumuler(semaines[semaine], modele.getNomServices());
+				}
+			}
+		}
+		catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		catch(ExecutionException e){
+			throw new IllegalStateException("La résolution d'une semaine a échoué", e.getCause());
+		}
+		finally{
+			executeur.shutdownNow();
+		}
+
+		return assembler(semaines, (System.nanoTime() - debutResolution) / 1e9);
+	}
+
+	/**
+	 * reprendre résout la semaine avec les semaines qui la précèdent, en reprenant de plus en plus de semaines
+	 * @return true si une solution a été trouvée, les semaines et leurs reports étant alors remplacés
+	 */
+	private boolean reprendre(SolutionPlanning[] semaines, ReportPlanning[] reports, int semaine){
+		for(int premiere=semaine-1 ; premiere>=Math.max(0, semaine - SEMAINES_REPRISES) ; premiere--){
+			SolutionPlanning bloc = new Resolution(premiere, semaine - premiere + 1, reports[premiere], null).call();
+			if(bloc != null){
+				for(int k=premiere ; k<=semaine ; k++){
+					int debut = (k - premiere) * SolveurPlanning.NB_JOURS_SEMAINE;
+					semaines[k] = bloc.extraire(debut, Math.min(SolveurPlanning.NB_JOURS_SEMAINE, bloc.getNbJours() - debut));
+					if(k < semaine)
+						reports[k + 1] = reports[k].cumuler(semaines[k], modele.getNomServices());
+				}
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return true si la semaine existe et suit le report, pour les enchaînements et l'équilibre cumulé
+	 */
+	private boolean suit(ReportPlanning report, SolutionPlanning semaine){
+		return semaine != null && estEquilibre(report.cumuler(semaine, modele.getNomServices())) && enchaine(report, semaine);
+	}
+
+	/**
+	 * @return true si la semaine respecte les enchaînements de gardes depuis le report
+	 */
+	boolean enchaine(ReportPlanning report, SolutionPlanning semaine){
+		for(int iInterne=0 ; iInterne<semaine.getNbInternes() ; iInterne++){
+			int[] occupation = new int[semaine.getNbJours()];
+			for(int t=0 ; t<semaine.getNbJours() ; t++){
+				for(int iService=0 ; iService<semaine.getNbServices() ; iService++){
+					if(semaine.estDeGarde(iService, iInterne, t))
+						occupation[t] = 1;
+				}
+			}
+			FiniteAutomaton automate = modele.automateGardes(iInterne)
+					.construire(report.getHistorique()[iInterne]);
+			if(!automate.run(occupation))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return true si les compteurs cumulés respectent l'équilibre de chaque catégorie
+	 */
+	boolean estEquilibre(ReportPlanning cumul){
+		return estEquilibre(cumul.getGardes(), modele.getNbGardeEcart())
+				&& estEquilibre(cumul.getGardesSamu(), modele.getNbGardeEcart())
+				&& estEquilibre(cumul.getGardesJeudi(), modele.getNbGardeEcart())
+				&& estEquilibre(cumul.getGardesSamedi(), modele.getNbGardeEcart())
+				&& estEquilibre(cumul.getGardesDimanche(), modele.getNbGardeEcart())
+				&& estEquilibre(cumul.getAstreintes(), modele.getNbAstreintesEcart());
+	}
+
+	/**
+	 * @return true si les compteurs respectent l'équilibre posé par SolveurPlanning sur leur total
+	 */
+	private boolean estEquilibre(int[] compteurs, int ecart){
+		int total = 0, min = Integer.MAX_VALUE, max = 0;
+		for(int compteur : compteurs){
+			total += compteur;
+			min = Math.min(min, compteur);
+			max = Math.max(max, compteur);
+		}
+		int[] bornes = SolveurPlanning.bornesEquilibre(modele.getModeEquilibre(), total, compteurs.length, ecart);
+		if(min < bornes[0] || max > Math.max(bornes[0], bornes[1]))
+			return false;
+		return modele.getModeEquilibre() != ModeEquilibre.ECART || max - min <= ecart;
+	}
+
+	private SolutionPlanning assembler(SolutionPlanning[] semaines, double temps){
+		int nbInternes = modele.getNbInternes();
+		boolean[][][] gardes = new boolean[modele.getNbServices()][nbInternes][modele.getNbJours()];
+		boolean[][][] astreintes = new boolean[modele.getNbAstreintes()][nbInternes][modele.getNbJours()];
+		for(int semaine=0 ; semaine<semaines.length ; semaine++){
+			int debut = semaine * SolveurPlanning.NB_JOURS_SEMAINE;
+			for(int iInterne=0 ; iInterne<nbInternes ; iInterne++){
+				for(int t=0 ; t<semaines[semaine].getNbJours() ; t++){
+					for(int iService=0 ; iService<gardes.length ; iService++)
+						gardes[iService][iInterne][debut + t] = semaines[semaine].estDeGarde(iService, iInterne, t);
+					for(int iAstreinte=0 ; iAstreinte<astreintes.length ; iAstreinte++)
+						astreintes[iAstreinte][iInterne][debut + t] = semaines[semaine].estDAstreinte(iAstreinte, iInterne, t);
+				}
+			}
+		}
+		//les semaines reprises ensemble partagent un même objectif, qui est donc recompté ici
+		int objectif = 0;
+		for(int iService=0 ; iService<gardes.length ; iService++){
+			for(int iInterne=0 ; iInterne<nbInternes ; iInterne++){
+				for(int t=0 ; t<modele.getNbJours() ; t++){
+					if(gardes[iService][iInterne][t] && modele.getIndispoSouple()[iInterne][t])
+						objectif++;
+				}
+			}
+		}
+		return new SolutionPlanning(gardes, astreintes, objectif, temps);
+	}
+
+	/**
+	 * Couture d'une semaine après un report réel ou supposé : sa solution si elle suit le report, sinon sa
+	 * réparation sur les jours de jonction, sinon sa résolution entière, null si elle n'a pas de solution
+	 */
+	private class Couture implements Callable<SolutionPlanning> {
+
+		private final int semaine;
+		private final ReportPlanning report;
+		private final SolutionPlanning candidate;
+
+		Couture(int semaine, ReportPlanning report, SolutionPlanning candidate){
+			this.semaine = semaine;
+			this.report = report;
+			this.candidate = candidate;
+		}
+
+		@Override
+		public SolutionPlanning call() {
+			boolean equilibree = candidate != null && estEquilibre(report.cumuler(candidate, modele.getNomServices()));
+			if(equilibree && enchaine(report, candidate))
+				return candidate;
+			nbReparations.incrementAndGet();
+			SolutionPlanning reparee = null;
+			if(equilibree)
+				reparee = new Resolution(semaine, 1, report, candidate).call();
+			if(reparee == null)
+				reparee = new Resolution(semaine, 1, report, null).call();
+			return reparee;
+		}
+	}
+
+	/**
+	 * Résolution de semaines consécutives après un report réel ou supposé
+	 */
+	private class Resolution implements Callable<SolutionPlanning> {
+
+		private final int semaine;
+		private final int nbSemaines;
+		private final ReportPlanning report;
+		private final SolutionPlanning figee;
+
+		/**
+		 * @param semaine première semaine résolue
+		 * @param nbSemaines nombre de semaines résolues ensemble
+		 * @param report report des semaines précédentes
+		 * @param figee solution à garder après les jours de jonction, null pour résoudre toutes les semaines
+		 */
+		Resolution(int semaine, int nbSemaines, ReportPlanning report, SolutionPlanning figee){
+			this.semaine = semaine;
+			this.nbSemaines = nbSemaines;
+			this.report = report;
+			this.figee = figee;
+		}
+
+		@Override
+		public SolutionPlanning call() {
+			int debut = semaine * SolveurPlanning.NB_JOURS_SEMAINE;
+			int longueur = Math.min(nbSemaines * SolveurPlanning.NB_JOURS_SEMAINE, modele.getNbJours() - debut);
+			SolveurPlanning planning = modele.fenetre(debut, longueur);
+			planning.setNom(modele.getNom() + " s" + semaine);
+			planning.setGraine(graine + semaine);
+			planning.setReport(report);
+			//la semaine figée n'a pas forcément ses internes interchangeables dans l'ordre imposé
+			planning.setBriserSymetries(planning.isBriserSymetries() && figee == null);
+			planning.initialisation();
+			if(figee != null)
+				planning.figer(figee, JOURS_JONCTION);
+			return planning.solve();
+		}
+	}
+}
@@ -0,0 +1,340 @@
+package fr.brandon.planning;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import solver.Solver;
+import solver.search.loop.monitors.IMonitorOpenNode;
+import util.ESat;
+
+/**
+ * Diagnostic d'un planning sans solution : recherche d'un ensemble minimal de groupes de règles en conflit.
+ *
+ * Chaque règle désactivable est un groupe, sauf les indisponibilités fortes qui forment un groupe par interne.
+ * L'algorithme QuickXplain coupe les groupes en deux et ne garde que les moitiés nécessaires au conflit : pour k
+ * groupes en conflit parmi n, il fait de l'ordre de k log(n/k) vérifications. Chaque vérification cherche un
+ * planning sur une copie du modèle limitée à une partie des groupes, sous une courte limite de temps. Une
+ * vérification qui atteint sa limite compte comme satisfiable : le conflit rendu est toujours prouvé sans solution,
+ * mais n'est alors plus forcément minimal.
+ *
+ * Les vérifications tournent sur un pool de threads : pendant que la vérification attendue tourne, les suivantes,
+ * en supposant que chacune trouve un planning, sont lancées à l'avance sur les autres threads. Celles que le
+ * diagnostic ne suit finalement pas sont abandonnées.
+ *
+ * @author Brandon Gommard
+ */
+public class DiagnosticPlanning {
+
+	private static final long LIMITE_VERIFICATION = 2000;
+
+	private final SolveurPlanning modele;
+	private final List<Groupe> groupes;
+	private long limiteVerification = LIMITE_VERIFICATION;
+	private int nbThreads = Runtime.getRuntime().availableProcessors();
+
+	//// vérifications lancées par le diagnostic en cours, par ensemble des indices des groupes actifs
+	private Map<BitSet, Verification> verifications;
+	private ExecutorService executeur;
+	private boolean minimal;
+	private int nbVerifications;
+
+	/**
+	 * @param modele le planning à diagnostiquer, dont les données et les options sont copiées pour chaque
+	 * vérification. Ses règles déjà désactivées restent désactivées et ne sont pas diagnostiquées.
+	 */
+	public DiagnosticPlanning(SolveurPlanning modele){
+		this.modele = modele;
+		this.groupes = new ArrayList<Groupe>();
+		for(Regle regle : Regle.values()){
+			if(!modele.isRegleActive(regle))
+				continue;
+			if(regle != Regle.INDISPONIBILITE_FORTE){
+				groupes.add(new Groupe(regle, -1));
+				continue;
+			}
+			for(int iInterne=0 ; iInterne<modele.getNbInternes() ; iInterne++){
+				if(modele.isIndisponibiliteForteActive(iInterne) && aDesIndisponibilites(modele.getIndispoForte()[iInterne]))
+					groupes.add(new Groupe(regle, iInterne));
+			}
+		}
+	}
+
+	private static boolean aDesIndisponibilites(boolean[] indispo){
+		for(boolean indisponible : indispo){
+			if(indisponible)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @param limiteVerification durée maximale de chaque vérification en millisecondes
+	 */
+	public void setLimiteVerification(long limiteVerification) {
+		if(limiteVerification <= 0)
+			throw new IllegalArgumentException("Limite de vérification " + limiteVerification);
+		this.limiteVerification = limiteVerification;
+	}
+
+	/**
+	 * @param nbThreads nombre de vérifications menées en parallèle, le nombre de processeurs par défaut
+	 */
+	public void setNbThreads(int nbThreads) {
+		if(nbThreads < 1)
+			throw new IllegalArgumentException("Le diagnostic doit utiliser au moins un thread");
+		this.nbThreads = nbThreads;
+	}
+
+	/**
+	 * @return les groupes de règles diagnostiqués, dans l'ordre où le diagnostic les découpe
+	 */
+	public List<Groupe> getGroupes() {
+		return groupes;
+	}
+
+	/**
+	 * Vérifie le planning avec tous ses groupes, puis, s'il n'a pas de solution, cherche un conflit minimal
+	 * @return les groupes du conflit, dans l'ordre de getGroupes(), vide si auPlus1GardeJour et les règles déjà
+	 * désactivées suffisent au conflit, null si le planning a une solution ou si sa vérification atteint la limite
+	 */
+	public List<Groupe> diagnostiquer(){
+		verifications = new HashMap<BitSet, Verification>();
+		minimal = true;
+		nbVerifications = 0;
+		executeur = Executors.newFixedThreadPool(nbThreads);
+		try{
+			List<Integer> indices = new ArrayList<Integer>();
+			for(int k=0 ; k<groupes.size() ; k++)
+				indices.add(k);
+			BitSet fond = new BitSet();
+			BitSet tous = union(fond, indices);
+			List<BitSet> suite = suite(fond, indices);
+			suite.add(0, tous);
+			anticiper(suite.subList(0, Math.min(nbThreads, suite.size())));
+			if(resultat(tous) != ESat.FALSE)
+				return null;
+
+			List<Groupe> conflit = new ArrayList<Groupe>();
+			for(int k : quickXplain(fond, true, indices))
+				conflit.add(groupes.get(k));
+			return conflit;
+		}
+		finally{
+			anticiper(new ArrayList<BitSet>());
+			executeur.shutdown();
+		}
+	}
+
+	/**
+	 * quickXplain cherche un sous-ensemble minimal des groupes qui, ajouté au fond, n'a pas de solution. Le fond
+	 * avec tous les groupes n'a pas de solution.
+	 * @param fond indices des groupes actifs en plus de ceux cherchés
+	 * @param verifierFond false si le fond est déjà connu satisfiable
+	 * @param indices indices des groupes parmi lesquels chercher
+	 * @return les indices du conflit, dans l'ordre croissant
+	 */
+	private List<Integer> quickXplain(BitSet fond, boolean verifierFond, List<Integer> indices){
+		if(verifierFond){
+			anticiper(suite(fond, indices));
+			if(resultat(fond) == ESat.FALSE)
+				return new ArrayList<Integer>();
+		}
+		if(indices.size() == 1)
+			return new ArrayList<Integer>(indices);
+		List<Integer> premiers = indices.subList(0, indices.size() / 2);
+		List<Integer> derniers = indices.subList(indices.size() / 2, indices.size());
+		List<Integer> conflitDerniers = quickXplain(union(fond, premiers), true, derniers);
+		List<Integer> conflit = quickXplain(union(fond, conflitDerniers), !conflitDerniers.isEmpty(), premiers);
+		conflit.addAll(conflitDerniers);
+		return conflit;
+	}
+
+	/**
+	 * @return les vérifications que quickXplain demande à partir du fond si chacune trouve un planning : le fond,
+	 * puis le fond augmenté de la première moitié des groupes, et ainsi de suite sur la seconde moitié, au plus
+	 * une par thread
+	 */
+	private List<BitSet> suite(BitSet fond, List<Integer> indices){
+		List<BitSet> suite = new ArrayList<BitSet>();
+		BitSet actifs = fond;
+		List<Integer> restants = indices;
+		suite.add(actifs);
+		while(suite.size() < nbThreads && restants.size() > 1){
+			actifs = union(actifs, restants.subList(0, restants.size() / 2));
+			restants = restants.subList(restants.size() / 2, restants.size());
+			suite.add(actifs);
+		}
+		return suite;
+	}
+
+	/**
+	 * anticiper abandonne les vérifications en cours qui ne sont pas dans la suite, puis lance celles de la suite
+	 * qui ne l'ont pas encore été
+	 */
+	private void anticiper(List<BitSet> suite){
+		Iterator<Map.Entry<BitSet, Verification>> entrees = verifications.entrySet().iterator();
+		while(entrees.hasNext()){
+			Map.Entry<BitSet, Verification> entree = entrees.next();
+			if(!entree.getValue().resultat.isDone() && !suite.contains(entree.getKey())){
+				entree.getValue().abandonner();
+				entrees.remove();
+			}
+		}
+		for(BitSet actifs : suite){
+			if(!verifications.containsKey(actifs)){
+				Verification verification = new Verification(actifs);
+				verification.resultat = executeur.submit(verification);
+				verifications.put(actifs, verification);
+				nbVerifications++;
+			}
+		}
+	}
+
+	/**
+	 * @return le résultat de la vérification des groupes actifs, attendu si besoin
+	 */
+	private ESat resultat(BitSet actifs){
+		if(!verifications.containsKey(actifs))
+			anticiper(suite(actifs, new ArrayList<Integer>()));
+		try{
+			ESat resultat = verifications.get(actifs).resultat.get();
+			if(resultat == ESat.UNDEFINED)
+				minimal = false;
+			return resultat;
+		}
+		catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Diagnostic interrompu", e);
+		}
+		catch(ExecutionException e){
+			throw new IllegalStateException("Une vérification du diagnostic a échoué", e.getCause());
+		}
+	}
+
+	private static BitSet union(BitSet fond, List<Integer> indices){
+		BitSet union = (BitSet) fond.clone();
+		for(int k : indices)
+			union.set(k);
+		return union;
+	}
+
+	/**
+	 * @return false si une vérification du dernier diagnostic a atteint sa limite : le conflit rendu n'a pas de
+	 * solution mais un de ses groupes peut être superflu
+	 */
+	public boolean isMinimal() {
+		return minimal;
+	}
+
+	/**
+	 * @return le nombre de vérifications lancées par le dernier diagnostic, anticipées comprises
+	 */
+	public int getNbVerifications() {
+		return nbVerifications;
+	}
+
+	/**
+	 * Vérification d'une copie du planning réduite aux groupes actifs, sur un thread du pool
+	 */
+	private class Verification implements Callable<ESat> {
+
+		private final BitSet actifs;
+		private volatile boolean abandonnee;
+		private Future<ESat> resultat;
+
+		Verification(BitSet actifs){
+			this.actifs = actifs;
+		}
+
+		/**
+		 * abandonner arrête la vérification au prochain noeud, ou avant même sa construction
+		 */
+		void abandonner(){
+			abandonnee = true;
+			resultat.cancel(false);
+		}
+
+		@Override
+		public ESat call() {
+			if(abandonnee)
+				return ESat.UNDEFINED;
+			SolveurPlanning planning = modele.copier();
+			planning.setNom(modele.getNom() + " diagnostic " + actifs);
+			//le modèle par affectation ne sépare pas la couverture des gardes et des astreintes
+			planning.setModeleAffectation(ModeleAffectation.BOOLEEN);
+			planning.setRechercheVoisinage(false);
+			planning.setLimiteTemps(limiteVerification);
+			planning.setLimiteNoeuds(0);
+			planning.setLimiteEchecs(0);
+			planning.setLimiteRetours(0);
+			for(int k=0 ; k<groupes.size() ; k++){
+				if(!actifs.get(k))
+					groupes.get(k).desactiver(planning);
+			}
+			planning.initialisation();
+
+			//des données impossibles sont rejetées sans modèle ni recherche
+			final Solver solveur = planning.getSolveur();
+			if(solveur == null)
+				return planning.verifier();
+			solveur.plugMonitor(new IMonitorOpenNode() {
+				@Override
+				public void beforeOpenNode() {
+					if(abandonnee)
+						solveur.getSearchLoop().reachLimit();
+				}
+
+				@Override
+				public void afterOpenNode() {
+				}
+			});
+			return planning.verifier();
+		}
+	}
+
+	/**
+	 * Règle désactivable, ou indisponibilités fortes d'un interne
+	 */
+	public static class Groupe {
+
+		private final Regle regle;
+		private final int interne;
+
+		Groupe(Regle regle, int interne){
+			this.regle = regle;
+			this.interne = interne;
+		}
+
+		public Regle getRegle() {
+			return regle;
+		}
+
+		/**
+		 * @return l'interne dont les indisponibilités fortes forment le groupe, -1 pour une règle entière
+		 */
+		public int getInterne() {
+			return interne;
+		}
+
+		void desactiver(SolveurPlanning planning){
+			if(interne < 0)
+				planning.setRegleActive(regle, false);
+			else
+				planning.setIndisponibiliteForteActive(interne, false);
+		}
+
+		@Override
+		public String toString() {
+			return interne < 0 ? regle.toString() : regle + " interne " + interne;
+		}
+	}
+}
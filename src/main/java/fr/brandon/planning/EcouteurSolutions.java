@@ -0,0 +1,16 @@
+package fr.brandon.planning;
+
+/**
+ * Reçoit chaque solution améliorante trouvée par SolveurPlanning.solve(), pendant la résolution.
+ *
+ * L'écouteur est appelé depuis le thread du solveur et doit rendre la main rapidement.
+ *
+ * @author Brandon Gommard
+ */
+public interface EcouteurSolutions {
+
+	/**
+	 * @param solution copie de la solution, avec son objectif et le temps auquel elle a été trouvée
+	 */
+	void nouvelleSolution(SolutionPlanning solution);
+}
@@ -0,0 +1,467 @@
+package fr.brandon.planning;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Export d'une solution du planning en texte, CSV, JSON, iCalendar (un calendrier par interne) et binaire compressé.
+ *
+ * La solution est lue une seule fois à la construction : pour chaque service et chaque astreinte, l'interne affecté
+ * à chaque jour. L'export ne garde ni le planning ni son solveur, et écrit toujours à travers un tampon.
+ *
+ * @author Brandon Gommard
+ */
+public class ExportPlanning {
+
+	//// en-tête du format binaire, suivi de sa version
+	private static final int MAGIQUE = 0x43504c4e;
+	private static final int VERSION = 1;
+	private static final long MS_PAR_JOUR = 24L * 3600 * 1000;
+	private static final String FIN_LIGNE_ICALENDAR = "\r\n";
+
+	private final String[] nomServices;
+	private final String[] nomAstreintes;
+	private final int nbInternes;
+	private final int nbJours;
+	private final int objectif;
+	private final double temps;
+	//// affectations[k][t] : interne de garde au service k (puis d'astreinte à l'astreinte k - nbServices) le jour t,
+	//// -1 si aucun
+	private final int[][] affectations;
+	//// minuit UTC du premier jour : les dates sont toujours formatées en UTC, sans dépendre du fuseau local
+	private Date debut;
+	//// dates des jours, formatées une fois pour tous les exports
+	private String[] joursIso;
+	private String[] joursICalendar;
+
+	/**
+	 * @param planning planning résolu, dont la meilleure solution est exportée
+	 */
+	public ExportPlanning(SolveurPlanning planning){
+		this(planning.getMeilleureSolution(), planning.getNomServices(), planning.getNomAstreintes());
+	}
+
+	/**
+	 * @param solution solution exportée, avec au plus un interne par service ou astreinte et par jour
+	 * @param nomServices noms des services
+	 * @param nomAstreintes noms des astreintes
+	 */
+	public ExportPlanning(SolutionPlanning solution, String[] nomServices, String[] nomAstreintes){
+		if(solution == null)
+			throw new IllegalArgumentException("Aucune solution à exporter");
+		this.nomServices = nomServices.clone();
+		this.nomAstreintes = nomAstreintes.clone();
+		this.nbInternes = solution.getNbInternes();
+		this.nbJours = solution.getNbJours();
+		this.objectif = solution.getObjectif();
+		this.temps = solution.getTemps();
+		this.affectations = new int[nomServices.length + nomAstreintes.length][nbJours];
+		for(int[] affectation : affectations)
+			Arrays.fill(affectation, -1);
+		for(int iInterne=0 ; iInterne<nbInternes ; iInterne++){
+			for(int t=0 ; t<nbJours ; t++){
+				for(int iService=0 ; iService<nomServices.length ; iService++){
+					if(solution.estDeGarde(iService, iInterne, t))
+						affecter(iService, t, iInterne);
+				}
+				for(int iAstreinte=0 ; iAstreinte<nomAstreintes.length ; iAstreinte++){
+					if(solution.estDAstreinte(iAstreinte, iInterne, t))
+						affecter(nomServices.length + iAstreinte, t, iInterne);
+				}
+			}
+		}
+	}
+
+	private ExportPlanning(String[] nomServices, String[] nomAstreintes, int nbInternes, int nbJours, int objectif,
+			double temps, int[][] affectations){
+		this.nomServices = nomServices;
+		this.nomAstreintes = nomAstreintes;
+		this.nbInternes = nbInternes;
+		this.nbJours = nbJours;
+		this.objectif = objectif;
+		this.temps = temps;
+		this.affectations = affectations;
+	}
+
+	private void affecter(int k, int jour, int iInterne){
+		if(affectations[k][jour] >= 0)
+			throw new IllegalArgumentException("Plusieurs internes le jour " + jour + " pour " + nom(k));
+		affectations[k][jour] = iInterne;
+	}
+
+	private String nom(int k){
+		return k < nomServices.length ? nomServices[k] : nomAstreintes[k - nomServices.length];
+	}
+
+	/**
+	 * @param debut date du premier jour au format aaaa-mm-jj, un lundi, pour dater les exports (obligatoire pour
+	 * iCalendar). La date ne dépend d'aucun fuseau horaire.
+	 */
+	public void setDebut(String debut) {
+		SimpleDateFormat format = format("yyyy-MM-dd");
+		format.setLenient(false);
+		ParsePosition position = new ParsePosition(0);
+		Date date = format.parse(debut.trim(), position);
+		if(date == null || position.getIndex() != debut.trim().length())
+			throw new IllegalArgumentException("Date invalide : " + debut);
+		setDebut(date);
+	}
+
+	private void setDebut(Date debut) {
+		this.debut = debut;
+		this.joursIso = null;
+		this.joursICalendar = null;
+	}
+
+	/**
+	 * @return la solution exportée, reconstruite depuis les affectations
+	 */
+	public SolutionPlanning getSolution() {
+		boolean[][][] gardes = new boolean[nomServices.length][nbInternes][nbJours];
+		boolean[][][] astreintes = new boolean[nomAstreintes.length][nbInternes][nbJours];
+		for(int k=0 ; k<affectations.length ; k++){
+			for(int t=0 ; t<nbJours ; t++){
+				if(affectations[k][t] < 0)
+					continue;
+				if(k < nomServices.length)
+					gardes[k][affectations[k][t]][t] = true;
+				else
+					astreintes[k - nomServices.length][affectations[k][t]][t] = true;
+			}
+		}
+		return new SolutionPlanning(gardes, astreintes, objectif, temps);
+	}
+
+	public String[] getNomServices() {
+		return nomServices;
+	}
+
+	public String[] getNomAstreintes() {
+		return nomAstreintes;
+	}
+
+	/**
+	 * @return l'interne de garde au service ce jour-là, -1 si aucun
+	 */
+	public int getInterneDeGarde(int iService, int jour){
+		return affectations[iService][jour];
+	}
+
+	/**
+	 * @return l'interne d'astreinte ce jour-là, -1 si aucun
+	 */
+	public int getInterneDAstreinte(int iAstreinte, int jour){
+		return affectations[nomServices.length + iAstreinte][jour];
+	}
+
+	/**
+	 * Écrit le fichier au format donné par son extension : .csv, .json, ou .gz pour le binaire compressé
+	 */
+	public void ecrire(File fichier) throws IOException {
+		String nom = fichier.getName().toLowerCase();
+		if(nom.endsWith(".gz")){
+			OutputStream sortie = new FileOutputStream(fichier);
+			try{
+				ecrireBinaire(sortie);
+			}
+			finally{
+				sortie.close();
+			}
+			return;
+		}
+		if(!nom.endsWith(".csv") && !nom.endsWith(".json"))
+			throw new IllegalArgumentException("Format de fichier inconnu : " + fichier.getName());
+		Writer sortie = new OutputStreamWriter(new FileOutputStream(fichier), "UTF-8");
+		try{
+			if(nom.endsWith(".csv"))
+				ecrireCsv(sortie);
+			else
+				ecrireJson(sortie);
+		}
+		finally{
+			sortie.close();
+		}
+	}
+
+	/**
+	 * Écrit le calendrier de chaque interne dans le dossier, sous le nom interne-i.ics
+	 */
+	public void ecrireICalendars(File dossier) throws IOException {
+		for(int iInterne=0 ; iInterne<nbInternes ; iInterne++){
+			Writer sortie = new OutputStreamWriter(new FileOutputStream(new File(dossier, "interne-" + iInterne + ".ics")), "UTF-8");
+			try{
+				ecrireICalendar(sortie, iInterne);
+			}
+			finally{
+				sortie.close();
+			}
+		}
+	}
+
+	/**
+	 * Écrit les gardes puis les astreintes de chaque interne, une semaine par bloc, avec leur nombre par service.
+	 * Le flux est vidé mais pas fermé.
+	 */
+	public void ecrireTexte(Writer flux) throws IOException {
+		BufferedWriter sortie = new BufferedWriter(flux);
+		ecrireTexte(sortie, 0, nomServices.length);
+		sortie.newLine();
+		sortie.newLine();
+		ecrireTexte(sortie, nomServices.length, nomAstreintes.length);
+		sortie.newLine();
+		sortie.flush();
+	}
+
+	private void ecrireTexte(BufferedWriter sortie, int premier, int nombre) throws IOException {
+		for(int iInterne=0 ; iInterne<nbInternes ; iInterne++){
+			int[] compteurs = new int[nombre];
+			for(int t=0 ; t<nbJours ; t++){
+				if(t % SolveurPlanning.NB_JOURS_SEMAINE == SolveurPlanning.LUNDI)
+					sortie.write("   ");
+				sortie.write('[');
+				for(int k=0 ; k<nombre ; k++){
+					boolean affecte = affectations[premier + k][t] == iInterne;
+					sortie.write(affecte ? '1' : '0');
+					if(affecte)
+						compteurs[k]++;
+				}
+				sortie.write("] ");
+			}
+			int total = 0;
+			for(int k=0 ; k<nombre ; k++){
+				sortie.write(nom(premier + k) + ": " + compteurs[k] + " ");
+				total += compteurs[k];
+			}
+			sortie.write(" Total: " + total);
+			sortie.newLine();
+		}
+	}
+
+	/**
+	 * Écrit une ligne par jour : jour;date;puis l'interne de chaque service et de chaque astreinte (vide si aucun).
+	 * La date est vide sans date de début. Le flux est vidé mais pas fermé.
+	 */
+	public void ecrireCsv(Writer flux) throws IOException {
+		BufferedWriter sortie = new BufferedWriter(flux);
+		sortie.write("jour;date");
+		for(int k=0 ; k<affectations.length ; k++)
+			sortie.write(";" + nom(k));
+		sortie.newLine();
+		String[] jours = joursIso();
+		for(int t=0 ; t<nbJours ; t++){
+			sortie.write(Integer.toString(t));
+			sortie.write(';');
+			if(jours != null)
+				sortie.write(jours[t]);
+			for(int[] affectation : affectations){
+				sortie.write(';');
+				if(affectation[t] >= 0)
+					sortie.write(Integer.toString(affectation[t]));
+			}
+			sortie.newLine();
+		}
+		sortie.flush();
+	}
+
+	/**
+	 * Écrit l'objectif, les noms, et pour chaque jour l'interne de chaque service et de chaque astreinte (null si
+	 * aucun). Le flux est vidé mais pas fermé.
+	 */
+	public void ecrireJson(Writer flux) throws IOException {
+		BufferedWriter sortie = new BufferedWriter(flux);
+		String[] jours = joursIso();
+		sortie.write("{\"objectif\":" + objectif + ",\"nbInternes\":" + nbInternes);
+		if(debut != null)
+			sortie.write(",\"debut\":\"" + jours[0] + "\"");
+		sortie.write(",\"services\":");
+		ecrireNoms(sortie, nomServices);
+		sortie.write(",\"astreintes\":");
+		ecrireNoms(sortie, nomAstreintes);
+		sortie.write(",\"jours\":[");
+		for(int t=0 ; t<nbJours ; t++){
+			if(t > 0)
+				sortie.write(',');
+			sortie.newLine();
+			sortie.write("{\"jour\":" + t);
+			if(jours != null)
+				sortie.write(",\"date\":\"" + jours[t] + "\"");
+			for(int k=0 ; k<affectations.length ; k++){
+				sortie.write(",\"" + echapperJson(nom(k)) + "\":");
+				sortie.write(affectations[k][t] >= 0 ? Integer.toString(affectations[k][t]) : "null");
+			}
+			sortie.write('}');
+		}
+		sortie.newLine();
+		sortie.write("]}");
+		sortie.newLine();
+		sortie.flush();
+	}
+
+	private static void ecrireNoms(BufferedWriter sortie, String[] noms) throws IOException {
+		sortie.write('[');
+		for(int k=0 ; k<noms.length ; k++){
+			if(k > 0)
+				sortie.write(',');
+			sortie.write("\"" + echapperJson(noms[k]) + "\"");
+		}
+		sortie.write(']');
+	}
+
+	private static String echapperJson(String texte){
+		return texte.replace("\\", "\\\\").replace("\"", "\\\"");
+	}
+
+	/**
+	 * Écrit le calendrier d'un interne : un événement sur la journée par garde et par astreinte. Le flux est vidé
+	 * mais pas fermé.
+	 * @throws IllegalStateException sans date de début
+	 */
+	public void ecrireICalendar(Writer flux, int iInterne) throws IOException {
+		if(debut == null)
+			throw new IllegalStateException("L'export iCalendar demande la date du premier jour");
+		BufferedWriter sortie = new BufferedWriter(flux);
+		if(joursICalendar == null)
+			joursICalendar = dates("yyyyMMdd", nbJours + 1);
+		String[] jours = joursICalendar;
+		String horodatage = format("yyyyMMdd'T'HHmmss'Z'").format(new Date());
+		ligneICalendar(sortie, "BEGIN:VCALENDAR");
+		ligneICalendar(sortie, "VERSION:2.0");
+		ligneICalendar(sortie, "PRODID:-//ChocoPlanning//Planning des gardes//FR");
+		ligneICalendar(sortie, "X-WR-CALNAME:Interne " + iInterne);
+		for(int t=0 ; t<nbJours ; t++){
+			for(int k=0 ; k<affectations.length ; k++){
+				if(affectations[k][t] != iInterne)
+					continue;
+				ligneICalendar(sortie, "BEGIN:VEVENT");
+				ligneICalendar(sortie, "UID:" + t + "-" + k + "-" + iInterne + "@chocoplanning");
+				ligneICalendar(sortie, "DTSTAMP:" + horodatage);
+				ligneICalendar(sortie, "DTSTART;VALUE=DATE:" + jours[t]);
+				ligneICalendar(sortie, "DTEND;VALUE=DATE:" + jours[t + 1]);
+				ligneICalendar(sortie, "SUMMARY:" + (k < nomServices.length ? "Garde " : "Astreinte ") + nom(k));
+				ligneICalendar(sortie, "END:VEVENT");
+			}
+		}
+		ligneICalendar(sortie, "END:VCALENDAR");
+		sortie.flush();
+	}
+
+	private static void ligneICalendar(BufferedWriter sortie, String ligne) throws IOException {
+		sortie.write(ligne);
+		sortie.write(FIN_LIGNE_ICALENDAR);
+	}
+
+	/**
+	 * Écrit l'export en binaire compressé (GZIP), relu par lireBinaire. Le flux est fermé par la compression.
+	 */
+	public void ecrireBinaire(OutputStream flux) throws IOException {
+		DataOutputStream sortie = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(flux)));
+		try{
+			sortie.writeInt(MAGIQUE);
+			sortie.writeInt(VERSION);
+			sortie.writeInt(nbInternes);
+			sortie.writeInt(nbJours);
+			sortie.writeInt(objectif);
+			sortie.writeDouble(temps);
+			sortie.writeLong(debut != null ? debut.getTime() : Long.MIN_VALUE);
+			ecrireNoms(sortie, nomServices);
+			ecrireNoms(sortie, nomAstreintes);
+			for(int[] affectation : affectations){
+				for(int t=0 ; t<nbJours ; t++)
+					sortie.writeShort(affectation[t]);
+			}
+		}
+		finally{
+			sortie.close();
+		}
+	}
+
+	private static void ecrireNoms(DataOutputStream sortie, String[] noms) throws IOException {
+		sortie.writeInt(noms.length);
+		for(String nom : noms)
+			sortie.writeUTF(nom);
+	}
+
+	/**
+	 * @param flux export binaire compressé écrit par ecrireBinaire, fermé après lecture
+	 * @return l'export relu
+	 */
+	public static ExportPlanning lireBinaire(InputStream flux) throws IOException {
+		DataInputStream entree = new DataInputStream(new BufferedInputStream(new GZIPInputStream(flux)));
+		try{
+			if(entree.readInt() != MAGIQUE)
+				throw new IOException("Ce n'est pas un export binaire de planning");
+			int version = entree.readInt();
+			if(version != VERSION)
+				throw new IOException("Version d'export inconnue : " + version);
+			int nbInternes = entree.readInt();
+			int nbJours = entree.readInt();
+			int objectif = entree.readInt();
+			double temps = entree.readDouble();
+			long debut = entree.readLong();
+			String[] nomServices = lireNoms(entree);
+			String[] nomAstreintes = lireNoms(entree);
+			int[][] affectations = new int[nomServices.length + nomAstreintes.length][nbJours];
+			for(int[] affectation : affectations){
+				for(int t=0 ; t<nbJours ; t++)
+					affectation[t] = entree.readShort();
+			}
+			ExportPlanning export = new ExportPlanning(nomServices, nomAstreintes, nbInternes, nbJours, objectif, temps, affectations);
+			if(debut != Long.MIN_VALUE)
+				export.setDebut(new Date(debut));
+			return export;
+		}
+		finally{
+			entree.close();
+		}
+	}
+
+	private static String[] lireNoms(DataInputStream entree) throws IOException {
+		String[] noms = new String[entree.readInt()];
+		for(int k=0 ; k<noms.length ; k++)
+			noms[k] = entree.readUTF();
+		return noms;
+	}
+
+	/**
+	 * @return les dates des jours au format aaaa-mm-jj, null sans date de début
+	 */
+	private String[] joursIso(){
+		if(joursIso == null && debut != null)
+			joursIso = dates("yyyy-MM-dd", nbJours);
+		return joursIso;
+	}
+
+	/**
+	 * @return les dates des premiers jours au format donné
+	 */
+	private String[] dates(String motif, int nombre){
+		SimpleDateFormat format = format(motif);
+		String[] dates = new String[nombre];
+		for(int t=0 ; t<nombre ; t++)
+			dates[t] = format.format(new Date(debut.getTime() + t * MS_PAR_JOUR));
+		return dates;
+	}
+
+	private static SimpleDateFormat format(String motif){
+		SimpleDateFormat format = new SimpleDateFormat(motif);
+		format.setTimeZone(TimeZone.getTimeZone("UTC"));
+		return format;
+	}
+}
@@ -0,0 +1,420 @@
+package fr.brandon.planning;
+
+import java.util.Random;
+
+/**
+ * Générateur d'instances de planning aléatoires, reproductibles à graine égale.
+ *
+ * Pour garantir qu'une instance est faisable, le générateur construit d'abord un planning respectant toutes les règles,
+ * puis ne tire les indisponibilités fortes, inaptitudes et incompatibilités que là où elles ne le contredisent pas. La
+ * règle VD n'est donnée qu'aux internes dont le planning construit la respecte, et les écarts tolérés sont augmentés si
+ * nécessaire pour que ce planning soit équilibré.
+ *
+ * @author Brandon Gommard
+ */
+public class GenerateurInstances {
+
+	private static final String[] NOMS_SERVICES = { "MAT", "SAMU", "BLOC" };
+	private static final int[] JOURS_EQUILIBRES = { SolveurPlanning.JEUDI, SolveurPlanning.SAMEDI, SolveurPlanning.DIMANCHE };
+	//// nombre de tentatives de construction d'un planning faisable avant d'abandonner
+	private static final int NB_ESSAIS = 100;
+
+	private int nbInternes = 10;
+	private int nbJours = 28;
+	private int nbServices = 3;
+	private int nbAstreintes = 1;
+	private int ecartGardes = 1;
+	private int ecartAstreintes = 2;
+	private double densiteIndispoForte = 0.05;
+	private double densiteIndispoSouple = 0.05;
+	private double densiteConflits = 0.02;
+	private double densiteInaptitudes = 0.02;
+	private double proportionVD = 0.8;
+	private boolean faisable = true;
+	private long graine = 0;
+
+	public void setNbInternes(int nbInternes) {
+		this.nbInternes = nbInternes;
+	}
+
+	/**
+	 * @param nbJours durée du planning, qui commence un lundi
+	 */
+	public void setNbJours(int nbJours) {
+		this.nbJours = nbJours;
+	}
+
+	public void setNbServices(int nbServices) {
+		this.nbServices = nbServices;
+	}
+
+	public void setNbAstreintes(int nbAstreintes) {
+		this.nbAstreintes = nbAstreintes;
+	}
+
+	/**
+	 * @param ecartGardes écart toléré sur les gardes, augmenté si besoin pour une instance faisable
+	 */
+	public void setEcartGardes(int ecartGardes) {
+		this.ecartGardes = ecartGardes;
+	}
+
+	/**
+	 * @param ecartAstreintes écart toléré sur les astreintes, augmenté si besoin pour une instance faisable
+	 */
+	public void setEcartAstreintes(int ecartAstreintes) {
+		this.ecartAstreintes = ecartAstreintes;
+	}
+
+	/**
+	 * @param densite probabilité d'une indisponibilité forte pour un interne et un jour
+	 */
+	public void setDensiteIndispoForte(double densite) {
+		this.densiteIndispoForte = densite;
+	}
+
+	/**
+	 * @param densite probabilité d'une indisponibilité souple pour un interne et un jour
+	 */
+	public void setDensiteIndispoSouple(double densite) {
+		this.densiteIndispoSouple = densite;
+	}
+
+	/**
+	 * @param densite probabilité que deux internes ne puissent pas travailler ensemble
+	 */
+	public void setDensiteConflits(double densite) {
+		this.densiteConflits = densite;
+	}
+
+	/**
+	 * @param densite probabilité qu'un interne ne soit pas apte à une garde d'un service un jour donné
+	 */
+	public void setDensiteInaptitudes(double densite) {
+		this.densiteInaptitudes = densite;
+	}
+
+	/**
+	 * @param proportion proportion d'internes qui respectent la règle VD
+	 */
+	public void setProportionVD(double proportion) {
+		this.proportionVD = proportion;
+	}
+
+	/**
+	 * @param faisable true pour garantir que l'instance admet au moins un planning
+	 */
+	public void setFaisable(boolean faisable) {
+		this.faisable = faisable;
+	}
+
+	public void setGraine(long graine) {
+		this.graine = graine;
+	}
+
+	/**
+	 * @return une nouvelle instance, toujours la même pour des paramètres et une graine donnés
+	 */
+	public InstancePlanning generer(){
+		if(nbInternes < 1 || nbJours < 1 || nbServices < 1 || nbAstreintes < 0)
+			throw new IllegalArgumentException("Dimensions invalides : " + nbInternes + " internes, " + nbJours + " jours, "
+					+ nbServices + " services, " + nbAstreintes + " astreintes");
+		Random random = new Random(graine);
+		String[] nomServices = new String[nbServices];
+		for(int iService=0 ; iService<nbServices ; iService++){
+			nomServices[iService] = iService < NOMS_SERVICES.length ? NOMS_SERVICES[iService] : "SERVICE" + iService;
+		}
+
+		//// planning construit, interne de garde pour chaque jour et service, d'astreinte pour chaque jour et astreinte
+		int[][] gardes = null;
+		int[][] astreintes = null;
+		if(faisable){
+			for(int essai=0 ; essai<NB_ESSAIS && gardes == null ; essai++){
+				astreintes = planterAstreintes(random);
+				if(astreintes != null)
+					gardes = planterGardes(random, astreintes, nomServices);
+			}
+			if(gardes == null)
+				throw new IllegalStateException("Impossible de construire un planning faisable avec " + nbInternes
+						+ " internes pour " + nbServices + " services et " + nbAstreintes + " astreintes");
+		}
+
+		boolean[][] occupation = new boolean[nbInternes][nbJours];
+		boolean[][] dAstreinte = new boolean[nbInternes][nbJours];
+		if(faisable){
+			for(int t=0 ; t<nbJours ; t++){
+				for(int iService=0 ; iService<nbServices ; iService++){
+					occupation[gardes[t][iService]][t] = true;
+				}
+				for(int iAstreinte=0 ; iAstreinte<nbAstreintes ; iAstreinte++){
+					dAstreinte[astreintes[t][iAstreinte]][t] = true;
+				}
+			}
+		}
+
+		String[] nomAstreintes = new String[nbAstreintes];
+		for(int iAstreinte=0 ; iAstreinte<nbAstreintes ; iAstreinte++){
+			nomAstreintes[iAstreinte] = nbAstreintes == 1 ? "AST" : "AST" + (iAstreinte + 1);
+		}
+
+		boolean[] respectVD = new boolean[nbInternes];
+		boolean[][] indispoForte = new boolean[nbInternes][nbJours];
+		boolean[][] indispoSouple = new boolean[nbInternes][nbJours];
+		boolean[][][] aptitude = new boolean[nbServices][nbInternes][nbJours];
+		for(int iInterne=0 ; iInterne<nbInternes ; iInterne++){
+			respectVD[iInterne] = random.nextDouble() < proportionVD && respecteVD(occupation[iInterne]);
+			for(int t=0 ; t<nbJours ; t++){
+				boolean libre = !occupation[iInterne][t] && !dAstreinte[iInterne][t];
+				indispoForte[iInterne][t] = random.nextDouble() < densiteIndispoForte && libre;
+				indispoSouple[iInterne][t] = random.nextDouble() < densiteIndispoSouple;
+				for(int iService=0 ; iService<nbServices ; iService++){
+					boolean plantee = faisable && gardes[t][iService] == iInterne;
+					aptitude[iService][iInterne][t] = random.nextDouble() >= densiteInaptitudes || plantee;
+				}
+			}
+		}
+
+		boolean[][] peutTravaillerEnsemble = new boolean[nbInternes][nbInternes];
+		for(int iInterne=0 ; iInterne<nbInternes ; iInterne++){
+			for(int jInterne=0 ; jInterne<nbInternes ; jInterne++){
+				peutTravaillerEnsemble[iInterne][jInterne] = true;
+			}
+		}
+		for(int iInterne=0 ; iInterne<nbInternes ; iInterne++){
+			for(int jInterne=iInterne+1 ; jInterne<nbInternes ; jInterne++){
+				if(random.nextDouble() < densiteConflits && !gardesEnsemble(occupation, iInterne, jInterne)){
+					peutTravaillerEnsemble[iInterne][jInterne] = false;
+					peutTravaillerEnsemble[jInterne][iInterne] = false;
+				}
+			}
+		}
+
+		int diffGardes = ecartGardes;
+		int diffAstreintes = ecartAstreintes;
+		if(faisable){
+			diffGardes = Math.max(diffGardes, ecartNecessaire(compterGardes(gardes, null, -1), nbServices*nbJours));
+			int[] samu = new int[nbServices];
+			int nbSamu = 0;
+			for(int iService=0 ; iService<nbServices ; iService++){
+				if("SAMU".equals(nomServices[iService])){
+					samu[nbSamu] = iService;
+					nbSamu++;
+				}
+			}
+			if(nbSamu > 0){
+				int[] servicesSamu = new int[nbSamu];
+				System.arraycopy(samu, 0, servicesSamu, 0, nbSamu);
+				diffGardes = Math.max(diffGardes, ecartNecessaire(compterGardes(gardes, servicesSamu, -1), nbSamu*nbJours));
+			}
+			for(int jour : JOURS_EQUILIBRES){
+				int total = 0;
+				for(int t=jour ; t<nbJours ; t+=SolveurPlanning.NB_JOURS_SEMAINE){
+					total += nbServices;
+				}
+				diffGardes = Math.max(diffGardes, ecartNecessaire(compterGardes(gardes, null, jour), total));
+			}
+			diffAstreintes = Math.max(diffAstreintes, ecartNecessaire(compterGardes(astreintes, null, -1), nbAstreintes*nbJours));
+		}
+
+		return new InstancePlanning(nbServices, nbAstreintes, nbInternes, nbJours, diffGardes, diffAstreintes, nomServices,
+				nomAstreintes, respectVD, indispoForte, indispoSouple, peutTravaillerEnsemble, aptitude);
+	}
+
+	/**
+	 * Attribue les astreintes par blocs lundi-mardi, mercredi-jeudi et vendredi-dimanche, à l'interne qui en a le moins
+	 * @return l'interne d'astreinte pour chaque jour et chaque astreinte, null en cas d'échec
+	 */
+	private int[][] planterAstreintes(Random random){
+		int[][] astreintes = new int[nbJours][nbAstreintes];
+		boolean[][] occupe = new boolean[nbJours][nbInternes];
+		int[] nbAstreintesInterne = new int[nbInternes];
+		for(int iAstreinte=0 ; iAstreinte<nbAstreintes ; iAstreinte++){
+			int t = 0;
+			while(t < nbJours){
+				int fin = Math.min(nbJours, t + longueurBloc(t % SolveurPlanning.NB_JOURS_SEMAINE));
+				int choisi = -1;
+				for(int iInterne : melanger(random)){
+					boolean libre = true;
+					for(int jour=t ; jour<fin ; jour++){
+						libre &= !occupe[jour][iInterne];
+					}
+					if(libre && (choisi < 0 || nbAstreintesInterne[iInterne] < nbAstreintesInterne[choisi]))
+						choisi = iInterne;
+				}
+				if(choisi < 0)
+					return null;
+				for(int jour=t ; jour<fin ; jour++){
+					astreintes[jour][iAstreinte] = choisi;
+					occupe[jour][choisi] = true;
+					nbAstreintesInterne[choisi]++;
+				}
+				t = fin;
+			}
+		}
+		return astreintes;
+	}
+
+	private static int longueurBloc(int jourSemaine){
+		switch(jourSemaine){
+		case SolveurPlanning.LUNDI:
+		case SolveurPlanning.MERCREDI:
+			return 2;
+		case SolveurPlanning.VENDREDI:
+			return 3;
+		default:
+			return 1;
+		}
+	}
+
+	/**
+	 * Attribue les gardes jour par jour en respectant le repos, les enchainements désagréables et les astreintes. Le
+	 * dimanche, les internes de garde le vendredi passent en premier pour respecter VD. Sinon la garde va à l'interne
+	 * le moins en avance sur la moyenne dans les catégories équilibrées qu'elle touche : toutes les gardes, les gardes
+	 * SAMU, et les jeudis, samedis ou dimanches, le vendredi comptant avec le dimanche.
+	 * @return l'interne de garde pour chaque jour et chaque service, null en cas d'échec
+	 */
+	private int[][] planterGardes(Random random, int[][] astreintes, String[] nomServices){
+		int[][] gardes = new int[nbJours][nbServices];
+		boolean[][] occupation = new boolean[nbInternes][nbJours];
+		int[] nbGardes = new int[nbInternes];
+		int[] nbGardesSamu = new int[nbInternes];
+		int[][] nbGardesJour = new int[SolveurPlanning.NB_JOURS_SEMAINE][nbInternes];
+		int totalSamu = 0;
+		int[] totalJour = new int[SolveurPlanning.NB_JOURS_SEMAINE];
+		for(int t=0 ; t<nbJours ; t++){
+			int jourSemaine = t % SolveurPlanning.NB_JOURS_SEMAINE;
+			boolean jourEquilibre = false;
+			for(int jour : JOURS_EQUILIBRES){
+				jourEquilibre |= jour == jourSemaine;
+			}
+			boolean[] dAstreinte = new boolean[nbInternes];
+			for(int iAstreinte=0 ; iAstreinte<nbAstreintes ; iAstreinte++){
+				dAstreinte[astreintes[t][iAstreinte]] = true;
+			}
+			for(int iService=0 ; iService<nbServices ; iService++){
+				boolean samu = "SAMU".equals(nomServices[iService]);
+				double moyenne = (double) (t*nbServices + iService) / nbInternes;
+				int choisi = -1;
+				boolean choisiVD = false;
+				double meilleureAvance = 0;
+				for(int iInterne : melanger(random)){
+					if(dAstreinte[iInterne] || occupation[iInterne][t])
+						continue;
+					if(t >= 1 && occupation[iInterne][t-1])
+						continue;
+					if(t >= 4 && occupation[iInterne][t-2] && occupation[iInterne][t-4])
+						continue;
+					boolean vd = jourSemaine == SolveurPlanning.DIMANCHE && occupation[iInterne][t-2];
+					double avance = nbGardes[iInterne] - moyenne;
+					if(samu)
+						avance = Math.max(avance, nbGardesSamu[iInterne] - (double) totalSamu / nbInternes);
+					if(jourEquilibre)
+						avance = Math.max(avance, nbGardesJour[jourSemaine][iInterne] - (double) totalJour[jourSemaine] / nbInternes);
+					// une garde le vendredi amène en priorité la garde du dimanche
+					if(jourSemaine == SolveurPlanning.VENDREDI)
+						avance = Math.max(avance, nbGardesJour[SolveurPlanning.DIMANCHE][iInterne]
+								- (double) totalJour[SolveurPlanning.DIMANCHE] / nbInternes);
+					if(choisi < 0 || (vd && !choisiVD) || (vd == choisiVD && avance < meilleureAvance)){
+						choisi = iInterne;
+						choisiVD = vd;
+						meilleureAvance = avance;
+					}
+				}
+				if(choisi < 0)
+					return null;
+				gardes[t][iService] = choisi;
+				occupation[choisi][t] = true;
+				nbGardes[choisi]++;
+				if(samu){
+					nbGardesSamu[choisi]++;
+					totalSamu++;
+				}
+				nbGardesJour[jourSemaine][choisi]++;
+				totalJour[jourSemaine]++;
+			}
+		}
+		return gardes;
+	}
+
+	private int[] melanger(Random random){
+		int[] ordre = new int[nbInternes];
+		for(int i=0 ; i<nbInternes ; i++){
+			ordre[i] = i;
+		}
+		for(int i=nbInternes-1 ; i>0 ; i--){
+			int j = random.nextInt(i + 1);
+			int tmp = ordre[i];
+			ordre[i] = ordre[j];
+			ordre[j] = tmp;
+		}
+		return ordre;
+	}
+
+	/**
+	 * @return true si l'interne est de garde le dimanche exactement quand il est de garde le vendredi
+	 */
+	private boolean respecteVD(boolean[] occupation){
+		for(int t=SolveurPlanning.DIMANCHE ; t<nbJours ; t+=SolveurPlanning.NB_JOURS_SEMAINE){
+			if(occupation[t] != occupation[t-2])
+				return false;
+		}
+		// vendredi en fin de période : le dimanche correspondant est hors du planning
+		return true;
+	}
+
+	private boolean gardesEnsemble(boolean[][] occupation, int iInterne, int jInterne){
+		for(int t=0 ; t<nbJours ; t++){
+			if(occupation[iInterne][t] && occupation[jInterne][t])
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @param affectation interne affecté pour chaque jour et chaque service ou astreinte
+	 * @param colonnes services ou astreintes à compter, toutes si null
+	 * @param jourSemaine jour de la semaine à compter, tous si négatif
+	 * @return le nombre de gardes de chaque interne
+	 */
+	private int[] compterGardes(int[][] affectation, int[] colonnes, int jourSemaine){
+		int[] compteurs = new int[nbInternes];
+		for(int t=0 ; t<nbJours ; t++){
+			if(jourSemaine >= 0 && t % SolveurPlanning.NB_JOURS_SEMAINE != jourSemaine)
+				continue;
+			if(colonnes == null){
+				for(int interne : affectation[t]){
+					compteurs[interne]++;
+				}
+			}
+			else{
+				for(int colonne : colonnes){
+					compteurs[affectation[t][colonne]]++;
+				}
+			}
+		}
+		return compteurs;
+	}
+
+	/**
+	 * @return le plus petit écart pour lequel ces compteurs respectent l'équilibre dans les deux modes
+	 */
+	private int ecartNecessaire(int[] compteurs, int total){
+		int min = Integer.MAX_VALUE;
+		int max = Integer.MIN_VALUE;
+		for(int compteur : compteurs){
+			min = Math.min(min, compteur);
+			max = Math.max(max, compteur);
+		}
+		int ecart = max - min;
+		while(!dansLesBornes(ModeEquilibre.THEORIQUE, min, max, total, ecart)
+				|| !dansLesBornes(ModeEquilibre.ECART, min, max, total, ecart)){
+			ecart++;
+		}
+		return ecart;
+	}
+
+	private boolean dansLesBornes(ModeEquilibre mode, int min, int max, int total, int ecart){
+		int[] bornes = SolveurPlanning.bornesEquilibre(mode, total, nbInternes, ecart);
+		return bornes[0] <= min && max <= bornes[1];
+	}
+}
@@ -0,0 +1,75 @@
+package fr.brandon.planning;
+
+/**
+ * Planification d'une longue période par fenêtres successives : chaque fenêtre est résolue puis figée, et ses
+ * gardes sont reportées sur la fenêtre suivante (équilibre cumulé et enchaînements à la jonction des fenêtres).
+ *
+ * Les fenêtres font un nombre entier de semaines, la dernière pouvant être plus courte, et commencent donc toutes
+ * un lundi comme la période.
+ *
+ * @author Brandon Gommard
+ */
+public class HorizonGlissant {
+
+	private final SolveurPlanning modele;
+	private final int nbJoursFenetre;
+	private ReportPlanning report;
+
+	/**
+	 * @param modele le planning de toute la période, dont les options sont reprises pour chaque fenêtre. Son report,
+	 * s'il en a un, est celui de la première fenêtre.
+	 * @param nbSemainesFenetre nombre de semaines de chaque fenêtre
+	 */
+	public HorizonGlissant(SolveurPlanning modele, int nbSemainesFenetre){
+		if(nbSemainesFenetre < 1)
+			throw new IllegalArgumentException("Une fenêtre doit contenir au moins une semaine");
+		this.modele = modele;
+		this.nbJoursFenetre = nbSemainesFenetre * SolveurPlanning.NB_JOURS_SEMAINE;
+	}
+
+	/**
+	 * Résout les fenêtres l'une après l'autre
+	 * @return le planning de toute la période, dont l'objectif et le temps sont la somme de ceux des fenêtres,
+	 * null si une fenêtre n'a pas de solution
+	 */
+	public SolutionPlanning resoudre(){
+		int nbInternes = modele.getNbInternes();
+		int nbJours = modele.getNbJours();
+		boolean[][][] gardes = new boolean[modele.getNbServices()][nbInternes][nbJours];
+		boolean[][][] astreintes = new boolean[modele.getNbAstreintes()][nbInternes][nbJours];
+		int objectif = 0;
+		double temps = 0;
+
+		report = modele.getReport() != null ? modele.getReport() : new ReportPlanning(nbInternes);
+		for(int debut=0 ; debut<nbJours ; debut+=nbJoursFenetre){
+			int longueur = Math.min(nbJoursFenetre, nbJours - debut);
+			SolveurPlanning fenetre = modele.fenetre(debut, longueur);
+			fenetre.setNom(modele.getNom() + " j" + debut + "-" + (debut + longueur - 1));
+			fenetre.setReport(report);
+			fenetre.initialisation();
+			SolutionPlanning solution = fenetre.solve();
+			if(solution == null)
+				return null;
+
+			for(int iInterne=0 ; iInterne<nbInternes ; iInterne++){
+				for(int t=0 ; t<longueur ; t++){
+					for(int iService=0 ; iService<gardes.length ; iService++)
+						gardes[iService][iInterne][debut + t] = solution.estDeGarde(iService, iInterne, t);
+					for(int iAstreinte=0 ; iAstreinte<astreintes.length ; iAstreinte++)
+						astreintes[iAstreinte][iInterne][debut + t] = solution.estDAstreinte(iAstreinte, iInterne, t);
+				}
+			}
+			objectif += solution.getObjectif();
+			temps += solution.getTemps();
+			report = report.cumuler(solution, modele.getNomServices());
+		}
+		return new SolutionPlanning(gardes, astreintes, objectif, temps);
+	}
+
+	/**
+	 * @return le report de toutes les fenêtres résolues par le dernier resoudre(), à donner à la période suivante
+	 */
+	public ReportPlanning getReport() {
+		return report;
+	}
+}
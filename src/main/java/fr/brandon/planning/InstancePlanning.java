@@ -0,0 +1,104 @@
+package fr.brandon.planning;
+
+/**
+ * Données d'une instance de planning : dimensions, écarts tolérés, indisponibilités, incompatibilités et aptitudes.
+ *
+ * @author Brandon Gommard
+ */
+public class InstancePlanning {
+
+	private final int nbServices;
+	private final int nbAstreintes;
+	private final int nbInternes;
+	private final int nbJours;
+	private final int nbGardeEcart;
+	private final int nbAstreintesEcart;
+	private final String[] nomServices;
+	private final String[] nomAstreintes;
+	private final boolean[] VD;
+	private final boolean[][] indispoForte;
+	private final boolean[][] indispoSouple;
+	private final boolean[][] peutTravailEnsemble;
+	private final boolean[][][] aptitude;
+
+	/**
+	 * Les paramètres sont ceux du constructeur de SolveurPlanning
+	 */
+	public InstancePlanning(int services, int astreintes, int internes, int jours, int diffGardes, int diffAstreinte,
+							String[] nomService, String[] nomAstreinte, boolean[] respectVD, boolean[][] indispoForte,
+							boolean[][] indispoSouple, boolean[][] peutTravaillerEnsemble, boolean[][][] aptitude){
+		this.nbServices = services;
+		this.nbAstreintes = astreintes;
+		this.nbInternes = internes;
+		this.nbJours = jours;
+		this.nbGardeEcart = diffGardes;
+		this.nbAstreintesEcart = diffAstreinte;
+		this.nomServices = nomService;
+		this.nomAstreintes = nomAstreinte;
+		this.VD = respectVD;
+		this.indispoForte = indispoForte;
+		this.indispoSouple = indispoSouple;
+		this.peutTravailEnsemble = peutTravaillerEnsemble;
+		this.aptitude = aptitude;
+	}
+
+	/**
+	 * @return un nouveau planning sur cette instance, pas encore initialisé
+	 */
+	public SolveurPlanning creerSolveur(){
+		return new SolveurPlanning(nbServices, nbAstreintes, nbInternes, nbJours, nbGardeEcart, nbAstreintesEcart,
+				nomServices, nomAstreintes, VD, indispoForte, indispoSouple, peutTravailEnsemble, aptitude);
+	}
+
+	public int getNbServices() {
+		return nbServices;
+	}
+
+	public int getNbAstreintes() {
+		return nbAstreintes;
+	}
+
+	public int getNbInternes() {
+		return nbInternes;
+	}
+
+	public int getNbJours() {
+		return nbJours;
+	}
+
+	public int getNbGardeEcart() {
+		return nbGardeEcart;
+	}
+
+	public int getNbAstreintesEcart() {
+		return nbAstreintesEcart;
+	}
+
+	public String[] getNomServices() {
+		return nomServices;
+	}
+
+	public String[] getNomAstreintes() {
+		return nomAstreintes;
+	}
+
+	public boolean[] getVD() {
+		return VD;
+	}
+
+	public boolean[][] getIndispoForte() {
+		return indispoForte;
+	}
+
+	public boolean[][] getIndispoSouple() {
+		return indispoSouple;
+	}
+
+	public boolean[][] getPeutTravailEnsemble() {
+		return peutTravailEnsemble;
+	}
+
+	public boolean[][][] getAptitude() {
+		return aptitude;
+	}
+}
@@ -0,0 +1,100 @@
+package fr.brandon.planning;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Classes d'internes interchangeables d'un planning.
+ *
+ * Deux internes sont interchangeables s'ils ont la même règle VD, les mêmes indisponibilités fortes et souples,
+ * les mêmes aptitudes, les mêmes conflits avec les autres internes et le même report. Échanger leurs gardes et
+ * astreintes dans une solution donne alors une autre solution de même objectif.
+ *
+ * @author Brandon Gommard
+ */
+public class InternesEquivalents {
+
+	private final SolveurPlanning planning;
+	private final CouvertureCliques conflits;
+	//// lignes des internes rangées en bits, comparées mot par mot
+	private final TableauBits indispoForte;
+	private final TableauBits indispoSouple;
+	private final TableauBits[] aptitude;
+
+	/**
+	 * @param planning planning dont les internes sont comparés
+	 */
+	public InternesEquivalents(SolveurPlanning planning){
+		this.planning = planning;
+		this.conflits = new CouvertureCliques(planning.getPeutTravailEnsemble());
+		this.indispoForte = TableauBits.depuis(planning.getIndispoForte());
+		this.indispoSouple = TableauBits.depuis(planning.getIndispoSouple());
+		this.aptitude = new TableauBits[planning.getNbServices()];
+		for(int iService=0 ; iService<aptitude.length ; iService++)
+			aptitude[iService] = TableauBits.depuis(planning.getAptitude()[iService]);
+	}
+
+	/**
+	 * Chaque interne rejoint la première classe dont il est interchangeable avec tous les membres
+	 * @return les classes d'au moins deux internes, chacune donnée par les indices croissants de ses internes
+	 */
+	public List<int[]> calculer(){
+		List<List<Integer>> classes = new ArrayList<List<Integer>>();
+		for(int iInterne=0 ; iInterne<planning.getNbInternes() ; iInterne++){
+			List<Integer> classeInterne = null;
+			for(List<Integer> classe : classes){
+				boolean equivalent = true;
+				for(int membre : classe)
+					equivalent &= sontEquivalents(membre, iInterne);
+				if(equivalent){
+					classeInterne = classe;
+					break;
+				}
+			}
+			if(classeInterne == null){
+				classeInterne = new ArrayList<Integer>();
+				classes.add(classeInterne);
+			}
+			classeInterne.add(iInterne);
+		}
+
+		List<int[]> resultat = new ArrayList<int[]>();
+		for(List<Integer> classe : classes){
+			if(classe.size() < 2)
+				continue;
+			int[] internes = new int[classe.size()];
+			for(int k=0 ; k<internes.length ; k++)
+				internes[k] = classe.get(k);
+			resultat.add(internes);
+		}
+		return resultat;
+	}
+
+	/**
+	 * @return true si les deux internes peuvent être échangés dans toute solution
+	 */
+	public boolean sontEquivalents(int iInterne, int jInterne){
+		if(planning.getVD()[iInterne] != planning.getVD()[jInterne]
+				|| !indispoForte.lignesEgales(iInterne, jInterne) || !indispoSouple.lignesEgales(iInterne, jInterne))
+			return false;
+		for(TableauBits aptitudeService : aptitude){
+			if(!aptitudeService.lignesEgales(iInterne, jInterne))
+				return false;
+		}
+		for(int kInterne=0 ; kInterne<planning.getNbInternes() ; kInterne++){
+			if(kInterne != iInterne && kInterne != jInterne
+					&& conflits.estEnConflit(iInterne, kInterne) != conflits.estEnConflit(jInterne, kInterne))
+				return false;
+		}
+		ReportPlanning report = planning.getReport();
+		if(report == null)
+			return true;
+		return report.getGardes()[iInterne] == report.getGardes()[jInterne]
+				&& report.getGardesSamu()[iInterne] == report.getGardesSamu()[jInterne]
+				&& report.getGardesJeudi()[iInterne] == report.getGardesJeudi()[jInterne]
+				&& report.getGardesSamedi()[iInterne] == report.getGardesSamedi()[jInterne]
+				&& report.getGardesDimanche()[iInterne] == report.getGardesDimanche()[jInterne]
+				&& report.getAstreintes()[iInterne] == report.getAstreintes()[jInterne]
+				&& report.getHistorique()[iInterne] == report.getHistorique()[jInterne];
+	}
+}
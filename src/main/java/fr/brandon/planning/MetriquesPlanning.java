@@ -0,0 +1,219 @@
+package fr.brandon.planning;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import solver.Solver;
+import solver.search.measure.IMeasures;
+
+/**
+ * Métriques d'une résolution de planning : taille et temps de construction de chaque règle du modèle, statistiques
+ * de la recherche, temps jusqu'à la première et à la meilleure solution, et mémoire allouée.
+ *
+ * La mémoire est comptée par thread, celui qui construit chaque règle puis celui qui lance la recherche : les
+ * plannings résolus en même temps sur d'autres threads ne s'y ajoutent pas.
+ *
+ * Elles sont remplies par SolveurPlanning pendant initialisation() et solve(), puis données aux puits de métriques.
+ *
+ * @author Brandon Gommard
+ */
+public class MetriquesPlanning implements MetriquesPlanningMXBean {
+
+	private final String nom;
+	private final Map<String, Long> variablesParRegle = new LinkedHashMap<String, Long>();
+	private final Map<String, Long> contraintesParRegle = new LinkedHashMap<String, Long>();
+	private final Map<String, Double> tempsParRegle = new LinkedHashMap<String, Double>();
+	private long nbVariables;
+	private long nbContraintes;
+	private double tempsConstruction;
+
+	private long nbNoeuds;
+	private long nbEchecs;
+	private long nbRetours;
+	private long nbRedemarrages;
+	private double tempsResolution;
+	private double tempsPremiereSolution = -1;
+	private double tempsMeilleureSolution = -1;
+	private int objectif = -1;
+	private long memoireAllouee;
+
+	//// état du modèle à la fin de la règle précédente
+	private long marqueVariables;
+	private long marqueContraintes;
+	private long marqueTemps;
+	private long marqueMemoire;
+
+	/**
+	 * @param nom nom du planning
+	 */
+	MetriquesPlanning(String nom){
+		this.nom = nom;
+	}
+
+	/**
+	 * A appeler juste après la création du solveur
+	 */
+	void debutConstruction(Solver solveur){
+		marquer(solveur);
+	}
+
+	/**
+	 * Reprend la mesure à partir de l'état courant du modèle, sans l'attribuer à une règle
+	 */
+	void marquer(Solver solveur){
+		marqueVariables = solveur.getNbVars();
+		marqueContraintes = solveur.getNbCstrs();
+		marqueTemps = System.nanoTime();
+		marqueMemoire = octetsAlloues();
+	}
+
+	/**
+	 * @return les octets alloués par le thread courant depuis son démarrage, 0 si la JVM ne les compte pas
+	 */
+	private static long octetsAlloues(){
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if(threads instanceof com.sun.management.ThreadMXBean){
+			com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+			if(allocations.isThreadAllocatedMemorySupported() && allocations.isThreadAllocatedMemoryEnabled())
+				return allocations.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return 0;
+	}
+
+	/**
+	 * Attribue à la règle les variables, contraintes et le temps depuis la règle précédente
+	 */
+	void finRegle(String regle, Solver solveur){
+		long variables = solveur.getNbVars();
+		long contraintes = solveur.getNbCstrs();
+		long temps = System.nanoTime();
+		long memoire = octetsAlloues();
+		ajouter(variablesParRegle, regle, variables - marqueVariables);
+		ajouter(contraintesParRegle, regle, contraintes - marqueContraintes);
+		double duree = (temps - marqueTemps) / 1e6;
+		Double precedente = tempsParRegle.get(regle);
+		tempsParRegle.put(regle, precedente == null ? duree : precedente + duree);
+		nbVariables = variables;
+		nbContraintes = contraintes;
+		tempsConstruction += duree;
+		marqueVariables = variables;
+		marqueContraintes = contraintes;
+		marqueTemps = temps;
+		memoireAllouee += memoire - marqueMemoire;
+		marqueMemoire = memoire;
+	}
+
+	private static void ajouter(Map<String, Long> compteurs, String regle, long nombre){
+		Long precedent = compteurs.get(regle);
+		compteurs.put(regle, precedent == null ? nombre : precedent + nombre);
+	}
+
+	/**
+	 * A appeler à chaque solution améliorante
+	 */
+	void solution(SolutionPlanning solution){
+		if(tempsPremiereSolution < 0)
+			tempsPremiereSolution = solution.getTemps();
+		tempsMeilleureSolution = solution.getTemps();
+		objectif = solution.getObjectif();
+	}
+
+	/**
+	 * A appeler quand la recherche est terminée
+	 */
+	void finResolution(Solver solveur){
+		IMeasures mesures = solveur.getMeasures();
+		nbNoeuds = mesures.getNodeCount();
+		nbEchecs = mesures.getFailCount();
+		nbRetours = mesures.getBackTrackCount();
+		nbRedemarrages = mesures.getRestartCount();
+		tempsResolution = mesures.getTimeCount();
+		//la recherche a été lancée sur ce thread depuis le dernier marquer
+		long memoire = octetsAlloues();
+		memoireAllouee += memoire - marqueMemoire;
+		marqueMemoire = memoire;
+	}
+
+	@Override
+	public String getNom() {
+		return nom;
+	}
+
+	@Override
+	public Map<String, Long> getVariablesParRegle() {
+		return Collections.unmodifiableMap(variablesParRegle);
+	}
+
+	@Override
+	public Map<String, Long> getContraintesParRegle() {
+		return Collections.unmodifiableMap(contraintesParRegle);
+	}
+
+	@Override
+	public Map<String, Double> getTempsParRegle() {
+		return Collections.unmodifiableMap(tempsParRegle);
+	}
+
+	@Override
+	public long getNbVariables() {
+		return nbVariables;
+	}
+
+	@Override
+	public long getNbContraintes() {
+		return nbContraintes;
+	}
+
+	@Override
+	public double getTempsConstruction() {
+		return tempsConstruction;
+	}
+
+	@Override
+	public long getNbNoeuds() {
+		return nbNoeuds;
+	}
+
+	@Override
+	public long getNbEchecs() {
+		return nbEchecs;
+	}
+
+	@Override
+	public long getNbRetours() {
+		return nbRetours;
+	}
+
+	@Override
+	public long getNbRedemarrages() {
+		return nbRedemarrages;
+	}
+
+	@Override
+	public double getTempsResolution() {
+		return tempsResolution;
+	}
+
+	@Override
+	public double getTempsPremiereSolution() {
+		return tempsPremiereSolution;
+	}
+
+	@Override
+	public double getTempsMeilleureSolution() {
+		return tempsMeilleureSolution;
+	}
+
+	@Override
+	public int getObjectif() {
+		return objectif;
+	}
+
+	@Override
+	public long getMemoireAllouee() {
+		return memoireAllouee;
+	}
+}
@@ -0,0 +1,70 @@
+package fr.brandon.planning;
+
+import java.util.Map;
+
+/**
+ * Métriques d'une résolution de planning exposées dans JMX
+ *
+ * @author Brandon Gommard
+ */
+public interface MetriquesPlanningMXBean {
+
+	String getNom();
+
+	/**
+	 * @return le nombre de variables créées par chaque règle, dans l'ordre de construction du modèle
+	 */
+	Map<String, Long> getVariablesParRegle();
+
+	/**
+	 * @return le nombre de contraintes posées par chaque règle, dans l'ordre de construction du modèle
+	 */
+	Map<String, Long> getContraintesParRegle();
+
+	/**
+	 * @return le temps de construction de chaque règle, en millisecondes
+	 */
+	Map<String, Double> getTempsParRegle();
+
+	long getNbVariables();
+
+	long getNbContraintes();
+
+	/**
+	 * @return le temps total de construction du modèle, en millisecondes
+	 */
+	double getTempsConstruction();
+
+	long getNbNoeuds();
+
+	long getNbEchecs();
+
+	long getNbRetours();
+
+	long getNbRedemarrages();
+
+	/**
+	 * @return le temps de résolution, en secondes
+	 */
+	double getTempsResolution();
+
+	/**
+	 * @return le temps jusqu'à la première solution en secondes, -1 si aucune
+	 */
+	double getTempsPremiereSolution();
+
+	/**
+	 * @return le temps jusqu'à la meilleure solution en secondes, -1 si aucune
+	 */
+	double getTempsMeilleureSolution();
+
+	/**
+	 * @return l'objectif de la meilleure solution, -1 si aucune
+	 */
+	int getObjectif();
+
+	/**
+	 * @return la mémoire allouée par les threads du planning pendant la construction et la résolution, en octets
+	 */
+	long getMemoireAllouee();
+}
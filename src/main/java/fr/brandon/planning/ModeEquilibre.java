@@ -0,0 +1,20 @@
+package fr.brandon.planning;
+
+/**
+ * Façon d'équilibrer les gardes (et astreintes) entre les internes
+ *
+ * @author Brandon Gommard
+ */
+public enum ModeEquilibre {
+
+	/**
+	 * Le nombre de gardes de chaque interne ne s'écarte pas de plus de l'écart toléré du nombre de gardes théorique
+	 * (nombre total de gardes divisé par le nombre d'internes)
+	 */
+	THEORIQUE,
+
+	/**
+	 * La différence entre l'interne qui a le plus de gardes et celui qui en a le moins ne dépasse pas l'écart toléré
+	 */
+	ECART
+}
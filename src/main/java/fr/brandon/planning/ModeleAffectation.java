@@ -0,0 +1,20 @@
+package fr.brandon.planning;
+
+/**
+ * Formulation du modèle de planification
+ *
+ * @author Brandon Gommard
+ */
+public enum ModeleAffectation {
+
+	/**
+	 * Une variable 0/1 par service, interne et jour, avec une somme égale à 1 par service et par jour
+	 */
+	BOOLEEN,
+
+	/**
+	 * Une variable entière par service et par jour dont la valeur est l'interne de garde, reliée aux variables 0/1,
+	 * un alldifferent par jour sur les gardes, et une garde différente de chaque astreinte du jour
+	 */
+	ENTIER
+}
@@ -0,0 +1,187 @@
+package fr.brandon.planning;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import solver.Solver;
+import solver.objective.ObjectiveManager;
+import solver.search.loop.monitors.IMonitorOpenNode;
+import solver.variables.IntVar;
+
+/**
+ * Portefeuille de solveurs : plusieurs copies du même planning sont résolues en parallèle, chacune sur son propre
+ * thread avec sa stratégie et sa graine.
+ *
+ * Le portefeuille rend soit la première solution trouvée par l'un des solveurs, soit la meilleure solution trouvée.
+ * En optimisation, chaque solveur ne cherche que des plannings meilleurs que le meilleur trouvé par tous, et le
+ * premier solveur dont la recherche se termine sans limite a prouvé l'optimum : il arrête les autres.
+ *
+ * @author Brandon Gommard
+ */
+public class PortefeuillePlanning {
+
+	private final SolveurPlanning modele;
+	private final int nbSolveurs;
+	private StrategieRecherche[] strategies = StrategiesPredefinies.values();
+	private long graine = 0;
+	private boolean premiereSolution = false;
+	private long limiteTemps = 0;
+
+	//// partagés entre les threads, la meilleure solution protégée par this, et son objectif lu à chaque noeud
+	private SolutionPlanning meilleure;
+	private volatile int borne;
+	private volatile boolean arret;
+
+	/**
+	 * @param modele le planning à résoudre, dont les données et les options sont copiées pour chaque solveur
+	 * @param nbSolveurs nombre de solveurs lancés en parallèle
+	 */
+	public PortefeuillePlanning(SolveurPlanning modele, int nbSolveurs){
+		if(nbSolveurs < 1)
+			throw new IllegalArgumentException("Le portefeuille doit contenir au moins un solveur");
+		this.modele = modele;
+		this.nbSolveurs = nbSolveurs;
+	}
+
+	/**
+	 * @param strategies stratégies attribuées à tour de rôle aux solveurs, toutes les stratégies prédéfinies par défaut
+	 */
+	public void setStrategies(StrategieRecherche... strategies) {
+		this.strategies = strategies;
+	}
+
+	/**
+	 * @param graine graine du premier solveur, le solveur k utilise graine + k
+	 */
+	public void setGraine(long graine) {
+		this.graine = graine;
+	}
+
+	/**
+	 * @param premiereSolution true pour s'arrêter dès qu'un solveur a trouvé un planning
+	 */
+	public void setPremiereSolution(boolean premiereSolution) {
+		this.premiereSolution = premiereSolution;
+	}
+
+	/**
+	 * @param limiteTemps durée maximale de chaque solveur en millisecondes, 0 pour ne pas limiter
+	 */
+	public void setLimiteTemps(long limiteTemps) {
+		this.limiteTemps = limiteTemps;
+	}
+
+	/**
+	 * Lance les solveurs et attend qu'ils soient tous arrêtés
+	 * @return la première ou la meilleure solution trouvée, null si aucun solveur n'a trouvé de planning
+	 */
+	public SolutionPlanning resoudre(){
+		meilleure = null;
+		borne = Integer.MAX_VALUE;
+		arret = false;
+		ExecutorService executeur = Executors.newFixedThreadPool(nbSolveurs);
+		try{
+			List<Future<?>> resultats = new ArrayList<Future<?>>();
+			for(int k=0 ; k<nbSolveurs ; k++){
+				resultats.add(executeur.submit(new Resolution(k)));
+			}
+			for(Future<?> resultat : resultats){
+				resultat.get();
+			}
+		}
+		catch(InterruptedException e){
+			arret = true;
+			Thread.currentThread().interrupt();
+		}
+		catch(ExecutionException e){
+			arret = true;
+			throw new IllegalStateException("Un solveur du portefeuille a échoué", e.getCause());
+		}
+		finally{
+			executeur.shutdown();
+		}
+		return getMeilleure();
+	}
+
+	/**
+	 * @return la meilleure solution trouvée jusqu'ici
+	 */
+	public synchronized SolutionPlanning getMeilleure() {
+		return meilleure;
+	}
+
+	private synchronized void proposer(SolutionPlanning solution){
+		if(meilleure == null || solution.getObjectif() < meilleure.getObjectif()){
+			meilleure = solution;
+			borne = solution.getObjectif();
+		}
+		if(premiereSolution)
+			arret = true;
+	}
+
+	/**
+	 * Résolution d'une copie du planning par l'un des solveurs du portefeuille
+	 */
+	private class Resolution implements Runnable {
+
+		private final int numero;
+
+		Resolution(int numero){
+			this.numero = numero;
+		}
+
+		@Override
+		public void run() {
+			if(arret)
+				return;
+			SolveurPlanning planning = modele.copier();
+			//chaque copie publie ses métriques sous son propre nom
+			planning.setNom(modele.getNom() + " portefeuille " + numero);
+			planning.setStrategie(strategies[numero % strategies.length]);
+			planning.setGraine(graine + numero);
+			if(limiteTemps > 0)
+				planning.setLimiteTemps(limiteTemps);
+			planning.initialisation();
+
+			// des données impossibles le sont pour tous les solveurs, qui s'arrêtent sans modèle ni recherche
+			final Solver solveur = planning.getSolveur();
+			if(solveur == null){
+				arret = true;
+				return;
+			}
+			planning.ajouterEcouteur(new EcouteurSolutions() {
+				@Override
+				public void nouvelleSolution(SolutionPlanning solution) {
+					proposer(solution);
+				}
+			});
+			// les autres solveurs sont arrêtés depuis leur propre thread, au prochain noeud, et la meilleure solution 
+			// des autres devient la borne de la coupe posée à chaque décision
+			solveur.plugMonitor(new IMonitorOpenNode() {
+				@Override
+				public void beforeOpenNode() {
+					// le modèle minimise une variable entière, le gestionnaire brut du solveur est donc typé ainsi
+					@SuppressWarnings("unchecked")
+					ObjectiveManager<IntVar, Integer> objectif = solveur.getObjectiveManager();
+					if(arret)
+						solveur.getSearchLoop().reachLimit();
+					else if(borne < Integer.MAX_VALUE && objectif.isOptimization())
+						// la coupe n'est stricte qu'une fois que le solveur a trouvé sa propre solution
+						objectif.updateBestUB(solveur.getMeasures().getSolutionCount() > 0 ? borne : borne - 1);
+				}
+
+				@Override
+				public void afterOpenNode() {
+				}
+			});
+			planning.solve();
+			// une recherche terminée sans limite a prouvé qu'aucun planning ne fait mieux que la borne
+			if(!solveur.hasReachedLimit())
+				arret = true;
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package fr.brandon.planning;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Publie les métriques dans le serveur JMX de la plateforme, sous fr.brandon.planning:type=Metriques,name=nom du
+ * planning. Chaque résolution remplace les métriques précédentes du planning de même nom.
+ *
+ * @author Brandon Gommard
+ */
+public class PuitsJmx implements PuitsMetriques {
+
+	public static final String DOMAINE = "fr.brandon.planning";
+
+	@Override
+	public void publier(MetriquesPlanning metriques) {
+		MBeanServer serveur = ManagementFactory.getPlatformMBeanServer();
+		try{
+			ObjectName nom = nomJmx(metriques.getNom());
+			synchronized(PuitsJmx.class){
+				if(serveur.isRegistered(nom))
+					serveur.unregisterMBean(nom);
+				serveur.registerMBean(metriques, nom);
+			}
+		}
+		catch(JMException e){
+			throw new IllegalStateException("Impossible de publier les métriques de " + metriques.getNom() + " dans JMX", e);
+		}
+	}
+
+	/**
+	 * @return le nom JMX des métriques du planning
+	 */
+	public static ObjectName nomJmx(String nomPlanning) throws JMException {
+		return new ObjectName(DOMAINE + ":type=Metriques,name=" + ObjectName.quote(nomPlanning));
+	}
+}
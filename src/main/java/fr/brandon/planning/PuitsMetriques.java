@@ -0,0 +1,14 @@
+package fr.brandon.planning;
+
+/**
+ * Destination des métriques d'un planning, appelée à la fin de chaque SolveurPlanning.solve()
+ *
+ * @author Brandon Gommard
+ */
+public interface PuitsMetriques {
+
+	/**
+	 * @param metriques métriques de la construction et de la résolution qui vient de se terminer
+	 */
+	void publier(MetriquesPlanning metriques);
+}
@@ -0,0 +1,81 @@
+package fr.brandon.planning;
+
+/**
+ * Règles du planning qui peuvent être désactivées, par exemple pour chercher les règles responsables d'une
+ * instance sans solution. auPlus1GardeJour, qui définit l'occupation des internes, est toujours posée.
+ *
+ * @author Brandon Gommard
+ */
+public enum Regle {
+
+	/**
+	 * tjrs1PersonneDeGarde : chaque service a un interne de garde chaque jour
+	 */
+	COUVERTURE_GARDES,
+
+	/**
+	 * tjrsUneAstreinte : chaque astreinte a un interne chaque jour
+	 */
+	COUVERTURE_ASTREINTES,
+
+	/**
+	 * incompatibleGardeAstreinte : un interne de garde n'est pas d'astreinte le même jour
+	 */
+	INCOMPATIBLE_GARDE_ASTREINTE,
+
+	/**
+	 * equilibreGarde : équilibre du nombre de gardes entre les internes
+	 */
+	EQUILIBRE_GARDE,
+
+	/**
+	 * enchainementsGardes : un jour de repos le lendemain de chaque garde
+	 */
+	REPOS_LENDEMAIN,
+
+	/**
+	 * enchainementsGardes : pas de garde en t, t+2 et t+4
+	 */
+	ENCHAINEMENT_DESAGREABLE,
+
+	/**
+	 * enchainementsGardes : règle VD, garde le vendredi si et seulement si garde le dimanche, pour les internes qui
+	 * la respectent
+	 */
+	ENCHAINEMENT_VD,
+
+	/**
+	 * indisponibiliteForte : aucune garde sur une indisponibilité forte, désactivable aussi interne par interne
+	 */
+	INDISPONIBILITE_FORTE,
+
+	/**
+	 * estCapable : aucune garde dans un service où l'interne n'est pas apte
+	 */
+	EST_CAPABLE,
+
+	/**
+	 * gardeEnsemble : les internes qui ne peuvent pas travailler ensemble ne sont pas de garde le même jour
+	 */
+	GARDE_ENSEMBLE,
+
+	/**
+	 * groupementAstreintes : les astreintes sont données par blocs de jours
+	 */
+	GROUPEMENT_ASTREINTES,
+
+	/**
+	 * equilibreSamu : équilibre des gardes au SAMU
+	 */
+	EQUILIBRE_SAMU,
+
+	/**
+	 * equilibreJSD : équilibre des gardes du jeudi, du samedi et du dimanche
+	 */
+	EQUILIBRE_JSD,
+
+	/**
+	 * equilibreAstreinte : équilibre des astreintes
+	 */
+	EQUILIBRE_ASTREINTE
+}
@@ -0,0 +1,299 @@
+package fr.brandon.planning;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Réparation locale d'un planning après une absence de dernière minute.
+ *
+ * Seul un voisinage de l'absence est libéré : les jours d'absence plus ou moins un rayon, pour l'interne absent et
+ * les internes qui peuvent le remplacer. Le sous-problème ne porte que sur une fenêtre autour de ce voisinage : les
+ * jours qui la précèdent deviennent son report, ceux qui la suivent ne comptent que dans son équilibre, et ce qui
+ * n'est pas libre dans la fenêtre est fixé à la racine. Il est résolu en minimisant le nombre de gardes et
+ * astreintes changées avant les indisponibilités souples. Si le voisinage n'a pas de réparation, il est élargi,
+ * jusqu'à une nouvelle résolution de toute la période.
+ *
+ * Les réparations successives s'accumulent : chaque absence s'ajoute aux précédentes.
+ *
+ * @author Brandon Gommard
+ */
+public class ReparationPlanning {
+
+	//// rayon en jours des voisinages essayés, les deux premiers ne libérant que les remplaçants possibles
+	private static final int[] RAYONS = { 2, 4, 7, 14 };
+	private static final int NIVEAUX_REMPLACANTS = 2;
+	//// jours figés en fin de fenêtre : comme l'historique de l'automate, ils suffisent aux enchaînements des jours suivants
+	private static final int JOURS_JONCTION = 4;
+
+	private SolveurPlanning modele;
+	private SolutionPlanning solution;
+	private List<Changement> changements = new ArrayList<Changement>();
+	private int niveau;
+
+	/**
+	 * @param modele le planning, pas encore initialisé, dont les options sont reprises pour chaque réparation
+	 * @param solution la solution actuelle du planning
+	 */
+	public ReparationPlanning(SolveurPlanning modele, SolutionPlanning solution){
+		if(solution.getNbInternes() != modele.getNbInternes() || solution.getNbJours() != modele.getNbJours())
+			throw new IllegalArgumentException("La solution ne correspond pas au planning");
+		this.modele = modele;
+		this.solution = solution;
+	}
+
+	/**
+	 * Répare le planning après l'absence d'un interne
+	 * @param iInterne interne absent
+	 * @param debut premier jour d'absence
+	 * @param fin dernier jour d'absence
+	 * @return le planning réparé, null si même une nouvelle résolution de toute la période échoue. Le planning
+	 * et la solution actuels ne changent alors pas.
+	 */
+	public SolutionPlanning reparer(int iInterne, int debut, int fin){
+		if(debut < 0 || fin >= modele.getNbJours() || debut > fin)
+			throw new IllegalArgumentException("Absence hors de la période : " + debut + "-" + fin);
+		SolveurPlanning absence = modele.absence(iInterne, debut, fin);
+		absence.setNom(modele.getNom() + " réparation " + iInterne + " j" + debut + "-" + fin);
+		absence.setRechercheVoisinage(false);
+		for(niveau=0 ; niveau<=RAYONS.length ; niveau++){
+			SolutionPlanning reparee = niveau < RAYONS.length ? reparerFenetre(absence, iInterne, debut, fin)
+					: reparerPeriode(absence);
+			if(reparee != null){
+				changements = comparer(solution, reparee);
+				modele = absence;
+				solution = reparee;
+				return reparee;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * La fenêtre commence un lundi, comme toute période, et finit le dimanche qui suit les JOURS_JONCTION jours
+	 * après le voisinage, pour que les jours suivants soient comptés en semaines entières.
+	 * @return la solution réparée sur toute la période, null si le voisinage du niveau courant n'a pas de réparation
+	 */
+	private SolutionPlanning reparerFenetre(SolveurPlanning absence, int iInterne, int debut, int fin){
+		int nbJours = absence.getNbJours();
+		int debutFenetre = Math.max(0, debut - RAYONS[niveau]) / SolveurPlanning.NB_JOURS_SEMAINE
+				* SolveurPlanning.NB_JOURS_SEMAINE;
+		int semaines = (fin + RAYONS[niveau] + JOURS_JONCTION) / SolveurPlanning.NB_JOURS_SEMAINE + 1;
+		int finFenetre = Math.min(nbJours, semaines * SolveurPlanning.NB_JOURS_SEMAINE);
+		int longueur = finFenetre - debutFenetre;
+
+		ReportPlanning report = absence.getReport() != null ? absence.getReport() : new ReportPlanning(absence.getNbInternes());
+		if(debutFenetre > 0)
+			report = report.cumuler(solution.extraire(0, debutFenetre), absence.getNomServices());
+		if(finFenetre < nbJours)
+			report = report.compter(solution.extraire(finFenetre, nbJours - finFenetre), absence.getNomServices());
+		SolutionPlanning precedente = solution.extraire(debutFenetre, longueur);
+
+		SolveurPlanning planning = absence.fenetre(debutFenetre, longueur);
+		planning.setNom(absence.getNom() + " niveau " + niveau);
+		planning.setReport(report);
+		planning.setSolutionPrecedente(precedente);
+		planning.setPoidsChangements(poidsChangements(planning));
+		planning.setBriserSymetries(false);
+		planning.initialisation();
+		planning.figer(precedente, libres(planning, precedente, iInterne, debut - debutFenetre, fin - debutFenetre));
+		SolutionPlanning reparee = planning.solve();
+		planning.liberer();
+		if(reparee == null)
+			return null;
+
+		//hors de la fenêtre rien ne change, l'objectif y compte seulement les indisponibilités souples
+		int objectif = reparee.getObjectif();
+		for(int iService=0 ; iService<absence.getNbServices() ; iService++){
+			for(int i=0 ; i<absence.getNbInternes() ; i++){
+				for(int t=0 ; t<nbJours ; t++){
+					if((t < debutFenetre || t >= finFenetre) && solution.estDeGarde(iService, i, t)
+							&& absence.getIndispoSouple()[i][t])
+						objectif++;
+				}
+			}
+		}
+		return solution.remplacer(debutFenetre, reparee, objectif, reparee.getTemps());
+	}
+
+	/**
+	 * @return la solution d'une nouvelle résolution de toute la période, null si elle échoue
+	 */
+	private SolutionPlanning reparerPeriode(SolveurPlanning absence){
+		absence.setNom(absence.getNom() + " niveau " + niveau);
+		absence.setSolutionPrecedente(solution);
+		absence.setPoidsChangements(poidsChangements(absence));
+		absence.initialisation();
+		SolutionPlanning reparee = absence.solve();
+		absence.liberer();
+		return reparee;
+	}
+
+	/**
+	 * Un changement coûte plus que toutes les indisponibilités souples réunies, pour minimiser d'abord les changements
+	 */
+	private static int poidsChangements(SolveurPlanning planning){
+		int poids = 1;
+		for(boolean[] indispo : planning.getIndispoSouple()){
+			for(boolean indisponible : indispo){
+				if(indisponible)
+					poids += planning.getNbServices();
+			}
+		}
+		return poids;
+	}
+
+	/**
+	 * @param planning le sous-problème initialisé, sur une fenêtre dont precedente est la solution actuelle
+	 * @param debut premier jour d'absence dans la fenêtre
+	 * @param fin dernier jour d'absence dans la fenêtre
+	 * @return les cases laissées libres au niveau courant : les jours du rayon pour l'interne absent et ses
+	 * remplaçants possibles, ou pour tous les internes aux niveaux supérieurs
+	 */
+	private boolean[][] libres(SolveurPlanning planning, SolutionPlanning precedente, int iInterne, int debut, int fin){
+		int nbJours = planning.getNbJours();
+		boolean[] internesLibres = new boolean[planning.getNbInternes()];
+		if(niveau < NIVEAUX_REMPLACANTS)
+			remplacants(planning, precedente, iInterne, debut, fin, internesLibres);
+		else
+			Arrays.fill(internesLibres, true);
+
+		boolean[][] libres = new boolean[planning.getNbInternes()][nbJours];
+		for(int i=0 ; i<internesLibres.length ; i++){
+			if(internesLibres[i])
+				Arrays.fill(libres[i], Math.max(0, debut - RAYONS[niveau]), Math.min(nbJours, fin + RAYONS[niveau] + 1), true);
+		}
+		return libres;
+	}
+
+	/**
+	 * remplacants marque l'interne absent et les internes aptes et disponibles pour une de ses gardes pendant
+	 * l'absence. Une astreinte perdue peut être reprise par tous les internes.
+	 */
+	private void remplacants(SolveurPlanning planning, SolutionPlanning precedente, int iInterne, int debut, int fin,
+			boolean[] internesLibres){
+		internesLibres[iInterne] = true;
+		for(int t=debut ; t<=fin ; t++){
+			for(int iService=0 ; iService<planning.getNbServices() ; iService++){
+				if(!precedente.estDeGarde(iService, iInterne, t))
+					continue;
+				TableauBits possibles = planning.getPossibles(iService);
+				for(int i=possibles.suivant(t, 0) ; i>=0 ; i=possibles.suivant(t, i+1))
+					internesLibres[i] = true;
+			}
+			for(int iAstreinte=0 ; iAstreinte<planning.getNbAstreintes() ; iAstreinte++){
+				if(precedente.estDAstreinte(iAstreinte, iInterne, t))
+					Arrays.fill(internesLibres, true);
+			}
+		}
+	}
+
+	private static List<Changement> comparer(SolutionPlanning avant, SolutionPlanning apres){
+		List<Changement> changements = new ArrayList<Changement>();
+		for(int t=0 ; t<avant.getNbJours() ; t++){
+			for(int iInterne=0 ; iInterne<avant.getNbInternes() ; iInterne++){
+				for(int iService=0 ; iService<avant.getNbServices() ; iService++){
+					if(avant.estDeGarde(iService, iInterne, t) != apres.estDeGarde(iService, iInterne, t))
+						changements.add(new Changement(false, iService, iInterne, t, apres.estDeGarde(iService, iInterne, t)));
+				}
+				for(int iAstreinte=0 ; iAstreinte<avant.getNbAstreintes() ; iAstreinte++){
+					if(avant.estDAstreinte(iAstreinte, iInterne, t) != apres.estDAstreinte(iAstreinte, iInterne, t))
+						changements.add(new Changement(true, iAstreinte, iInterne, t, apres.estDAstreinte(iAstreinte, iInterne, t)));
+				}
+			}
+		}
+		return changements;
+	}
+
+	/**
+	 * @return les gardes et astreintes changées par la dernière réparation réussie, par jour
+	 */
+	public List<Changement> getChangements() {
+		return changements;
+	}
+
+	/**
+	 * @return le niveau du voisinage de la dernière réparation, de 0 (plus petit voisinage) à getNbNiveaux() - 1
+	 * (toute la période)
+	 */
+	public int getNiveau() {
+		return niveau;
+	}
+
+	/**
+	 * @return le nombre de niveaux de voisinage essayés, le dernier libérant toute la période
+	 */
+	public static int getNbNiveaux() {
+		return RAYONS.length + 1;
+	}
+
+	/**
+	 * @return le planning de la dernière réparation, libéré de son modèle, dont les données comptent toutes les
+	 * absences
+	 */
+	public SolveurPlanning getModele() {
+		return modele;
+	}
+
+	/**
+	 * @return la solution actuelle, avec toutes les absences réparées
+	 */
+	public SolutionPlanning getSolution() {
+		return solution;
+	}
+
+	/**
+	 * Garde ou astreinte d'un interne ajoutée ou retirée par une réparation
+	 */
+	public static class Changement {
+
+		private final boolean astreinte;
+		private final int indice;
+		private final int interne;
+		private final int jour;
+		private final boolean ajoute;
+
+		Changement(boolean astreinte, int indice, int interne, int jour, boolean ajoute){
+			this.astreinte = astreinte;
+			this.indice = indice;
+			this.interne = interne;
+			this.jour = jour;
+			this.ajoute = ajoute;
+		}
+
+		/**
+		 * @return true pour une astreinte, false pour une garde
+		 */
+		public boolean isAstreinte() {
+			return astreinte;
+		}
+
+		/**
+		 * @return l'indice du service ou de l'astreinte
+		 */
+		public int getIndice() {
+			return indice;
+		}
+
+		public int getInterne() {
+			return interne;
+		}
+
+		public int getJour() {
+			return jour;
+		}
+
+		/**
+		 * @return true si la garde ou l'astreinte est donnée à l'interne, false si elle lui est retirée
+		 */
+		public boolean isAjoute() {
+			return ajoute;
+		}
+
+		@Override
+		public String toString() {
+			return "j" + jour + " " + (astreinte ? "astreinte " : "service ") + indice + " : "
+					+ (ajoute ? "+" : "-") + "interne " + interne;
+		}
+	}
+}
@@ -0,0 +1,198 @@
+package fr.brandon.planning;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Report des périodes déjà planifiées sur la période suivante : nombre de gardes de chaque interne par catégorie
+ * d'équilibre, et occupation des 4 derniers jours pour les règles d'enchaînement.
+ *
+ * Les périodes commencent toujours un lundi.
+ *
+ * @author Brandon Gommard
+ */
+public class ReportPlanning {
+
+	private final int[] gardes;
+	private final int[] gardesSamu;
+	private final int[] gardesJeudi;
+	private final int[] gardesSamedi;
+	private final int[] gardesDimanche;
+	private final int[] astreintes;
+	private final int[] historique;
+
+	/**
+	 * Report vide, pour la première période
+	 * @param nbInternes nombre d'internes
+	 */
+	public ReportPlanning(int nbInternes){
+		this.gardes = new int[nbInternes];
+		this.gardesSamu = new int[nbInternes];
+		this.gardesJeudi = new int[nbInternes];
+		this.gardesSamedi = new int[nbInternes];
+		this.gardesDimanche = new int[nbInternes];
+		this.astreintes = new int[nbInternes];
+		this.historique = new int[nbInternes];
+	}
+
+	private ReportPlanning(ReportPlanning report){
+		this.gardes = report.gardes.clone();
+		this.gardesSamu = report.gardesSamu.clone();
+		this.gardesJeudi = report.gardesJeudi.clone();
+		this.gardesSamedi = report.gardesSamedi.clone();
+		this.gardesDimanche = report.gardesDimanche.clone();
+		this.astreintes = report.astreintes.clone();
+		this.historique = report.historique.clone();
+	}
+
+	/**
+	 * Report supposé de semaines entières dont les gardes de chaque catégorie sont réparties au mieux entre les
+	 * internes, le reste allant à ceux qui en ont le moins dans le report réel. L'historique de ces semaines est
+	 * inconnu et laissé vide.
+	 * @param depart report réel qui précède ces semaines
+	 * @param planning planning dont les semaines sont réparties
+	 * @param nbSemaines nombre de semaines supposées
+	 * @return le report réel suivi de la part équitable des nbSemaines semaines
+	 */
+	static ReportPlanning partEquitable(ReportPlanning depart, SolveurPlanning planning, int nbSemaines){
+		int nbServicesSamu = 0;
+		for(String nomService : planning.getNomServices()){
+			if("SAMU".equals(nomService))
+				nbServicesSamu++;
+		}
+		int nbJours = nbSemaines * SolveurPlanning.NB_JOURS_SEMAINE;
+		ReportPlanning report = new ReportPlanning(depart);
+		if(nbSemaines > 0)
+			Arrays.fill(report.historique, 0);
+		repartir(report.gardes, nbJours * planning.getNbServices());
+		repartir(report.gardesSamu, nbJours * nbServicesSamu);
+		repartir(report.gardesJeudi, nbSemaines * planning.getNbServices());
+		repartir(report.gardesSamedi, nbSemaines * planning.getNbServices());
+		repartir(report.gardesDimanche, nbSemaines * planning.getNbServices());
+		repartir(report.astreintes, nbJours * planning.getNbAstreintes());
+		return report;
+	}
+
+	/**
+	 * repartir ajoute à chaque interne sa part du total, le reste allant aux internes qui ont le moins
+	 */
+	private static void repartir(final int[] compteurs, int total){
+		Integer[] ordre = new Integer[compteurs.length];
+		for(int iInterne=0 ; iInterne<compteurs.length ; iInterne++)
+			ordre[iInterne] = iInterne;
+		Arrays.sort(ordre, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer i, Integer j) {
+				return Integer.compare(compteurs[i], compteurs[j]);
+			}
+		});
+		for(int k=0 ; k<ordre.length ; k++){
+			compteurs[ordre[k]] += total / compteurs.length + (k < total % compteurs.length ? 1 : 0);
+		}
+	}
+
+	/**
+	 * @param solution planning de la période qui suit celles de ce report, commençant un lundi
+	 * @param nomServices noms des services, pour repérer le SAMU
+	 * @return le report des périodes précédentes et de la période de la solution
+	 */
+	public ReportPlanning cumuler(SolutionPlanning solution, String[] nomServices){
+		return ajouter(solution, nomServices, true);
+	}
+
+	/**
+	 * Les compteurs d'équilibre ne dépendent pas de l'ordre des jours : une période qui suit celle à planifier peut
+	 * y être comptée comme si elle la précédait.
+	 * @param solution planning d'une période commençant un lundi
+	 * @param nomServices noms des services, pour repérer le SAMU
+	 * @return ce report dont les compteurs comptent aussi la période de la solution, avec le même historique
+	 */
+	ReportPlanning compter(SolutionPlanning solution, String[] nomServices){
+		return ajouter(solution, nomServices, false);
+	}
+
+	private ReportPlanning ajouter(SolutionPlanning solution, String[] nomServices, boolean suite){
+		ReportPlanning report = new ReportPlanning(this);
+		for(int iInterne=0 ; iInterne<solution.getNbInternes() ; iInterne++){
+			for(int t=0 ; t<solution.getNbJours() ; t++){
+				int garde = 0;
+				for(int iService=0 ; iService<solution.getNbServices() ; iService++){
+					if(solution.estDeGarde(iService, iInterne, t)){
+						garde = 1;
+						if("SAMU".equals(nomServices[iService]))
+							report.gardesSamu[iInterne]++;
+					}
+				}
+				report.gardes[iInterne] += garde;
+				switch(t % SolveurPlanning.NB_JOURS_SEMAINE){
+				case SolveurPlanning.JEUDI:
+					report.gardesJeudi[iInterne] += garde;
+					break;
+				case SolveurPlanning.SAMEDI:
+					report.gardesSamedi[iInterne] += garde;
+					break;
+				case SolveurPlanning.DIMANCHE:
+					report.gardesDimanche[iInterne] += garde;
+					break;
+				}
+				if(suite)
+					report.historique[iInterne] = AutomateGardes.historiqueSuivant(report.historique[iInterne], garde);
+
+				for(int iAstreinte=0 ; iAstreinte<solution.getNbAstreintes() ; iAstreinte++){
+					if(solution.estDAstreinte(iAstreinte, iInterne, t))
+						report.astreintes[iInterne]++;
+				}
+			}
+		}
+		return report;
+	}
+
+	/**
+	 * @return le nombre de gardes de chaque interne
+	 */
+	public int[] getGardes() {
+		return gardes;
+	}
+
+	/**
+	 * @return le nombre de gardes au SAMU de chaque interne
+	 */
+	public int[] getGardesSamu() {
+		return gardesSamu;
+	}
+
+	/**
+	 * @return le nombre de gardes le jeudi de chaque interne
+	 */
+	public int[] getGardesJeudi() {
+		return gardesJeudi;
+	}
+
+	/**
+	 * @return le nombre de gardes le samedi de chaque interne
+	 */
+	public int[] getGardesSamedi() {
+		return gardesSamedi;
+	}
+
+	/**
+	 * @return le nombre de gardes le dimanche de chaque interne
+	 */
+	public int[] getGardesDimanche() {
+		return gardesDimanche;
+	}
+
+	/**
+	 * @return le nombre d'astreintes de chaque interne
+	 */
+	public int[] getAstreintes() {
+		return astreintes;
+	}
+
+	/**
+	 * @return l'occupation des 4 derniers jours de chaque interne, le bit 0 correspondant au dernier jour
+	 */
+	public int[] getHistorique() {
+		return historique;
+	}
+}
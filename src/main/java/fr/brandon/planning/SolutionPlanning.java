@@ -0,0 +1,265 @@
+package fr.brandon.planning;
+
+import solver.variables.IntVar;
+
+/**
+ * Copie d'une solution du planning, indépendante du solveur qui l'a trouvée.
+ *
+ * La solution est rangée en bits, un bit par interne, jour et service ou astreinte, avec le nombre de gardes et
+ * d'astreintes de chaque interne : une fois la solution copiée, le planning peut libérer son modèle.
+ *
+ * @author Brandon Gommard
+ */
+public class SolutionPlanning {
+
+	private final int nbServices;
+	private final int nbAstreintes;
+	private final int nbInternes;
+	private final int nbJours;
+	//// une ligne par interne, et pour chaque jour un bit par service puis par astreinte : la colonne du service k
+	//// le jour t est t * (nbServices + nbAstreintes) + k
+	private final TableauBits activites;
+	//// compteurs[k][i] : nombre de gardes de l'interne i au service k, puis d'astreintes à l'astreinte k - nbServices
+	private final int[][] compteurs;
+	private final int objectif;
+	private final double temps;
+
+	/**
+	 * Copie la solution courante du planning, à appeler quand le solveur vient de trouver une solution
+	 * @param planning le planning en cours de résolution
+	 */
+	SolutionPlanning(SolveurPlanning planning){
+		this(planning.getNbServices(), planning.getNbAstreintes(), planning.getNbInternes(), planning.getNbJours(),
+				copier(planning), valeurObjectif(planning), planning.getSolveur().getMeasures().getTimeCount());
+	}
+
+	/**
+	 * @param gardes gardes de chaque service, interne et jour
+	 * @param astreintes astreintes de chaque astreinte, interne et jour
+	 * @param objectif nombre de gardes posées sur des indisponibilités souples
+	 * @param temps temps de résolution en secondes
+	 */
+	SolutionPlanning(boolean[][][] gardes, boolean[][][] astreintes, int objectif, double temps){
+		this(gardes.length, astreintes.length, nbInternes(gardes, astreintes), nbJours(gardes, astreintes),
+				ranger(gardes, astreintes), objectif, temps);
+	}
+
+	private SolutionPlanning(int nbServices, int nbAstreintes, int nbInternes, int nbJours, TableauBits activites,
+			int objectif, double temps){
+		this.nbServices = nbServices;
+		this.nbAstreintes = nbAstreintes;
+		this.nbInternes = nbInternes;
+		this.nbJours = nbJours;
+		this.activites = activites;
+		this.objectif = objectif;
+		this.temps = temps;
+		int nbActivites = nbServices + nbAstreintes;
+		this.compteurs = new int[nbActivites][nbInternes];
+		for(int iInterne=0 ; iInterne<nbInternes ; iInterne++){
+			for(int c=activites.suivant(iInterne, 0) ; c>=0 ; c=activites.suivant(iInterne, c + 1))
+				compteurs[c % nbActivites][iInterne]++;
+		}
+	}
+
+	private static int valeurObjectif(SolveurPlanning planning){
+		IntVar objectifCourant = planning.getObjectif();
+		return objectifCourant != null && objectifCourant.isInstantiated() ? objectifCourant.getValue() : 0;
+	}
+
+	private static TableauBits copier(SolveurPlanning planning){
+		int nbServices = planning.getNbServices();
+		int nbActivites = nbServices + planning.getNbAstreintes();
+		TableauBits activites = new TableauBits(planning.getNbInternes(), planning.getNbJours() * nbActivites);
+		copier(planning.getX(), 0, nbActivites, activites);
+		copier(planning.getY(), nbServices, nbActivites, activites);
+		return activites;
+	}
+
+	private static void copier(IntVar[][][] variables, int premier, int nbActivites, TableauBits activites){
+		for(int k=0 ; k<variables.length ; k++){
+			for(int iInterne=0 ; iInterne<variables[k].length ; iInterne++){
+				for(int t=0 ; t<variables[k][iInterne].length ; t++){
+					if(variables[k][iInterne][t].getValue() == 1)
+						activites.set(iInterne, t * nbActivites + premier + k, true);
+				}
+			}
+		}
+	}
+
+	private static TableauBits ranger(boolean[][][] gardes, boolean[][][] astreintes){
+		int nbActivites = gardes.length + astreintes.length;
+		int nbJours = nbJours(gardes, astreintes);
+		TableauBits activites = new TableauBits(nbInternes(gardes, astreintes), nbJours * nbActivites);
+		for(int k=0 ; k<nbActivites ; k++){
+			boolean[][] valeurs = k < gardes.length ? gardes[k] : astreintes[k - gardes.length];
+			for(int iInterne=0 ; iInterne<valeurs.length ; iInterne++){
+				for(int t=0 ; t<nbJours ; t++){
+					if(valeurs[iInterne][t])
+						activites.set(iInterne, t * nbActivites + k, true);
+				}
+			}
+		}
+		return activites;
+	}
+
+	private static int nbInternes(boolean[][][] gardes, boolean[][][] astreintes){
+		if(gardes.length > 0)
+			return gardes[0].length;
+		return astreintes.length > 0 ? astreintes[0].length : 0;
+	}
+
+	private static int nbJours(boolean[][][] gardes, boolean[][][] astreintes){
+		boolean[][] premier = gardes.length > 0 ? gardes[0] : astreintes.length > 0 ? astreintes[0] : new boolean[0][];
+		return premier.length > 0 ? premier[0].length : 0;
+	}
+
+	/**
+	 * @param debut premier jour extrait
+	 * @param longueur nombre de jours extraits
+	 * @return la solution restreinte à ces jours, avec le même objectif et le même temps
+	 */
+	SolutionPlanning extraire(int debut, int longueur){
+		int nbActivites = nbServices + nbAstreintes;
+		TableauBits extrait = new TableauBits(nbInternes, longueur * nbActivites);
+		for(int iInterne=0 ; iInterne<nbInternes ; iInterne++){
+			int fin = (debut + longueur) * nbActivites;
+			for(int c=activites.suivant(iInterne, debut * nbActivites) ; c>=0 && c<fin ; c=activites.suivant(iInterne, c + 1))
+				extrait.set(iInterne, c - debut * nbActivites, true);
+		}
+		return new SolutionPlanning(nbServices, nbAstreintes, nbInternes, longueur, extrait, objectif, temps);
+	}
+
+	/**
+	 * @param debut premier jour remplacé
+	 * @param fenetre solution sur les jours consécutifs remplacés
+	 * @param objectif objectif de la nouvelle solution
+	 * @param temps temps de résolution de la nouvelle solution
+	 * @return cette solution dont les jours à partir de debut sont ceux de la fenêtre
+	 */
+	SolutionPlanning remplacer(int debut, SolutionPlanning fenetre, int objectif, double temps){
+		int nbActivites = nbServices + nbAstreintes;
+		int premiere = debut * nbActivites;
+		int fin = (debut + fenetre.nbJours) * nbActivites;
+		TableauBits remplacees = new TableauBits(nbInternes, nbJours * nbActivites);
+		for(int iInterne=0 ; iInterne<nbInternes ; iInterne++){
+			for(int c=activites.suivant(iInterne, 0) ; c>=0 ; c=activites.suivant(iInterne, c + 1)){
+				if(c < premiere || c >= fin)
+					remplacees.set(iInterne, c, true);
+			}
+			for(int c=fenetre.activites.suivant(iInterne, 0) ; c>=0 ; c=fenetre.activites.suivant(iInterne, c + 1))
+				remplacees.set(iInterne, premiere + c, true);
+		}
+		return new SolutionPlanning(nbServices, nbAstreintes, nbInternes, nbJours, remplacees, objectif, temps);
+	}
+
+	/**
+	 * @return le nombre de services
+	 */
+	public int getNbServices() {
+		return nbServices;
+	}
+
+	/**
+	 * @return le nombre d'astreintes
+	 */
+	public int getNbAstreintes() {
+		return nbAstreintes;
+	}
+
+	/**
+	 * @return le nombre d'internes
+	 */
+	public int getNbInternes() {
+		return nbInternes;
+	}
+
+	/**
+	 * @return le nombre de jours
+	 */
+	public int getNbJours() {
+		return nbJours;
+	}
+
+	/**
+	 * @return true si l'interne est de garde dans le service ce jour-là
+	 */
+	public boolean estDeGarde(int iService, int iInterne, int jour) {
+		return activites.get(iInterne, jour * (nbServices + nbAstreintes) + iService);
+	}
+
+	/**
+	 * @return true si l'interne est d'astreinte ce jour-là
+	 */
+	public boolean estDAstreinte(int iAstreinte, int iInterne, int jour) {
+		return activites.get(iInterne, jour * (nbServices + nbAstreintes) + nbServices + iAstreinte);
+	}
+
+	/**
+	 * @return le nombre de gardes de l'interne dans le service
+	 */
+	public int getNbGardes(int iService, int iInterne) {
+		return compteurs[iService][iInterne];
+	}
+
+	/**
+	 * @return le nombre de gardes de l'interne, tous services confondus
+	 */
+	public int getNbGardesInterne(int iInterne) {
+		int nb = 0;
+		for(int iService=0 ; iService<nbServices ; iService++)
+			nb += compteurs[iService][iInterne];
+		return nb;
+	}
+
+	/**
+	 * @return le nombre de gardes posées dans le service, tous internes confondus
+	 */
+	public int getNbGardesService(int iService) {
+		int nb = 0;
+		for(int compteur : compteurs[iService])
+			nb += compteur;
+		return nb;
+	}
+
+	/**
+	 * @return le nombre d'astreintes de l'interne à cette astreinte
+	 */
+	public int getNbAstreintes(int iAstreinte, int iInterne) {
+		return compteurs[nbServices + iAstreinte][iInterne];
+	}
+
+	/**
+	 * @return le nombre d'astreintes de l'interne, toutes astreintes confondues
+	 */
+	public int getNbAstreintesInterne(int iInterne) {
+		int nb = 0;
+		for(int iAstreinte=0 ; iAstreinte<nbAstreintes ; iAstreinte++)
+			nb += compteurs[nbServices + iAstreinte][iInterne];
+		return nb;
+	}
+
+	/**
+	 * @param autre solution sur les mêmes jours, internes, services et astreintes
+	 * @return le nombre de gardes et astreintes qui diffèrent entre les deux solutions
+	 */
+	public int nbDifferences(SolutionPlanning autre) {
+		if(autre.nbServices != nbServices || autre.nbAstreintes != nbAstreintes)
+			throw new IllegalArgumentException("Solutions de services ou d'astreintes différents");
+		return activites.nbDifferences(autre.activites);
+	}
+
+	/**
+	 * @return la valeur de l'objectif : le nombre de gardes posées sur des indisponibilités souples, plus les
+	 * changements pondérés par rapport à la solution précédente si le planning les compte
+	 */
+	public int getObjectif() {
+		return objectif;
+	}
+
+	/**
+	 * @return le temps de résolution, en secondes, au moment où la solution a été trouvée
+	 */
+	public double getTemps() {
+		return temps;
+	}
+}
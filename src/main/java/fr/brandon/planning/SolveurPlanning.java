@@ -1,15 +1,33 @@
 package fr.brandon.planning;
 
 
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
+import solver.Cause;
 import solver.ResolutionPolicy;
 import solver.Solver;
 import solver.constraints.ICF;
 import solver.constraints.LCF;
+import solver.constraints.nary.automata.FA.FiniteAutomaton;
+import solver.exception.ContradictionException;
+import solver.search.limits.FailCounter;
+import solver.search.loop.lns.LargeNeighborhoodSearch;
+import solver.search.loop.monitors.IMonitorSolution;
+import solver.search.loop.monitors.SMF;
 import solver.search.strategy.ISF;
+import solver.search.strategy.strategy.AbstractStrategy;
+import solver.variables.BoolVar;
 import solver.variables.VF;
 import solver.variables.IntVar;
+import util.ESat;
 
 public class SolveurPlanning {
 	
@@ -24,6 +42,8 @@ public class SolveurPlanning {
 	public static final int SAMEDI = 5;
 	public static final int DIMANCHE = 6;
 	public static final int NB_JOURS_SEMAINE = 7;
+	//// échecs avant le premier redémarrage de solveDiverses()
+	private static final int ECHECS_REDEMARRAGE = 200;
 	
 	private final int nbInternes;
     private final int nbJours;
@@ -50,6 +70,69 @@ public class SolveurPlanning {
     private IntVar[][][] x;
     private IntVar[][][] y;
     private Solver solveur;
+    
+    //// vues transposées de x et y, construites une seule fois dans initialisation()
+    //// et partagées par toutes les contraintes
+    private IntVar[][][] xParInterne;
+    private IntVar[][][] xParService;
+    private IntVar[][][] yParInterne;
+    private IntVar[][][] yParAstreinte;
+    //// occupation[i][t] vaut 1 si l'interne i est de garde le jour t, quel que soit le service
+    private IntVar[][] occupation;
+    //// constantes du modèle, créées une seule fois par valeur
+    private Map<Integer, IntVar> constantes;
+    
+    private ModeEquilibre modeEquilibre = ModeEquilibre.THEORIQUE;
+    private ModeleAffectation modeleAffectation = ModeleAffectation.BOOLEEN;
+    //// dans le modèle creux, les gardes impossibles (indisponibilité forte ou inaptitude) ne sont pas
+    //// des variables mais partagent toutes la constante zero
+    private boolean modeleCreux = false;
+    private BoolVar zero;
+    //// modèle par affectation : interne de garde pour chaque service et chaque jour, et d'astreinte 
+    //// pour chaque astreinte et chaque jour
+    private IntVar[][] affectations;
+    private IntVar[][] affectationsAstreintes;
+    //// stratégie de recherche de solve(), et sa graine si elle est fixée
+    private StrategieRecherche strategie = StrategiesPredefinies.ALEATOIRE;
+    private Long graine;
+    //// recherche à voisinage large : nombre d'échecs avant de changer de voisinage
+    private boolean rechercheVoisinage = false;
+    private long echecsParVoisinage = 200;
+    //// limites de solve() en ms, noeuds, échecs et retours arrière (0 : aucune)
+    private long limiteTemps = 0;
+    private long limiteNoeuds = 0;
+    private long limiteEchecs = 0;
+    private long limiteRetours = 0;
+    //// écouteurs prévenus à chaque solution, et dernière solution trouvée par solve()
+    private List<EcouteurSolutions> ecouteurs = new ArrayList<EcouteurSolutions>();
+    private SolutionPlanning meilleureSolution;
+    //// nom du planning, métriques de la dernière construction et résolution, et puits où les publier
+    private String nom = "Planning";
+    private MetriquesPlanning metriques;
+    private List<PuitsMetriques> puitsMetriques = new ArrayList<PuitsMetriques>();
+    //// gardes des périodes précédentes, reportées sur l'équilibre et les enchaînements (null : aucune)
+    private ReportPlanning report;
+    //// solution publiée avant une modification des données : essayée d'abord par la recherche, et dont
+    //// chaque case changée coûte poidsChangements dans l'objectif (0 : changements non comptés)
+    private SolutionPlanning solutionPrecedente;
+    private int poidsChangements = 0;
+    //// ordre lexicographique entre les internes interchangeables, et classes pour lesquelles il a été posé
+    private boolean briserSymetries = false;
+    private List<int[]> classesSymetriques;
+    //// règles désactivées, et internes dont les indisponibilités fortes sont ignorées
+    private EnumSet<Regle> reglesDesactivees = EnumSet.noneOf(Regle.class);
+    private boolean[] indispoForteDesactivee;
+    //// obstacles trouvés dans les données par la dernière initialisation : s'il y en a, la recherche n'est pas lancée
+    private List<VerificationFaisabilite.Violation> violations = new ArrayList<VerificationFaisabilite.Violation>();
+    //// données rangées en bits par l'initialisation : indisponibilités par interne, aptitudes par service et 
+    //// interne, et internes aptes et disponibles par service et jour
+    private TableauBits indispoForteBits;
+    private TableauBits indispoSoupleBits;
+    private TableauBits[] aptitudeBits;
+    private TableauBits[] possibles;
+    //// nombre de gardes posées sur des indisponibilités souples, plus les changements pondérés, créé par solve()
+    private IntVar objectif;
+    private IntVar changements;
 	
     /**
      * Constructeur de la classe Planning, contenant les differentes données necessaires à la planification
@@ -83,6 +166,7 @@ public class SolveurPlanning {
         this.indispoSouple = indispoSouple;
         this.peutTravailEnsemble = peutTravaillerEnsemble;
         this.aptitude = aptitude;
+        this.indispoForteDesactivee = new boolean[internes];
         
         this.nbGardesTheorique = (nbJours*nbServices) / nbInternes ;
         this.nbAstreintesTheorique = (nbJours*nbAstreintes) / nbInternes ; 
@@ -232,74 +316,677 @@ public class SolveurPlanning {
 
 
 	/**
-	 * @return l'instance du solveur
+	 * @return le mode d'équilibre des gardes et astreintes entre les internes
+	 */
+	public ModeEquilibre getModeEquilibre() {
+		return modeEquilibre;
+	}
+
+
+	/**
+	 * @param modeEquilibre le mode d'équilibre des gardes et astreintes, à choisir avant l'initialisation
+	 */
+	public void setModeEquilibre(ModeEquilibre modeEquilibre) {
+		this.modeEquilibre = modeEquilibre;
+	}
+
+
+	/**
+	 * @return la formulation du modèle
+	 */
+	public ModeleAffectation getModeleAffectation() {
+		return modeleAffectation;
+	}
+
+
+	/**
+	 * @param modeleAffectation la formulation du modèle, à choisir avant l'initialisation
+	 */
+	public void setModeleAffectation(ModeleAffectation modeleAffectation) {
+		this.modeleAffectation = modeleAffectation;
+	}
+
+
+	/**
+	 * @return true si les gardes impossibles ne sont pas créées comme variables
+	 */
+	public boolean isModeleCreux() {
+		return modeleCreux;
+	}
+
+
+	/**
+	 * @param modeleCreux true pour ne créer des variables que pour les gardes possibles, à choisir avant l'initialisation
+	 */
+	public void setModeleCreux(boolean modeleCreux) {
+		this.modeleCreux = modeleCreux;
+	}
+
+
+	/**
+	 * @return l'interne de garde pour chaque service et chaque jour, null si le modèle n'est pas par affectation
+	 */
+	public IntVar[][] getAffectations() {
+		return affectations;
+	}
+
+
+	/**
+	 * @return l'interne d'astreinte pour chaque astreinte et chaque jour, null si le modèle n'est pas par affectation
+	 */
+	public IntVar[][] getAffectationsAstreintes() {
+		return affectationsAstreintes;
+	}
+
+
+	/**
+	 * @return la stratégie de recherche utilisée par solve()
+	 */
+	public StrategieRecherche getStrategie() {
+		return strategie;
+	}
+
+
+	/**
+	 * @param strategie stratégie de recherche, StrategiesPredefinies.ALEATOIRE par défaut
+	 */
+	public void setStrategie(StrategieRecherche strategie) {
+		this.strategie = strategie;
+	}
+
+
+	/**
+	 * @param graine graine de la stratégie de recherche, tirée au hasard à chaque solve() si elle n'est pas fixée
+	 */
+	public void setGraine(long graine) {
+		this.graine = graine;
+	}
+
+
+	/**
+	 * @return true si solve() utilise la recherche à voisinage large
+	 */
+	public boolean isRechercheVoisinage() {
+		return rechercheVoisinage;
+	}
+
+
+	/**
+	 * @param rechercheVoisinage true pour optimiser les indisponibilités souples par recherche à voisinage large,
+	 * à utiliser avec une limite de temps
+	 */
+	public void setRechercheVoisinage(boolean rechercheVoisinage) {
+		this.rechercheVoisinage = rechercheVoisinage;
+	}
+
+
+	/**
+	 * @param echecsParVoisinage nombre d'échecs après lequel la recherche passe au voisinage suivant
+	 */
+	public void setEchecsParVoisinage(long echecsParVoisinage) {
+		this.echecsParVoisinage = echecsParVoisinage;
+	}
+
+
+	/**
+	 * @param limiteTemps durée maximale de solve() en millisecondes, 0 pour ne pas limiter
+	 */
+	public void setLimiteTemps(long limiteTemps) {
+		this.limiteTemps = limiteTemps;
+	}
+
+
+	/**
+	 * @param limiteNoeuds nombre maximal de noeuds explorés par solve(), 0 pour ne pas limiter
+	 */
+	public void setLimiteNoeuds(long limiteNoeuds) {
+		this.limiteNoeuds = limiteNoeuds;
+	}
+
+
+	/**
+	 * @param limiteEchecs nombre maximal d'échecs de solve(), 0 pour ne pas limiter
+	 */
+	public void setLimiteEchecs(long limiteEchecs) {
+		this.limiteEchecs = limiteEchecs;
+	}
+
+
+	/**
+	 * @param limiteRetours nombre maximal de retours arrière de solve(), 0 pour ne pas limiter
+	 */
+	public void setLimiteRetours(long limiteRetours) {
+		this.limiteRetours = limiteRetours;
+	}
+
+
+	/**
+	 * @param ecouteur écouteur prévenu de chaque solution améliorante pendant solve()
+	 */
+	public void ajouterEcouteur(EcouteurSolutions ecouteur) {
+		ecouteurs.add(ecouteur);
+	}
+
+
+	/**
+	 * @return le nom du planning, utilisé pour le solveur et les métriques
+	 */
+	public String getNom() {
+		return nom;
+	}
+
+
+	/**
+	 * @param nom nom du planning, par exemple l'hôpital et la période
+	 */
+	public void setNom(String nom) {
+		this.nom = nom;
+	}
+
+
+	/**
+	 * @param puits puits auquel les métriques sont données à la fin de chaque solve()
+	 */
+	public void ajouterPuitsMetriques(PuitsMetriques puits) {
+		puitsMetriques.add(puits);
+	}
+
+
+	/**
+	 * @return les métriques de la dernière initialisation et résolution, null avant l'initialisation
+	 */
+	public MetriquesPlanning getMetriques() {
+		return metriques;
+	}
+
+
+	/**
+	 * @return le report des périodes précédentes, null si le planning ne suit aucune période
+	 */
+	public ReportPlanning getReport() {
+		return report;
+	}
+
+
+	/**
+	 * @param report gardes des périodes précédentes, prises en compte par l'équilibre et les enchaînements de gardes,
+	 * à choisir avant l'initialisation. Le planning doit commencer un lundi.
+	 */
+	public void setReport(ReportPlanning report) {
+		this.report = report;
+	}
+
+
+	/**
+	 * @return la solution précédente utilisée pour le démarrage à chaud, null si aucune
+	 */
+	public SolutionPlanning getSolutionPrecedente() {
+		return solutionPrecedente;
+	}
+
+
+	/**
+	 * @param solutionPrecedente solution publiée sur les mêmes jours, internes, services et astreintes, dont solve()
+	 * essaie d'abord les valeurs. null pour repartir de zéro.
+	 */
+	public void setSolutionPrecedente(SolutionPlanning solutionPrecedente) {
+		if(solutionPrecedente != null && (solutionPrecedente.getNbJours() != nbJours 
+				|| solutionPrecedente.getNbInternes() != nbInternes || solutionPrecedente.getNbServices() != nbServices 
+				|| solutionPrecedente.getNbAstreintes() != nbAstreintes))
+			throw new IllegalArgumentException("La solution précédente ne porte pas sur les mêmes dimensions que le planning");
+		this.solutionPrecedente = solutionPrecedente;
+	}
+
+
+	/**
+	 * @param poidsChangements coût dans l'objectif de chaque garde ou astreinte changée par rapport à la solution
+	 * précédente, 0 pour ne pas compter les changements
+	 */
+	public void setPoidsChangements(int poidsChangements) {
+		this.poidsChangements = poidsChangements;
+	}
+
+
+	/**
+	 * @return true si l'initialisation ordonne les internes interchangeables
+	 */
+	public boolean isBriserSymetries() {
+		return briserSymetries;
+	}
+
+
+	/**
+	 * @param briserSymetries true pour imposer un ordre lexicographique entre les gardes et astreintes des internes
+	 * interchangeables, à choisir avant l'initialisation. Sans effet avec une solution précédente, dont l'ordre
+	 * des internes doit être gardé.
+	 */
+	public void setBriserSymetries(boolean briserSymetries) {
+		this.briserSymetries = briserSymetries;
+	}
+
+
+	/**
+	 * @return true si l'initialisation pose la règle
+	 */
+	public boolean isRegleActive(Regle regle) {
+		return !reglesDesactivees.contains(regle);
+	}
+
+
+	/**
+	 * @param regle règle à poser ou non, à choisir avant l'initialisation. Le modèle par affectation pose toujours
+	 * COUVERTURE_GARDES, COUVERTURE_ASTREINTES et INCOMPATIBLE_GARDE_ASTREINTE, qu'il remplace.
+	 * @param active false pour ne pas poser la règle
+	 */
+	public void setRegleActive(Regle regle, boolean active) {
+		if(active)
+			reglesDesactivees.remove(regle);
+		else
+			reglesDesactivees.add(regle);
+	}
+
+
+	/**
+	 * @return true si les indisponibilités fortes de l'interne sont respectées
+	 */
+	public boolean isIndisponibiliteForteActive(int iInterne) {
+		return isRegleActive(Regle.INDISPONIBILITE_FORTE) && !indispoForteDesactivee[iInterne];
+	}
+
+
+	/**
+	 * @param iInterne interne
+	 * @param active false pour ignorer les indisponibilités fortes de l'interne, à choisir avant l'initialisation
+	 */
+	public void setIndisponibiliteForteActive(int iInterne, boolean active) {
+		indispoForteDesactivee[iInterne] = !active;
+	}
+
+
+	/**
+	 * @return les classes d'internes ordonnées par la dernière initialisation, vide si aucune
+	 */
+	public List<int[]> getClassesSymetriques() {
+		return classesSymetriques;
+	}
+
+
+	/**
+	 * @return le nombre de gardes et astreintes changées par rapport à la solution précédente, null si solve() ne
+	 * compte pas les changements
+	 */
+	public IntVar getChangements() {
+		return changements;
+	}
+
+
+	/**
+	 * @return la meilleure solution trouvée par le dernier solve(), null si aucune
+	 */
+	public SolutionPlanning getMeilleureSolution() {
+		return meilleureSolution;
+	}
+
+
+	/**
+	 * Libère le solveur, les variables et les contraintes du modèle, pour que le ramasse-miettes les récupère tout
+	 * en gardant les données, les options, les métriques et la meilleure solution. Le planning revient à l'état non
+	 * initialisé et peut être initialisé à nouveau.
+	 */
+	public void liberer(){
+		this.solveur = null;
+		this.x = null;
+		this.y = null;
+		this.xParInterne = null;
+		this.xParService = null;
+		this.yParInterne = null;
+		this.yParAstreinte = null;
+		this.occupation = null;
+		this.constantes = null;
+		this.zero = null;
+		this.affectations = null;
+		this.affectationsAstreintes = null;
+		this.objectif = null;
+		this.changements = null;
+	}
+
+
+	/**
+	 * @return les violations trouvées par la vérification des données lors de la dernière initialisation, vide si
+	 * aucune
+	 */
+	public List<VerificationFaisabilite.Violation> getViolations() {
+		return violations;
+	}
+
+
+	/**
+	 * @return la variable objectif, null avant l'appel à solve()
+	 */
+	public IntVar getObjectif() {
+		return objectif;
+	}
+
+
+	/**
+	 * @return l'instance du solveur, null si le planning n'est pas initialisé ou si ses données ont des violations
 	 */
 	public Solver getSolveur() {
 		return solveur;
 	}
 
 
+	/**
+	 * @return un nouveau planning sur les mêmes données et avec les mêmes options, pas encore initialisé
+	 */
+	SolveurPlanning copier(){
+		SolveurPlanning copie = new SolveurPlanning(nbServices, nbAstreintes, nbInternes, nbJours, nbGardeEcart, 
+				nbAstreintesEcart, nomServices, nomAstreintes, VD, indispoForte, indispoSouple, peutTravailEnsemble, aptitude);
+		copierOptions(copie);
+		copie.report = report;
+		copie.solutionPrecedente = solutionPrecedente;
+		return copie;
+	}
+
+
+	/**
+	 * @param debut premier jour de la fenêtre
+	 * @param longueur nombre de jours de la fenêtre
+	 * @return un nouveau planning sur les jours de la fenêtre, avec les mêmes options et sans report, pas encore initialisé
+	 */
+	SolveurPlanning fenetre(int debut, int longueur){
+		boolean[][] indispoForteFenetre = new boolean[nbInternes][];
+		boolean[][] indispoSoupleFenetre = new boolean[nbInternes][];
+		for(int iInterne=0 ; iInterne<nbInternes ; iInterne++){
+			indispoForteFenetre[iInterne] = Arrays.copyOfRange(indispoForte[iInterne], debut, debut + longueur);
+			indispoSoupleFenetre[iInterne] = Arrays.copyOfRange(indispoSouple[iInterne], debut, debut + longueur);
+		}
+		boolean[][][] aptitudeFenetre = new boolean[nbServices][nbInternes][];
+		for(int iService=0 ; iService<nbServices ; iService++){
+			for(int iInterne=0 ; iInterne<nbInternes ; iInterne++){
+				aptitudeFenetre[iService][iInterne] = Arrays.copyOfRange(aptitude[iService][iInterne], debut, debut + longueur);
+			}
+		}
+		SolveurPlanning copie = new SolveurPlanning(nbServices, nbAstreintes, nbInternes, longueur, nbGardeEcart, 
+				nbAstreintesEcart, nomServices, nomAstreintes, VD, indispoForteFenetre, indispoSoupleFenetre, 
+				peutTravailEnsemble, aptitudeFenetre);
+		copierOptions(copie);
+		if(solutionPrecedente != null)
+			copie.solutionPrecedente = solutionPrecedente.extraire(debut, longueur);
+		return copie;
+	}
+
+
+	/**
+	 * @param iInterne interne absent
+	 * @param debut premier jour d'absence
+	 * @param fin dernier jour d'absence
+	 * @return un nouveau planning où l'interne a une indisponibilité forte sur ces jours, avec les mêmes options et
+	 * le même report, pas encore initialisé
+	 */
+	SolveurPlanning absence(int iInterne, int debut, int fin){
+		boolean[][] indispoForteAbsence = new boolean[nbInternes][];
+		for(int i=0 ; i<nbInternes ; i++){
+			indispoForteAbsence[i] = indispoForte[i].clone();
+		}
+		Arrays.fill(indispoForteAbsence[iInterne], debut, fin + 1, true);
+		SolveurPlanning copie = new SolveurPlanning(nbServices, nbAstreintes, nbInternes, nbJours, nbGardeEcart, 
+				nbAstreintesEcart, nomServices, nomAstreintes, VD, indispoForteAbsence, indispoSouple, peutTravailEnsemble, aptitude);
+		copierOptions(copie);
+		copie.report = report;
+		return copie;
+	}
+
+
+	private void copierOptions(SolveurPlanning copie){
+		copie.modeEquilibre = modeEquilibre;
+		copie.modeleAffectation = modeleAffectation;
+		copie.modeleCreux = modeleCreux;
+		copie.strategie = strategie;
+		copie.graine = graine;
+		copie.rechercheVoisinage = rechercheVoisinage;
+		copie.echecsParVoisinage = echecsParVoisinage;
+		copie.limiteTemps = limiteTemps;
+		copie.limiteNoeuds = limiteNoeuds;
+		copie.limiteEchecs = limiteEchecs;
+		copie.limiteRetours = limiteRetours;
+		copie.nom = nom;
+		copie.puitsMetriques.addAll(puitsMetriques);
+		copie.poidsChangements = poidsChangements;
+		copie.briserSymetries = briserSymetries;
+		copie.reglesDesactivees = EnumSet.copyOf(reglesDesactivees);
+		copie.indispoForteDesactivee = indispoForteDesactivee.clone();
+	}
+
+
 	/**
      * fonction d'initialisation du solveur, des variables, et des contraintes
      */
     public void initialisation(){
     	
-        this.solveur = new Solver("Planning");
+    	//des comptes sur les données suffisent parfois à prouver qu'il n'y a pas de solution : le modèle n'est 
+    	//alors pas construit, getSolveur() rend null et la résolution s'arrête aussitôt
+    	this.violations = new VerificationFaisabilite(this).verifier();
+        this.metriques = new MetriquesPlanning(nom);
+    	if(!violations.isEmpty()){
+    		liberer();
+    		return;
+    	}
+    	
+        this.solveur = new Solver(nom);
+        metriques.debutConstruction(solveur);
         this.x = new IntVar[nbServices][][];
         this.y = new IntVar[nbAstreintes][][];
+        ranger();
                 
         //mat bloc samu
+        this.zero = null;
         for(int iService=0; iService < nbServices ; iService++){
-            this.x[iService] = VF.boundedMatrix(nomServices[iService], nbInternes , nbJours,0,1, solveur);
+        	if(modeleCreux)
+        		this.x[iService] = matriceCreuse(iService);
+        	else
+        		this.x[iService] = VF.boolMatrix(nomServices[iService], nbInternes , nbJours, solveur);
         }
         
         //AST 
         for(int iAstreinte=0 ; iAstreinte<nbAstreintes ; iAstreinte++){
-            this.y[iAstreinte] = VF.boundedMatrix(nomAstreintes[iAstreinte], nbInternes, nbJours,0,1, solveur);
+            this.y[iAstreinte] = VF.boolMatrix(nomAstreintes[iAstreinte], nbInternes, nbJours, solveur);
         }
         
+        construireVues();
+        metriques.finRegle("variables", solveur);
         
-        auPlus1GardeJour();        
-        tjrs1PersonneDeGarde();        
-        equilibreGarde();
-        reposLendemain();
-        enchainementVD();
+        auPlus1GardeJour();
+        metriques.finRegle("auPlus1GardeJour", solveur);
+        if(modeleAffectation == ModeleAffectation.ENTIER){
+        	affectationsEntieres();
+        	metriques.finRegle("affectationsEntieres", solveur);
+        }
+        else{
+        	if(isRegleActive(Regle.COUVERTURE_GARDES))
+        		tjrs1PersonneDeGarde();
+        	metriques.finRegle("tjrs1PersonneDeGarde", solveur);
+        	if(isRegleActive(Regle.COUVERTURE_ASTREINTES))
+        		tjrsUneAstreinte();
+        	metriques.finRegle("tjrsUneAstreinte", solveur);
+        	if(isRegleActive(Regle.INCOMPATIBLE_GARDE_ASTREINTE))
+        		incompatibleGardeAstreinte();
+        	metriques.finRegle("incompatibleGardeAstreinte", solveur);
+        }
+        if(isRegleActive(Regle.EQUILIBRE_GARDE))
+        	equilibreGarde();
+        metriques.finRegle("equilibreGarde", solveur);
+        if(isRegleActive(Regle.REPOS_LENDEMAIN) || isRegleActive(Regle.ENCHAINEMENT_DESAGREABLE) 
+        		|| isRegleActive(Regle.ENCHAINEMENT_VD))
+        	enchainementsGardes();
+        metriques.finRegle("enchainementsGardes", solveur);
         indisponibiliteForte();
-        estCapable();
-        gardeEnsemble();
+        metriques.finRegle("indisponibiliteForte", solveur);
+        if(isRegleActive(Regle.EST_CAPABLE))
+        	estCapable();
+        metriques.finRegle("estCapable", solveur);
+        if(isRegleActive(Regle.GARDE_ENSEMBLE))
+        	gardeEnsemble();
+        metriques.finRegle("gardeEnsemble", solveur);
+        
+        if(isRegleActive(Regle.GROUPEMENT_ASTREINTES))
+        	groupementAstreintes();
+        metriques.finRegle("groupementAstreintes", solveur);
         
-        groupementAstreintes();
+        if(isRegleActive(Regle.EQUILIBRE_SAMU))
+        	equilibreSamu();
+        metriques.finRegle("equilibreSamu", solveur);
+        if(isRegleActive(Regle.EQUILIBRE_JSD))
+        	equilibreJSD();
+        metriques.finRegle("equilibreJSD", solveur);
         
-        tjrsUneAstreinte();
-        incompatibleGardeAstreinte();
-        equilibreSamu();
-        enchainementDesagreable();
-        equilibreJSD();
+        if(isRegleActive(Regle.EQUILIBRE_ASTREINTE))
+        	equilibreAstreinte();
+        metriques.finRegle("equilibreAstreinte", solveur);
         
-        equilibreAstreinte();
+        symetries();
+        metriques.finRegle("symetries", solveur);
         
     }
     
     
+    /**
+     * ranger copie les indisponibilités et aptitudes en bits, et calcule pour chaque service et chaque jour les 
+     * internes aptes et disponibles. Les indisponibilités fortes et aptitudes des règles désactivées sont ignorées.
+     */
+    private void ranger(){
+    	indispoForteBits = TableauBits.depuis(indispoForte);
+    	indispoSoupleBits = TableauBits.depuis(indispoSouple);
+    	boolean[][] indispoForteActive = new boolean[nbInternes][];
+    	for(int iInterne=0 ; iInterne<nbInternes ; iInterne++)
+    		indispoForteActive[iInterne] = isIndisponibiliteForteActive(iInterne) ? indispoForte[iInterne] : new boolean[nbJours];
+    	TableauBits indispoForteParJour = TableauBits.transpose(indispoForteActive);
+    	aptitudeBits = new TableauBits[nbServices];
+    	possibles = new TableauBits[nbServices];
+    	for(int iService=0 ; iService<nbServices ; iService++){
+    		aptitudeBits[iService] = TableauBits.depuis(aptitude[iService]);
+    		TableauBits aptes = isRegleActive(Regle.EST_CAPABLE) ? TableauBits.transpose(aptitude[iService]) 
+    				: new TableauBits(nbJours, nbInternes).non();
+    		possibles[iService] = aptes.etNon(indispoForteParJour);
+    	}
+    }
+    
+    /**
+     * matriceCreuse crée les gardes d'un service en ne créant une variable que lorsque l'interne est apte et disponible.
+     * Les gardes impossibles partagent toutes la constante zero du solveur, qui n'est ni une variable de décision ni
+     * l'objet d'une contrainte.
+     * @param iService indice du service
+     * @return la matrice interne x jour des gardes du service
+     */
+    private BoolVar[][] matriceCreuse(int iService){
+    	if(zero == null)
+    		zero = VF.zero(solveur);
+    	BoolVar[][] gardes = new BoolVar[nbInternes][nbJours];
+    	for(int iIntern=0 ; iIntern < nbInternes ; iIntern++){
+    		for(int t=0 ; t<nbJours ; t++){
+    			if(!possibles[iService].get(t, iIntern))
+    				gardes[iIntern][t] = zero;
+    			else
+    				gardes[iIntern][t] = VF.bool(nomServices[iService] + "_" + iIntern + "_" + t, solveur);
+    		}
+    	}
+    	return gardes;
+    }
+    
+    /**
+     * @return true si la variable est une vraie variable de décision, false si c'est une garde impossible du modèle creux
+     */
+    boolean estActive(IntVar variable){
+    	return variable != zero;
+    }
+    
+    /**
+     * @return les variables du tableau qui ne sont pas des gardes impossibles
+     */
+    private IntVar[] actives(IntVar[] variables){
+    	int nbActives = 0;
+    	for(IntVar variable : variables){
+    		if(estActive(variable))
+    			nbActives++;
+    	}
+    	if(nbActives == variables.length)
+    		return variables;
+    	IntVar[] resultat = new IntVar[nbActives];
+    	int cpt = 0;
+    	for(IntVar variable : variables){
+    		if(estActive(variable)){
+    			resultat[cpt] = variable;
+    			cpt++;
+    		}
+    	}
+    	return resultat;
+    }
+    
+    /**
+     * posterSomme pose somme(variables) = somme en ignorant les gardes impossibles
+     */
+    private void posterSomme(IntVar[] variables, IntVar somme){
+    	IntVar[] variablesActives = actives(variables);
+    	if(variablesActives.length == 0)
+    		solveur.post(ICF.arithm(somme, "=", 0));
+    	else
+    		solveur.post(ICF.sum(variablesActives, somme));
+    }
+    
+    /**
+     * construireVues construit les différentes vues transposées de x et y utilisées par les contraintes :
+     * interne x jour x service, service x jour x interne, interne x jour x astreinte et astreinte x jour x interne.
+     * Les vues partagent les variables de x et y, aucune variable n'est créée.
+     */
+    private void construireVues(){
+    	this.constantes = new HashMap<Integer, IntVar>();
+    	this.xParInterne = new IntVar[nbInternes][nbJours][nbServices];
+    	this.xParService = new IntVar[nbServices][nbJours][nbInternes];
+    	this.yParInterne = new IntVar[nbInternes][nbJours][nbAstreintes];
+    	this.yParAstreinte = new IntVar[nbAstreintes][nbJours][nbInternes];
+    	
+    	for(int iService=0; iService < nbServices ; iService++){
+    		for(int iIntern=0 ; iIntern < nbInternes ; iIntern++){
+    			for(int t=0 ; t<nbJours ; t++){
+    				xParInterne[iIntern][t][iService] = x[iService][iIntern][t];
+    				xParService[iService][t][iIntern] = x[iService][iIntern][t];
+    			}
+    		}
+    	}
+    	
+    	for(int iAstreinte=0; iAstreinte < nbAstreintes ; iAstreinte++){
+    		for(int iIntern=0 ; iIntern < nbInternes ; iIntern++){
+    			for(int t=0 ; t<nbJours ; t++){
+    				yParInterne[iIntern][t][iAstreinte] = y[iAstreinte][iIntern][t];
+    				yParAstreinte[iAstreinte][t][iIntern] = y[iAstreinte][iIntern][t];
+    			}
+    		}
+    	}
+    }
+    
+    /**
+     * @param valeur valeur de la constante
+     * @return la variable constante associée à la valeur, créée au premier appel puis partagée
+     */
+    private IntVar constante(int valeur){
+    	IntVar cste = constantes.get(valeur);
+    	if(cste == null){
+    		cste = VF.fixed(valeur, solveur);
+    		constantes.put(valeur, cste);
+    	}
+    	return cste;
+    }
+    
+    
     /**
      * auPlus1GardeJour ajoute la contrainte sur chaque jour qu'une personne ne peut être que dans un seul service
+     * L'occupation journalière de chaque interne est une variable 0/1 égale à la somme de ses gardes du jour
      */
      private void auPlus1GardeJour() { 
-        
-        //On change l'ordre des dimensions du tableau 3D afin de lui appliquer les contraintes plus simplement
-        IntVar[][][] nouveauX = new IntVar[nbInternes][nbJours][nbServices];
-        
-        for(int iService=0; iService < nbServices ; iService++){
-            for(int iIntern=0 ; iIntern < nbInternes ; iIntern++){
-                for(int t=0 ; t<nbJours ; t++){
-                    nouveauX[iIntern][t][iService] = x[iService][iIntern][t];
-                }
-            }
-        }
-        
+        this.occupation = VF.boolMatrix("occupation", nbInternes, nbJours, solveur);
         for(int iIntern=0 ; iIntern<nbInternes ; iIntern++){
             for(int t=0 ; t<nbJours ; t++){
-                solveur.post(ICF.sum(nouveauX[iIntern][t], "<=", VF.fixed(1, solveur)));
+                posterSomme(xParInterne[iIntern][t], occupation[iIntern][t]);
             }
         }
     }
@@ -310,31 +997,76 @@ public class SolveurPlanning {
      * @param x tableau des gardes
      */
      private void tjrs1PersonneDeGarde(){
-        
-        //On change l'ordre des dimensions du tableau 3D afin de lui appliquer les contraintes plus simplement
-        IntVar[][][] nouveauX = new IntVar[nbServices][nbJours][nbInternes];
-        
-        for(int iService=0; iService < nbServices ; iService++){
-            for(int iIntern=0 ; iIntern < nbInternes ; iIntern++){
-                for(int t=0 ; t<nbJours ; t++){
-                    nouveauX[iService][t][iIntern] = x[iService][iIntern][t];
-                }
-            }
-        }
-               
         for(int iService=0 ; iService<nbServices ; iService++){
             for(int t=0 ; t<nbJours ; t++){
-                solveur.post(ICF.sum(nouveauX[iService][t], "=", VF.fixed(1, solveur)));
+                posterSomme(xParService[iService][t], constante(1));
             }
         }     
      }
      
+     /**
+      * affectationsEntieres pose le modèle par affectation : chaque garde (service, jour) et chaque astreinte 
+      * (astreinte, jour) est une variable entière dont la valeur est l'interne affecté. Ces variables sont reliées
+      * aux booléens de x et y, ce qui remplace tjrs1PersonneDeGarde et tjrsUneAstreinte. Un alldifferent par jour 
+      * sur les gardes, et une différence entre chaque garde et chaque astreinte du jour, remplacent 
+      * incompatibleGardeAstreinte : un interne peut toujours avoir plusieurs astreintes le même jour.
+      */
+     private void affectationsEntieres(){
+    	 this.affectations = new IntVar[nbServices][nbJours];
+    	 this.affectationsAstreintes = new IntVar[nbAstreintes][nbJours];
+    	 
+    	 for(int t=0 ; t<nbJours ; t++){
+    		 for(int iService=0 ; iService<nbServices ; iService++){
+    			 affectations[iService][t] = VF.enumerated(nomServices[iService] + "_" + t, internesPossibles(xParService[iService][t]), solveur);
+    			 solveur.post(ICF.boolean_channeling(booleens(xParService[iService][t]), affectations[iService][t], 0));
+    		 }
+    		 for(int iAstreinte=0 ; iAstreinte<nbAstreintes ; iAstreinte++){
+    			 affectationsAstreintes[iAstreinte][t] = VF.enumerated(nomAstreintes[iAstreinte] + "_" + t, 0, nbInternes-1, solveur);
+    			 solveur.post(ICF.boolean_channeling(booleens(yParAstreinte[iAstreinte][t]), affectationsAstreintes[iAstreinte][t], 0));
+    			 for(int iService=0 ; iService<nbServices ; iService++)
+    				 solveur.post(ICF.arithm(affectations[iService][t], "!=", affectationsAstreintes[iAstreinte][t]));
+    		 }
+    		 IntVar[] gardesDuJour = new IntVar[nbServices];
+    		 for(int iService=0 ; iService<nbServices ; iService++)
+    			 gardesDuJour[iService] = affectations[iService][t];
+    		 solveur.post(ICF.alldifferent(gardesDuJour, "AC"));
+    	 }
+     }
+     
+     /**
+      * @return les indices des internes pouvant être affectés à la garde, c'est-à-dire ceux dont la variable est active
+      */
+     private int[] internesPossibles(IntVar[] gardes){
+    	 int nbPossibles = actives(gardes).length;
+    	 // aucun interne possible : le domaine est laissé complet, le channeling rendra le modèle insatisfiable
+    	 if(nbPossibles == 0)
+    		 nbPossibles = gardes.length;
+    	 int[] possibles = new int[nbPossibles];
+    	 int cpt = 0;
+    	 for(int iInterne=0 ; iInterne<gardes.length ; iInterne++){
+    		 if(estActive(gardes[iInterne]) || nbPossibles == gardes.length){
+    			 possibles[cpt] = iInterne;
+    			 cpt++;
+    		 }
+    	 }
+    	 return possibles;
+     }
+     
+     /**
+      * @return le tableau des variables de x ou y, qui sont toutes booléennes
+      */
+     private static BoolVar[] booleens(IntVar[] variables){
+    	 BoolVar[] booleens = new BoolVar[variables.length];
+    	 for(int i=0 ; i<variables.length ; i++){
+    		 booleens[i] = (BoolVar) variables[i];
+    	 }
+    	 return booleens;
+     }
+     
      /**
       * equilibreGarde s'assure que chaque personne aura a peu près le même nombre de garde que les autres
       */
      private void equilibreGarde(){       
-         System.out.println("nombre de gardes théorique: " + nbGardesTheorique);
-         
          // On va regrouper toutes les gardes de chaque interne dans un tableau afin de pouvoir faire la somme plus facilement
          // On pourra ensuite comparer cette somme à la valeur attendue
          IntVar[][] nbGardesInterne = new IntVar[nbInternes][nbServices*nbJours];
@@ -349,117 +1081,147 @@ public class SolveurPlanning {
         	 cpt = 0;
          }
          
-         // le nombre de garde effectué par chaque interne, moins le nombre de garde théorique ne doit pas s'écarter de plus de nbgardeEcart
-         for(int iInterne = 0; iInterne < nbInternes ; iInterne++){
-        	 solveur.post(ICF.sum(nbGardesInterne[iInterne], "<=", VF.fixed(nbGardesTheorique+nbGardeEcart, solveur)));
-        	 solveur.post(ICF.sum(nbGardesInterne[iInterne], ">=", VF.fixed(nbGardesTheorique-nbGardeEcart, solveur)));
-        	 
-         }
-         
-         //IntegerExpressionVariable[][] nbGardes = new IntegerExpressionVariable[nbInternes][nbServices];
-         //for(int i=0 ; i<nbInternes ; i++){
-                        
-             //for(int j=0; j<nbServices ; j++){
-              //  nbGardes[i][j] = sum(x[j][i]) ; 
-             //}
-             
-             //problème en faisant comme ça, on ne regarde pas la difference entre tout le monde
-             //mais l'écart par rapport au nombre de garde theorique -> on peut s'ecarter de 0 1 2 3 du nombre de garde theorique
-             //mais l'écart entre le pire et le meilleur pourra etre de 1*2 2*2 3*2
-             //m.addConstraint(leq(minus( sum(nbGardes[i]) , nbGardesTheorique ) , nbGardeEcart));
-            // m.addConstraint(leq(minus( nbGardesTheorique , sum(nbGardes[i]) ) , nbGardeEcart));
-             
-             //sinon faire boucle sur tout le monde, trouver le pire et le meilleur, faire la diff et comparer a la valeur voulue
-             //max(sum(nbgardes[i]) - min(sum(nbgardes[i]) < nbgardes ecart ?
-             //très lent, choco ne trouve pas de solution quand il y a beaucoup d'internes
-             
-         }      
+         equilibre("gardes", nbGardesInterne, nbServices*nbJours, nbGardeEcart, report != null ? report.getGardes() : null);
+     }      
      
-    /**
-     * reposLendemain s'assure que chaque personne aura un jour de repos le lendemain de sa garde
-     */
-     private void reposLendemain(){
-    	 
-    	//On change l'ordre des dimensions du tableau 3D afin de lui appliquer les contraintes plus simplement
-         IntVar[][][] nouveauX = new IntVar[nbInternes][nbJours][nbServices];
-         
-         for(int iService=0; iService < nbServices ; iService++){
-             for(int iIntern=0 ; iIntern < nbInternes ; iIntern++){
-                 for(int t=0 ; t<nbJours ; t++){
-                     nouveauX[iIntern][t][iService] = x[iService][iIntern][t];
-                 }
-             }
-         }
+     /**
+      * equilibre pose l'équilibre du nombre de gardes d'une catégorie entre les internes, suivant le mode d'équilibre choisi :
+      * - THEORIQUE : le nombre de gardes de chaque interne ne s'écarte pas de plus de ecart de la moyenne théorique
+      * - ECART : la différence entre l'interne qui en fait le plus et celui qui en fait le moins ne dépasse pas ecart
+      * Dans les deux cas la somme des compteurs est égale au nombre total de gardes de la catégorie, ce qui permet
+      * au solveur de propager les bornes des compteurs
+      * Avec un report, l'équilibre porte sur les compteurs cumulés depuis le début de la première période. Un interne
+      * déjà au-delà de la borne max ne prend plus de garde de la catégorie.
+      * @param nom nom de la catégorie de gardes
+      * @param gardesParInterne gardes de la catégorie de chaque interne
+      * @param total nombre total de gardes de la catégorie sur la période
+      * @param ecart écart toléré
+      * @param reportes gardes de la catégorie de chaque interne sur les périodes précédentes, null si aucune
+      */
+     private void equilibre(String nom, IntVar[][] gardesParInterne, int total, int ecart, int[] reportes){
+    	 int totalReporte = 0;
+    	 if(reportes != null){
+    		 for(int reporte : reportes)
+    			 totalReporte += reporte;
+    	 }
+    	 int[] bornes = bornesEquilibre(modeEquilibre, total + totalReporte, nbInternes, ecart);
+    	 int borneMin = bornes[0];
+    	 int borneMax = bornes[1];
+    	 System.out.println("nombre de " + nom + " de chaque interne" + (reportes != null ? " cumulé" : "") 
+    			 + ": [" + borneMin + ", " + Math.max(borneMin, borneMax) + "]");
     	 
+    	 IntVar[] compteurs = new IntVar[nbInternes];
+    	 IntVar[] compteursCumules = new IntVar[nbInternes];
+    	 for(int iInterne = 0; iInterne < nbInternes ; iInterne++){
+    		 int reporte = reportes != null ? reportes[iInterne] : 0;
+    		 compteurs[iInterne] = VF.bounded(nom + "_" + iInterne, Math.max(borneMin - reporte, 0), 
+    				 Math.max(Math.max(borneMin, borneMax) - reporte, 0), solveur);
+    		 posterSomme(gardesParInterne[iInterne], compteurs[iInterne]);
+    		 compteursCumules[iInterne] = reporte == 0 ? compteurs[iInterne] : VF.offset(compteurs[iInterne], reporte);
+    	 }
+    	 solveur.post(ICF.sum(compteurs, constante(total)));
     	 
-    	 for(int iService=0 ; iService < nbServices ; iService++){
-        	 for(int iInterne=0 ; iInterne < nbInternes ; iInterne++){
-        		 for(int t=0 ; t < nbJours -1 ; t++){
-        			 
-        			 solveur.post(LCF.ifThen(
-        					 			ICF.arithm( nouveauX[iInterne][t][iService], "=", 1),
-        					 				ICF.sum(nouveauX[iInterne][t+1], "=", VF.fixed(0, solveur))	   
-        					 				)
-        					 	 );
-        			 
-        			 
-        			  //solveur.post(LCF.ifThen(ICF.arithm( x[iService][iInterne][t], "=", 1), ICF.arithm(x[iService][iInterne][t+1], "=", 0)));
-        			  //solveur.post(LCF.ifThen(ICF.arithm( x[iService][iInterne][t], "=", 1), ICF.arithm(x[(iService+1)%nbServices][iInterne][t+1], "=", 0)));
-        			  //solveur.post(LCF.ifThen(ICF.arithm( x[iService][iInterne][t], "=", 1), ICF.arithm(x[(iService+2)%nbServices][iInterne][t+1], "=", 0)));
-        		 }
-        	 }
-         }
+    	 if(modeEquilibre == ModeEquilibre.ECART){
+    		 int minCumule = Integer.MAX_VALUE;
+    		 int maxCumule = 0;
+    		 for(IntVar compteur : compteursCumules){
+    			 minCumule = Math.min(minCumule, compteur.getLB());
+    			 maxCumule = Math.max(maxCumule, compteur.getUB());
+    		 }
+    		 IntVar max = VF.bounded(nom + "_max", minCumule, maxCumule, solveur);
+    		 IntVar min = VF.bounded(nom + "_min", minCumule, maxCumule, solveur);
+    		 solveur.post(ICF.maximum(max, compteursCumules));
+    		 solveur.post(ICF.minimum(min, compteursCumules));
+    		 solveur.post(ICF.arithm(max, "-", min, "<=", ecart));
+    	 }
+     }
+     
+     /**
+      * @param mode mode d'équilibre
+      * @param total nombre total de gardes de la catégorie sur la période
+      * @param nbInternes nombre d'internes
+      * @param ecart écart toléré
+      * @return les bornes min et max du nombre de gardes de la catégorie de chaque interne
+      */
+     static int[] bornesEquilibre(ModeEquilibre mode, int total, int nbInternes, int ecart){
+    	 int borneMin, borneMax;
+    	 if(mode == ModeEquilibre.ECART){
+    		 // le plus petit compteur est au plus égal à la moyenne, le plus grand au moins égal
+    		 borneMin = divisionHaute(total, nbInternes) - ecart;
+    		 borneMax = total / nbInternes + ecart;
+    	 }
+    	 else{
+    		 // moyenne - ecart <= compteur <= moyenne + ecart, la moyenne n'étant pas forcément entière
+    		 borneMin = divisionHaute(total - ecart*nbInternes, nbInternes);
+    		 borneMax = divisionBasse(total + ecart*nbInternes, nbInternes);
+    		 if(borneMin > borneMax){
+    			 borneMin = total / nbInternes;
+    			 borneMax = divisionHaute(total, nbInternes);
+    		 }
+    	 }
+    	 return new int[] { Math.max(borneMin, 0), borneMax };
+     }
+     
+     /**
+      * @return a/b arrondi à l'entier inférieur, b étant positif
+      */
+     private static int divisionBasse(int a, int b){
+    	 return a >= 0 ? a / b : -((-a + b - 1) / b);
+     }
+     
+     /**
+      * @return a/b arrondi à l'entier supérieur, b étant positif
+      */
+     private static int divisionHaute(int a, int b){
+    	 return -divisionBasse(-a, b);
      }
-    
+     
     /**
-     * enchainementVD s'assure que lorsque quelqu'un interne qui souhaite respecter la regle VD 
-     * est de garde le vendredi, il le soit le Dimanche également
+     * enchainementsGardes pose pour chaque interne une contrainte regular sur son occupation journalière qui assure,
+     * pour chaque règle active :
+     * - un jour de repos le lendemain de chaque garde
+     * - l'absence d'enchainement désagréable (garde en t, t+2 et t+4)
+     * - la règle VD pour les internes qui la respectent (garde le vendredi si et seulement si garde le dimanche)
+     * Avec un report, l'automate part des derniers jours de la période précédente.
+     * Attention bien s'assurer que le décompte des jours commence le lundi
      */
-     private void enchainementVD(){
-    	 IntVar[][][] nouveauX = new IntVar[nbInternes][nbJours][nbServices];
-         
-         for(int iService=0; iService < nbServices ; iService++){
-             for(int iIntern=0 ; iIntern < nbInternes ; iIntern++){
-                 for(int t=0 ; t<nbJours ; t++){
-                     nouveauX[iIntern][t][iService] = x[iService][iIntern][t];
-                 }
-             }
-         }
-         
-    	 for(int iService=0 ; iService < nbServices ; iService++){
-        	 for(int iInterne=0 ; iInterne < nbInternes ; iInterne++){
-        		 if(VD[iInterne]){
-	        		 for(int t=0 ; t < nbJours -1 ; t++){
-	        			 //Attention bien s'assurer que le décompte des jours commence le lundi
-	        			 //Sinon ajouter un décalage
-	        			 if(t % NB_JOURS_SEMAINE == VENDREDI)
-		        			 solveur.post(LCF.ifThen(
-	        					 			ICF.arithm( x[iService][iInterne][t], "=", 1),
-	        					 			ICF.sum(nouveauX[iInterne][t+2], "=", VF.fixed(1, solveur))
-	        					 					)
-	        					 		 );
-	        			 if(t % NB_JOURS_SEMAINE == DIMANCHE)
-		        			 solveur.post(LCF.ifThen(
-	        					 			ICF.arithm( x[iService][iInterne][t], "=", 1),
-	        					 			ICF.sum(nouveauX[iInterne][t-2], "=", VF.fixed(1, solveur))
-	        					 					)
-	        					 		 );
-	        		 }
-        		 }
-        	 }
-         }
+     private void enchainementsGardes(){
+    	 //un automate par règle VD et par historique de départ
+    	 Map<Integer, FiniteAutomaton> automates = new HashMap<Integer, FiniteAutomaton>();
+    	 
+    	 for(int iInterne=0 ; iInterne < nbInternes ; iInterne++){
+    		 int historique = report != null ? report.getHistorique()[iInterne] : 0;
+    		 int cle = 2*historique + (VD[iInterne] ? 1 : 0);
+    		 FiniteAutomaton automate = automates.get(cle);
+    		 if(automate == null){
+    			 automate = automateGardes(iInterne).construire(historique);
+    			 automates.put(cle, automate);
+    		 }
+    		 solveur.post(ICF.regular(occupation[iInterne], automate));
+    	 }
      }
     
-     /**
+      /**
+      * @return l'automate des enchaînements de l'interne, avec les seules règles d'enchaînement actives
+      */
+     AutomateGardes automateGardes(int iInterne){
+    	 return new AutomateGardes(isRegleActive(Regle.REPOS_LENDEMAIN), isRegleActive(Regle.ENCHAINEMENT_DESAGREABLE), 
+    			 VD[iInterne] && isRegleActive(Regle.ENCHAINEMENT_VD));
+     }
+    
+    /**
      * indisponiibliteForte s'assure que lorsqu'un interne a une indisponibilité forte, elle soit respectée
       */
      private void indisponibiliteForte(){
+    	//dans le modèle creux, les gardes impossibles ne sont pas créées
+    	if(modeleCreux)
+    		return;
     	for(int iInterne=0; iInterne< nbInternes ; iInterne++){
-    		for(int t=0 ; t< nbJours ; t++){
-    			if(indispoForte[iInterne][t]){
-    				for(int iService=0; iService< nbServices; iService++)
-    					solveur.post(ICF.arithm(x[iService][iInterne][t], "=", 0));
-    			}
+    		if(!isIndisponibiliteForteActive(iInterne))
+    			continue;
+    		for(int t=indispoForteBits.suivant(iInterne, 0) ; t>=0 ; t=indispoForteBits.suivant(iInterne, t+1)){
+    			for(int iService=0; iService< nbServices; iService++)
+    				solveur.post(ICF.arithm(x[iService][iInterne][t], "=", 0));
     		}
     	}  	
     }
@@ -468,65 +1230,74 @@ public class SolveurPlanning {
      * estCapable s'assure qu'un interne ai la capacité de réaliser une garde pour lui affecter
      */
      private void estCapable(){
-    	for(int iService=0; iService< nbServices; iService++)
+    	if(modeleCreux)
+    		return;
+    	for(int iService=0; iService< nbServices; iService++){
+    		TableauBits inaptitudes = aptitudeBits[iService].non();
 	    	for(int iInterne=0; iInterne< nbInternes ; iInterne++){
-	    		for(int t=0 ; t< nbJours ; t++){
-	    			if(!aptitude[iService][iInterne][t]){
-	    				solveur.post(ICF.arithm(x[iService][iInterne][t], "=", 0));
-	    			}
+	    		for(int t=inaptitudes.suivant(iInterne, 0) ; t>=0 ; t=inaptitudes.suivant(iInterne, t+1)){
+	    			solveur.post(ICF.arithm(x[iService][iInterne][t], "=", 0));
 	    		}
-	    	}  
+	    	}
+    	}
     }
 	
      /**
-      * gardeEnsemble s'assure que les internes peuvent être affectés à des gardes le même jour
+      * gardeEnsemble s'assure que les internes qui ne peuvent pas travailler ensemble ne sont pas de garde le même jour
+      * Le graphe des incompatibilités est couvert par des cliques, et chaque jour au plus un interne de chaque clique
+      * peut être de garde
       */
      private void gardeEnsemble(){
-    	 IntVar[][][] nouveauX = new IntVar[nbInternes][nbJours][nbServices];
-         
-         for(int iService=0; iService < nbServices ; iService++){
-             for(int iIntern=0 ; iIntern < nbInternes ; iIntern++){
-                 for(int t=0 ; t<nbJours ; t++){
-                     nouveauX[iIntern][t][iService] = x[iService][iIntern][t];
-                 }
-             }
-         }
-         
-    	 for(int iInterne=0 ; iInterne< nbInternes ; iInterne++){
-    		 for(int jInterne=iInterne+1 ; jInterne< nbInternes ; jInterne++){
-        		 if((!peutTravailEnsemble[iInterne][jInterne])){
-
-        			 for(int iService=0 ; iService<nbServices ; iService++){
-        				 for(int t=0 ; t<nbJours ; t++){
-        					 solveur.post(LCF.ifThen(ICF.arithm(x[iService][iInterne][t], "=", 1), 
-	  				  				 ICF.sum(nouveauX[jInterne][t], VF.fixed(0, solveur))
-	  				  				 
-	  				  		)
-					 );
-        					 solveur.post(LCF.ifThen(ICF.arithm(x[iService][jInterne][t], "=", 1), 
-	  				  				 ICF.sum(nouveauX[iInterne][t], VF.fixed(0, solveur))
-	  				  				 
-	  				  		)
-					 );
-        					/* solveur.post(LCF.ifThen(ICF.arithm(x[iService][iInterne][t], "=", 1), 
-				  				      LCF.and(ICF.arithm(x[0][jInterne][t], "=", VF.fixed(0, solveur)),
-		  				  				      ICF.arithm(x[1][jInterne][t], "=", VF.fixed(0, solveur)),
-		  				  				      ICF.arithm(x[2][jInterne][t], "=", VF.fixed(0, solveur))
-				  				    		  )
-				  				   )
-		  				      );
-        					 solveur.post(LCF.ifThen(ICF.arithm(x[iService][jInterne][t], "=", 1), 
-				  				      LCF.and(ICF.arithm(x[0][iInterne][t], "=", VF.fixed(0, solveur)),
-		  				  				      ICF.arithm(x[1][iInterne][t], "=", VF.fixed(0, solveur)),
-		  				  				      ICF.arithm(x[2][iInterne][t], "=", VF.fixed(0, solveur))
-				  				    		  )
-				  				   )
-		  				      );*/
-        				 }
-        			 }
-        		 }
-        	 }
+    	 List<int[]> cliques = new CouvertureCliques(peutTravailEnsemble).calculer();
+    	 
+    	 for(int[] clique : cliques){
+    		 for(int t=0 ; t<nbJours ; t++){
+    			 IntVar[] occupationsClique = new IntVar[clique.length];
+    			 for(int k=0 ; k<clique.length ; k++){
+    				 occupationsClique[k] = occupation[clique[k]][t];
+    			 }
+    			 solveur.post(ICF.sum(occupationsClique, "<=", constante(1)));
+    		 }
+    	 }
+     }
+
+     /**
+      * symetries ordonne les internes de chaque classe d'internes interchangeables : la suite de leurs gardes et 
+      * astreintes, jour par jour, est croissante dans l'ordre lexicographique
+      */
+     private void symetries(){
+    	 classesSymetriques = new ArrayList<int[]>();
+    	 //ignorer les indisponibilités d'un seul interne le distingue d'internes aux mêmes données
+    	 if(!briserSymetries || solutionPrecedente != null || indispoForteIgnoree())
+    		 return;
+    	 classesSymetriques = new InternesEquivalents(this).calculer();
+    	 for(int[] classe : classesSymetriques){
+    		 IntVar[][] lignes = new IntVar[classe.length][];
+    		 for(int k=0 ; k<classe.length ; k++){
+    			 lignes[k] = new IntVar[nbJours*(nbServices + nbAstreintes)];
+    			 int cpt = 0;
+    			 for(int t=0 ; t<nbJours ; t++){
+    				 for(int iService=0 ; iService<nbServices ; iService++)
+    					 lignes[k][cpt++] = x[iService][classe[k]][t];
+    				 for(int iAstreinte=0 ; iAstreinte<nbAstreintes ; iAstreinte++)
+    					 lignes[k][cpt++] = y[iAstreinte][classe[k]][t];
+    			 }
+    		 }
+    		 solveur.post(ICF.lex_chain_less_eq(lignes));
+    	 }
+     }
+
+     /**
+      * @return true si les indisponibilités fortes de certains internes seulement sont ignorées
+      */
+     private boolean indispoForteIgnoree(){
+    	 if(!isRegleActive(Regle.INDISPONIBILITE_FORTE))
+    		 return false;
+    	 for(boolean desactivee : indispoForteDesactivee){
+    		 if(desactivee)
+    			 return true;
     	 }
+    	 return false;
      }
 
      /**
@@ -577,21 +1348,9 @@ public class SolveurPlanning {
       * 
       */
      private void tjrsUneAstreinte(){
-    	//On change l'ordre des dimensions du tableau 3D afin de lui appliquer les contraintes plus simplement
-         IntVar[][][] nouveauY = new IntVar[nbServices][nbJours][nbInternes];
-         
-         for(int iAstreinte=0; iAstreinte < nbAstreintes ; iAstreinte++){
-             for(int iIntern=0 ; iIntern < nbInternes ; iIntern++){
-                 for(int t=0 ; t<nbJours ; t++){
-                     nouveauY[iAstreinte][t][iIntern] = y[iAstreinte][iIntern][t];
-                     
-                 }
-             }
-         }
-                
          for(int iAstreinte=0; iAstreinte < nbAstreintes ; iAstreinte++){
              for(int t=0 ; t<nbJours ; t++){
-                 solveur.post(ICF.sum(nouveauY[iAstreinte][t], "=", VF.fixed(1, solveur)));
+                 solveur.post(ICF.sum(yParAstreinte[iAstreinte][t], "=", constante(1)));
              }
          }   
      }
@@ -600,23 +1359,12 @@ public class SolveurPlanning {
       * 
       */
      private void incompatibleGardeAstreinte(){
-    	//On change l'ordre des dimensions du tableau 3D afin de lui appliquer les contraintes plus simplement
-         IntVar[][][] nouveauY = new IntVar[nbInternes][nbJours][nbAstreintes];
-         
-         for(int iAstreinte=0; iAstreinte < nbAstreintes ; iAstreinte++){
-             for(int iIntern=0 ; iIntern < nbInternes ; iIntern++){
-                 for(int t=0 ; t<nbJours ; t++){
-                	 nouveauY[iIntern][t][iAstreinte] = y[iAstreinte][iIntern][t];
-                 }
-             }
-         }
-         
-         
          for(int iService=0; iService < nbServices ; iService++){
              for(int iIntern=0 ; iIntern < nbInternes ; iIntern++){
                  for(int t=0 ; t<nbJours ; t++){
-                	 solveur.post(LCF.ifThen(ICF.arithm(x[iService][iIntern][t], "=", VF.fixed(1, solveur)), 
-                			 					   ICF.sum(nouveauY[iIntern][t], "=", VF.fixed(0, solveur))));
+                	 if(estActive(x[iService][iIntern][t]))
+                		 solveur.post(LCF.ifThen(ICF.arithm(x[iService][iIntern][t], "=", 1), 
+                			 					   ICF.sum(yParInterne[iIntern][t], "=", constante(0))));
                  }
              }
          }
@@ -624,20 +1372,25 @@ public class SolveurPlanning {
      }
      
      /**
-      * 
+      * equilibreSamu s'assure que les gardes au SAMU sont réparties équitablement
       */
      private void equilibreSamu(){
-    	 int nbGardesTheorique = nbJours / nbInternes ;
-         System.out.println("nombre de gardes SAMU théorique: " + nbGardesTheorique);
+         int nbServicesSamu = 0;
+         for(int iService=0 ; iService < nbServices ; iService++){
+        	 if("SAMU".equals(nomServices[iService]))
+        		 nbServicesSamu++;
+         }
+         if(nbServicesSamu == 0)
+        	 return;
          
          // On va regrouper toutes les gardes de chaque interne dans un tableau afin de pouvoir faire la somme plus facilement
          // On pourra ensuite comparer cette somme à la valeur attendue
-         IntVar[][] nbGardesInterne = new IntVar[nbInternes][nbJours];
+         IntVar[][] nbGardesInterne = new IntVar[nbInternes][nbServicesSamu*nbJours];
          int cpt = 0;
          for(int iInterne=0 ; iInterne < nbInternes ; iInterne++){
         	 for(int iService=0 ; iService < nbServices ; iService++){
         		 for(int t=0 ; t < nbJours ; t++){
-        			 if(nomServices[iService] == "SAMU"){
+        			 if("SAMU".equals(nomServices[iService])){
         				 nbGardesInterne[iInterne][cpt] = x[iService][iInterne][t];
         			 	 cpt++;
         			 }
@@ -646,132 +1399,75 @@ public class SolveurPlanning {
         	 cpt = 0;
          }
          
-         // le nombre de garde effectué par chaque interne, moins le nombre de garde théorique ne doit pas s'écarter de plus de nbgardeEcart
-         // revoir la valeur de nbGardeEcart
-         for(int iInterne = 0; iInterne < nbInternes ; iInterne++){
-        	 solveur.post(ICF.sum(nbGardesInterne[iInterne], "<=", VF.fixed(nbGardesTheorique+nbGardeEcart, solveur)));
-        	 solveur.post(ICF.sum(nbGardesInterne[iInterne], ">=", VF.fixed(nbGardesTheorique-nbGardeEcart, solveur)));
-        	 
-         }
+         equilibre("gardesSamu", nbGardesInterne, nbServicesSamu*nbJours, nbGardeEcart, 
+        		 report != null ? report.getGardesSamu() : null);
      }
      
      /**
-      * enchainementDesagreable permettra d'éviter les enchainements de plusieurs gardes à la suite
+      * equilibreJSD va s'assurer que le nombre de jeudi samedi et dimanche sont équilibrés
       */
-     private void enchainementDesagreable(){
-    	 
-    	 //beaucoup beaucoup beaucoup trop long à voir avec la méthode de recherche pour améliorer la vitesse
-    	 // car parfois il trouve une solution en moins d'une seconde == problème à cause du random
-    	/* IntVar[][][] nouveauX = new IntVar[nbInternes][nbJours][nbServices];
-         
-         for(int iService=0; iService < nbServices ; iService++){
-             for(int iIntern=0 ; iIntern < nbInternes ; iIntern++){
-                 for(int t=0 ; t<nbJours ; t++){
-                     nouveauX[iIntern][t][iService] = x[iService][iIntern][t];
-                 }
-             }
-         }   
-    	 
-    	 for(int iService=0 ; iService< nbServices ; iService++){
-    		 for(int iInterne=0 ; iInterne<nbInternes ; iInterne++){
-    			 for(int t=0 ; t<nbJours-4 ; t++){
-    				 solveur.post(LCF.ifThen(LCF.and(ICF.sum(nouveauX[iInterne][t], "=", VF.fixed(1, solveur)), 
-    						 						 ICF.sum(nouveauX[iInterne][t+2], "=", VF.fixed(1, solveur))
-    						 						), 
-    						 				ICF.arithm(x[iService][iInterne][t+4], "=", 0)
-    						 				)
-    						 	 );
-    			 }
-    		 }
-    	 }*/
-    	 
-    	 
+     private void equilibreJSD(){
+         equilibre("gardesJeudi", gardesDuJour(JEUDI), nbJoursDeLaSemaine(JEUDI)*nbServices, nbGardeEcart, 
+        		 report != null ? report.getGardesJeudi() : null);
+         equilibre("gardesSamedi", gardesDuJour(SAMEDI), nbJoursDeLaSemaine(SAMEDI)*nbServices, nbGardeEcart, 
+        		 report != null ? report.getGardesSamedi() : null);
+         equilibre("gardesDimanche", gardesDuJour(DIMANCHE), nbJoursDeLaSemaine(DIMANCHE)*nbServices, nbGardeEcart, 
+        		 report != null ? report.getGardesDimanche() : null);
      }
      
      /**
-      * equilibreJSD va s'assurer que le nombre de jeudi samedi et dimanche sont équilibrés
+      * @param jourSemaine jour de la semaine
+      * @return le nombre de fois où ce jour apparait sur la période
       */
-     private void equilibreJSD(){
-    	 
-    	 int nbJourTheorique = (nbJours*nbServices / NB_JOURS_SEMAINE)/ nbInternes ;
-         System.out.println("nombre de gardes le jeudi/samedi/dimanche théorique: " + nbJourTheorique);
-         
-         // On va regrouper chaque jour dans un tableau qui lui est propre afin d'y appliquer les contraintes plus simplement
-         IntVar[][] jeudis    = new IntVar[nbInternes][(nbJours/NB_JOURS_SEMAINE)*nbServices];
-         IntVar[][] samedis   = new IntVar[nbInternes][(nbJours/NB_JOURS_SEMAINE)*nbServices];
-         IntVar[][] dimanches = new IntVar[nbInternes][(nbJours/NB_JOURS_SEMAINE)*nbServices];
-         int cptJeudi = 0;
-         int cptSamedi = 0;
-         int cptDimanche = 0;
-         for(int iInterne=0 ; iInterne < nbInternes ; iInterne++){
-        	 for(int iService=0 ; iService < nbServices ; iService++){
-        		 for(int t=0 ; t < nbJours ; t++){
-        			 switch (t % NB_JOURS_SEMAINE){
-        			 case JEUDI:
-        				 jeudis[iInterne][cptJeudi] = x[iService][iInterne][t];
-        			 	 cptJeudi++;
-        			 	 break;
-        			 case SAMEDI:
-        				 samedis[iInterne][cptSamedi] = x[iService][iInterne][t];
-        			 	 cptSamedi++;
-        			 	 break;
-        			 case DIMANCHE:
-        				 dimanches[iInterne][cptDimanche] = x[iService][iInterne][t];
-        			 	 cptDimanche++;
-        			 	 break;
-        			 default:
-        				 
-        			 }
-        		 }
-        	 }
-        	 cptJeudi = cptSamedi = cptDimanche = 0;
-         }
-         
-         // le nombre de garde effectué le jeudi/samedi/dimanche par chaque interne est comptabilisé, ce nombre ne doit pas trop s'écarter de la moyenne théorique
-         for(int iInterne = 0; iInterne < nbInternes ; iInterne++){
-        	 solveur.post(ICF.sum(jeudis[iInterne], "<=", VF.fixed(nbJourTheorique+nbGardeEcart, solveur)));
-        	 solveur.post(ICF.sum(jeudis[iInterne], ">=", VF.fixed(nbJourTheorique-nbGardeEcart, solveur)));
-        	 solveur.post(ICF.sum(samedis[iInterne], "<=", VF.fixed(nbJourTheorique+nbGardeEcart, solveur)));
-        	 solveur.post(ICF.sum(samedis[iInterne], ">=", VF.fixed(nbJourTheorique-nbGardeEcart, solveur)));
-        	 solveur.post(ICF.sum(dimanches[iInterne], "<=", VF.fixed(nbJourTheorique+nbGardeEcart, solveur)));
-        	 solveur.post(ICF.sum(dimanches[iInterne], ">=", VF.fixed(nbJourTheorique-nbGardeEcart, solveur)));
-        	 
-         }
-    	 
+     private int nbJoursDeLaSemaine(int jourSemaine){
+    	 int nb = 0;
+    	 for(int t=0 ; t < nbJours ; t++){
+    		 if(t % NB_JOURS_SEMAINE == jourSemaine)
+    			 nb++;
+    	 }
+    	 return nb;
      }
      
      /**
-      * 
+      * @param jourSemaine jour de la semaine
+      * @return pour chaque interne, toutes ses gardes possibles ce jour de la semaine
+      */
+     private IntVar[][] gardesDuJour(int jourSemaine){
+    	 IntVar[][] gardes = new IntVar[nbInternes][nbJoursDeLaSemaine(jourSemaine)*nbServices];
+    	 for(int iInterne=0 ; iInterne < nbInternes ; iInterne++){
+    		 int cpt = 0;
+    		 for(int t=0 ; t < nbJours ; t++){
+    			 if(t % NB_JOURS_SEMAINE == jourSemaine){
+    				 for(int iService=0 ; iService < nbServices ; iService++){
+    					 gardes[iInterne][cpt] = xParInterne[iInterne][t][iService];
+    					 cpt++;
+    				 }
+    			 }
+    		 }
+    	 }
+    	 return gardes;
+     }
+     
+     /**
+      * equilibreAstreinte s'assure que les astreintes sont réparties équitablement
       */
      private void equilibreAstreinte(){
-    	 
-    	 int nbAstreinteTheorique = nbJours / nbInternes ;
-         System.out.println("nombre d'astreintes théorique: " + nbAstreinteTheorique);
-         
-         // On va regrouper toutes les gardes de chaque interne dans un tableau afin de pouvoir faire la somme plus facilement
+         // On va regrouper toutes les astreintes de chaque interne dans un tableau afin de pouvoir faire la somme plus facilement
          // On pourra ensuite comparer cette somme à la valeur attendue
-         IntVar[][] nbAstreinteInterne = new IntVar[nbInternes][nbJours];
+         IntVar[][] nbAstreinteInterne = new IntVar[nbInternes][nbAstreintes*nbJours];
          int cpt = 0;
          for(int iInterne=0 ; iInterne < nbInternes ; iInterne++){
         	 for(int iAstreinte=0 ; iAstreinte < nbAstreintes ; iAstreinte++){
         		 for(int t=0 ; t < nbJours ; t++){
-        			 
-        				 nbAstreinteInterne[iInterne][cpt] = y[iAstreinte][iInterne][t];
-        			 	 cpt++;
-        			
+        			 nbAstreinteInterne[iInterne][cpt] = y[iAstreinte][iInterne][t];
+        			 cpt++;
         		 }
         	 }
         	 cpt = 0;
          }
          
-         // le nombre d'astreinte effectué par chaque interne, moins le nombre d'astreinte théorique ne doit pas s'écarter de plus de nbAstreinteTheorique
-         // revoir la valeur de nbGardeEcart
-         for(int iInterne = 0; iInterne < nbInternes ; iInterne++){
-        	 solveur.post(ICF.sum(nbAstreinteInterne[iInterne], "<=", VF.fixed(nbAstreinteTheorique+nbAstreintesEcart, solveur)));
-        	 solveur.post(ICF.sum(nbAstreinteInterne[iInterne], ">=", VF.fixed(nbAstreinteTheorique-nbAstreintesEcart, solveur)));
-        	 
-         }
-    	 
+         equilibre("astreintes", nbAstreinteInterne, nbAstreintes*nbJours, nbAstreintesEcart, 
+        		 report != null ? report.getAstreintes() : null);
      }
      
      
@@ -801,25 +1497,15 @@ public class SolveurPlanning {
     	 //le problème c'est qu'on veut minimiser chaque indisponibilitée, mais en même temps que cela reste équitable 
     	 
     	 //On compte le nombre d'indisponibilités
-    	 int nbIndisposTotal = 0;
-    	 
-    		 for(int j=0; j< nbInternes ; j++){
-    			 for(int k=0; k< nbJours ; k++){
-    	    		 if (indispoSouple[j][k])
-    	    			 nbIndisposTotal++;
-    	    	 }
-        	 }
-    	 nbIndisposTotal = nbIndisposTotal * nbServices;
+    	 int nbIndisposTotal = indispoSoupleBits.cardinalite() * nbServices;
     	 
     	 IntVar[] varIndispoSouples = new IntVar[nbIndisposTotal];
     	 int cpt = 0;
     	 for(int iInterne=0 ; iInterne<nbInternes ; iInterne++){
-    		 for(int t=0 ; t< nbJours ; t++){
+    		 for(int t=indispoSoupleBits.suivant(iInterne, 0) ; t>=0 ; t=indispoSoupleBits.suivant(iInterne, t+1)){
     			 for(int iService=0 ; iService<nbServices ; iService++){
-    				 if(indispoSouple[iInterne][t]){
-    					 varIndispoSouples[cpt] = x[iService][iInterne][t];
-    				 	 cpt++;
-    				 }
+    				 varIndispoSouples[cpt] = x[iService][iInterne][t];
+    				 cpt++;
     			 } 
     		 }
     	 }
@@ -832,7 +1518,11 @@ public class SolveurPlanning {
      }
      
      
-	public void solve(){
+	/**
+	 * @return les variables sur lesquelles brancher : les gardes et astreintes de x et y dans le modèle booléen,
+	 * l'interne affecté à chaque garde et astreinte, jour par jour, dans le modèle par affectation
+	 */
+	IntVar[] getVariablesDecision(){
 		
 		//On met toutes les gardes dans un seul tableau afin de pouvoir appliquer une stratégie de recherche sur tous les jours
 		IntVar[] toutesLesGardes = new IntVar[nbServices*nbInternes*nbJours + nbAstreintes*nbInternes*nbJours];
@@ -857,13 +1547,316 @@ public class SolveurPlanning {
 			}
 		}
 		
-		//Methode de Recherche
-		for(int iService=0 ; iService < nbServices ; iService++){
-			for(int iInterne=0 ; iInterne < nbInternes ; iInterne++){
-				//solveur.set(ISF.custom(ISF.minDomainSize_var_selector(), ISF.min_value_selector(),toutesLesGardes));
-				solveur.set(ISF.random_value(toutesLesGardes, new Random().nextLong()));
+		//Dans le modèle par affectation, on branche directement sur l'interne affecté à chaque garde et astreinte
+		if(modeleAffectation == ModeleAffectation.ENTIER){
+			toutesLesGardes = new IntVar[(nbServices + nbAstreintes)*nbJours];
+			cpt = 0;
+			for(int t=0 ; t < nbJours ; t++){
+				for(int iService=0 ; iService < nbServices ; iService++){
+					toutesLesGardes[cpt] = affectations[iService][t];
+					cpt++;
+				}
+				for(int iAstreinte=0 ; iAstreinte < nbAstreintes ; iAstreinte++){
+					toutesLesGardes[cpt] = affectationsAstreintes[iAstreinte][t];
+					cpt++;
+				}
+			}
+		}
+		
+		return actives(toutesLesGardes);
+	}
+	
+	/**
+	 * @return la valeur de chaque variable de x et y, et de chaque affectation, dans la solution précédente
+	 */
+	private Map<IntVar, Integer> valeursPrecedentes(){
+		Map<IntVar, Integer> valeurs = new HashMap<IntVar, Integer>();
+		for(int t=0 ; t<nbJours ; t++){
+			for(int iInterne=0 ; iInterne<nbInternes ; iInterne++){
+				for(int iService=0 ; iService<nbServices ; iService++){
+					if(estActive(x[iService][iInterne][t]))
+						valeurs.put(x[iService][iInterne][t], solutionPrecedente.estDeGarde(iService, iInterne, t) ? 1 : 0);
+					if(affectations != null && solutionPrecedente.estDeGarde(iService, iInterne, t))
+						valeurs.put(affectations[iService][t], iInterne);
+				}
+				for(int iAstreinte=0 ; iAstreinte<nbAstreintes ; iAstreinte++){
+					valeurs.put(y[iAstreinte][iInterne][t], solutionPrecedente.estDAstreinte(iAstreinte, iInterne, t) ? 1 : 0);
+					if(affectationsAstreintes != null && solutionPrecedente.estDAstreinte(iAstreinte, iInterne, t))
+						valeurs.put(affectationsAstreintes[iAstreinte][t], iInterne);
+				}
+			}
+		}
+		return valeurs;
+	}
+	
+	/**
+	 * changements compte les gardes et astreintes qui diffèrent de la solution précédente : une case qui valait 1
+	 * change si elle vaut 0, et inversement
+	 * @return le nombre de cases changées
+	 */
+	private IntVar changements(){
+		List<IntVar> cases = new ArrayList<IntVar>();
+		List<Integer> coefficients = new ArrayList<Integer>();
+		int nbUns = 0;
+		for(int t=0 ; t<nbJours ; t++){
+			for(int iInterne=0 ; iInterne<nbInternes ; iInterne++){
+				for(int iService=0 ; iService<nbServices ; iService++){
+					boolean precedente = solutionPrecedente.estDeGarde(iService, iInterne, t);
+					if(precedente)
+						nbUns++;
+					if(estActive(x[iService][iInterne][t])){
+						cases.add(x[iService][iInterne][t]);
+						coefficients.add(precedente ? -1 : 1);
+					}
+				}
+				for(int iAstreinte=0 ; iAstreinte<nbAstreintes ; iAstreinte++){
+					boolean precedente = solutionPrecedente.estDAstreinte(iAstreinte, iInterne, t);
+					if(precedente)
+						nbUns++;
+					cases.add(y[iAstreinte][iInterne][t]);
+					coefficients.add(precedente ? -1 : 1);
+				}
+			}
+		}
+		// changements = nbUns + somme(cases à 0 avant) - somme(cases à 1 avant)
+		IntVar nbChangements = VF.bounded("changements", 0, cases.size() + nbUns, solveur);
+		cases.add(nbChangements);
+		coefficients.add(-1);
+		int[] coeffs = new int[coefficients.size()];
+		for(int k=0 ; k<coeffs.length ; k++){
+			coeffs[k] = coefficients.get(k);
+		}
+		solveur.post(ICF.scalar(cases.toArray(new IntVar[cases.size()]), coeffs, constante(-nbUns)));
+		return nbChangements;
+	}
+	
+	/**
+	 * figer impose les gardes et astreintes de la solution à partir d'un jour, à appeler après l'initialisation
+	 * @param solution solution sur les mêmes jours que ce planning
+	 * @param debut premier jour figé
+	 */
+	void figer(SolutionPlanning solution, int debut){
+		boolean[][] libres = new boolean[nbInternes][nbJours];
+		for(int iInterne=0 ; iInterne<nbInternes ; iInterne++){
+			Arrays.fill(libres[iInterne], 0, debut, true);
+		}
+		figer(solution, libres);
+	}
+	
+	/**
+	 * figer fixe, à la racine de la recherche, les gardes et astreintes de la solution sauf celles laissées libres,
+	 * à appeler après une initialisation qui n'a pas brisé les symétries. Aucune contrainte n'est posée : si une
+	 * case figée sort de son domaine, le planning n'a plus de solution.
+	 * @param solution solution sur les mêmes jours que ce planning
+	 * @param libres pour chaque interne et chaque jour, true si ses gardes et astreintes de ce jour restent libres
+	 */
+	void figer(SolutionPlanning solution, boolean[][] libres){
+		//sans modèle, il n'y a rien à figer
+		if(!violations.isEmpty())
+			return;
+		if(!classesSymetriques.isEmpty())
+			throw new IllegalStateException("Une solution ne peut pas être figée quand les symétries sont brisées");
+		try{
+			for(int t=0 ; t<nbJours ; t++){
+				for(int iInterne=0 ; iInterne<nbInternes ; iInterne++){
+					if(libres[iInterne][t])
+						continue;
+					for(int iService=0 ; iService<nbServices ; iService++){
+						if(estActive(x[iService][iInterne][t]))
+							x[iService][iInterne][t].instantiateTo(solution.estDeGarde(iService, iInterne, t) ? 1 : 0, Cause.Null);
+					}
+					for(int iAstreinte=0 ; iAstreinte<nbAstreintes ; iAstreinte++){
+						y[iAstreinte][iInterne][t].instantiateTo(solution.estDAstreinte(iAstreinte, iInterne, t) ? 1 : 0, Cause.Null);
+					}
+				}
+			}
+		}
+		catch(ContradictionException e){
+			solveur.post(ICF.FALSE(solveur));
+		}
+	}
+	
+	/**
+	 * @return le nombre d'internes aptes et disponibles pour le service ce jour-là, après l'initialisation
+	 */
+	int nbInternesPossibles(int iService, int jour){
+		return possibles[iService].cardinalite(jour);
+	}
+	
+	/**
+	 * @return pour chaque jour (ligne), les internes (colonnes) aptes et disponibles pour le service, après 
+	 * l'initialisation
+	 */
+	TableauBits getPossibles(int iService){
+		return possibles[iService];
+	}
+	
+	/**
+	 * Résout le planning en minimisant les gardes posées sur des indisponibilités souples. Si une limite est atteinte,
+	 * la meilleure solution trouvée jusque-là est rendue. Si la vérification des données a trouvé des violations, la
+	 * recherche n'est pas lancée.
+	 * @return la meilleure solution trouvée, null si aucune
+	 */
+	public SolutionPlanning solve(){
+		if(!violations.isEmpty())
+			return rejeter();
+		long graineRecherche = graine != null ? graine : new Random().nextLong();
+		preparerRecherche(graineRecherche);
+		
+		//Recherche à voisinage large : après chaque solution, ou après echecsParVoisinage échecs, on redémarre
+		//en ne relâchant qu'une partie du planning
+		if(rechercheVoisinage){
+			VoisinagePlanning voisinage = new VoisinagePlanning(this, graineRecherche);
+			voisinage.fastRestart(new FailCounter(echecsParVoisinage));
+			solveur.getSearchLoop().plugSearchMonitor(new LargeNeighborhoodSearch(solveur, voisinage, true));
+		}
+		
+		solveur.findOptimalSolution(ResolutionPolicy.MINIMIZE, objectif);
+		terminerRecherche();
+		return meilleureSolution;
+	}
+	
+	
+	/**
+	 * Cherche un premier planning, sans l'optimiser ni utiliser la recherche à voisinage large, dans les limites de
+	 * solve().
+	 * @return TRUE si un planning existe, qui devient la meilleure solution, FALSE si la recherche a prouvé qu'il 
+	 * n'y en a aucun, UNDEFINED si une limite est atteinte avant
+	 */
+	public ESat verifier(){
+		if(!violations.isEmpty()){
+			rejeter();
+			return ESat.FALSE;
+		}
+		preparerRecherche(graine != null ? graine : new Random().nextLong());
+		solveur.findSolution();
+		terminerRecherche();
+		if(meilleureSolution != null)
+			return ESat.TRUE;
+		return solveur.hasReachedLimit() ? ESat.UNDEFINED : ESat.FALSE;
+	}
+	
+	
+	/**
+	 * Énumère des plannings deux à deux éloignés sur le même modèle. Une coupe par planning du lot est posée avant
+	 * la recherche, et activée dès que son planning est trouvé : la recherche repart alors de la racine, sans
+	 * reconstruire les variables ni les contraintes, avec une stratégie neuve (les poids appris pour un planning
+	 * égarent la recherche du suivant).
+	 * Les plannings ne sont pas optimisés, la recherche à voisinage large est remplacée par des redémarrages, les
+	 * limites de solve() valent pour chaque planning et les écouteurs reçoivent chaque planning.
+	 * @param nbSolutions nombre de plannings voulus
+	 * @param distanceMin nombre minimal de gardes et astreintes qui diffèrent entre deux plannings du lot
+	 * @return les plannings trouvés, au plus nbSolutions, vide si la limite est atteinte avant le premier. La
+	 * meilleure solution devient celle du lot de plus petit objectif.
+	 */
+	public List<SolutionPlanning> solveDiverses(int nbSolutions, int distanceMin){
+		if(nbSolutions < 1 || distanceMin < 1 || distanceMin > 2 * (nbServices + nbAstreintes) * nbJours)
+			throw new IllegalArgumentException("Lot de " + nbSolutions + " plannings à distance " + distanceMin);
+		if(!violations.isEmpty()){
+			rejeter();
+			return new ArrayList<SolutionPlanning>();
+		}
+		//les coupes sont posées avant la stratégie : DOM_WDEG et ACTIVITE ne suivent que les contraintes déjà posées
+		IntVar[][] internesCoupes = new IntVar[nbSolutions - 1][];
+		IntVar[] conserveesCoupes = new IntVar[nbSolutions - 1];
+		metriques.marquer(solveur);
+		for(int iCoupe=0 ; iCoupe<nbSolutions - 1 ; iCoupe++)
+			poserCoupe(iCoupe, internesCoupes, conserveesCoupes);
+		metriques.finRegle("diversite", solveur);
+		long graineRecherche = graine != null ? graine : new Random().nextLong();
+		preparerRecherche(graineRecherche);
+		//redémarrages géométriques : une recherche qui s'enlise repart de la racine avec les poids appris
+		SMF.geometrical(solveur, ECHECS_REDEMARRAGE, 1.5, new FailCounter(ECHECS_REDEMARRAGE), Integer.MAX_VALUE);
+		
+		List<SolutionPlanning> lot = new ArrayList<SolutionPlanning>();
+		while(lot.size() < nbSolutions && solveur.findSolution()){
+			lot.add(meilleureSolution);
+			if(lot.size() == nbSolutions)
+				break;
+			solveur.getEngine().flush();
+			solveur.getSearchLoop().reset();
+			activerCoupe(internesCoupes[lot.size() - 1], conserveesCoupes[lot.size() - 1], meilleureSolution, distanceMin);
+			solveur.set(construireRecherche(graineRecherche + lot.size()));
+		}
+		meilleureSolution = null;
+		for(SolutionPlanning solution : lot){
+			if(meilleureSolution == null || solution.getObjectif() < meilleureSolution.getObjectif())
+				meilleureSolution = solution;
+		}
+		terminerRecherche();
+		return lot;
+	}
+	
+	
+	/**
+	 * poserCoupe pose une coupe inactive : pour chaque service ou astreinte et chaque jour, une variable interne
+	 * encore libre et un booléen qui vaut la garde ou l'astreinte de cet interne ce jour-là, puis la somme de ces
+	 * booléens, bornée par une variable elle aussi libre. Tant que les internes et la borne sont libres, la coupe
+	 * ne retire aucune solution.
+	 */
+	private void poserCoupe(int iCoupe, IntVar[][] internesCoupes, IntVar[] conserveesCoupes){
+		int nbAffectations = (nbServices + nbAstreintes) * nbJours;
+		IntVar[] internes = VF.enumeratedArray("interneCoupe" + iCoupe, nbAffectations, 0, nbInternes - 1, solveur);
+		BoolVar[] conservees = VF.boolArray("conserveeCoupe" + iCoupe, nbAffectations, solveur);
+		for(int k=0 ; k<nbServices + nbAstreintes ; k++){
+			for(int t=0 ; t<nbJours ; t++){
+				IntVar[] internesDuJour = k < nbServices ? xParService[k][t] : yParAstreinte[k - nbServices][t];
+				solveur.post(ICF.element(conservees[k*nbJours + t], internesDuJour, internes[k*nbJours + t], 0));
+			}
+		}
+		internesCoupes[iCoupe] = internes;
+		conserveesCoupes[iCoupe] = VF.bounded("conserveesCoupe" + iCoupe, 0, nbAffectations, solveur);
+		solveur.post(ICF.sum(conservees, conserveesCoupes[iCoupe]));
+	}
+	
+	
+	/**
+	 * activerCoupe fixe, à la racine de la recherche, les internes de la coupe à ceux de la solution, et borne le
+	 * nombre de gardes et astreintes qu'elle garde. Chaque service et chaque astreinte ayant exactement un interne
+	 * par jour, chaque garde ou astreinte retirée est donnée à un autre interne : en retirant la moitié de
+	 * distanceMin, les plannings suivants diffèrent d'au moins distanceMin cases de la solution.
+	 */
+	private void activerCoupe(IntVar[] internes, IntVar conservees, SolutionPlanning solution, int distanceMin){
+		try{
+			for(int iInterne=0 ; iInterne<nbInternes ; iInterne++){
+				for(int t=0 ; t<nbJours ; t++){
+					for(int iService=0 ; iService<nbServices ; iService++){
+						if(solution.estDeGarde(iService, iInterne, t))
+							internes[iService*nbJours + t].instantiateTo(iInterne, Cause.Null);
+					}
+					for(int iAstreinte=0 ; iAstreinte<nbAstreintes ; iAstreinte++){
+						if(solution.estDAstreinte(iAstreinte, iInterne, t))
+							internes[(nbServices + iAstreinte)*nbJours + t].instantiateTo(iInterne, Cause.Null);
+					}
+				}
 			}
+			conservees.updateUpperBound(internes.length - (distanceMin + 1) / 2, Cause.Null);
+		}
+		catch(ContradictionException e){
+			throw new IllegalStateException("Coupe incompatible avec la solution trouvée", e);
 		}
+	}
+	
+	
+	/**
+	 * @return la stratégie de recherche, qui essaie d'abord la solution précédente s'il y en a une
+	 */
+	private AbstractStrategy<IntVar> construireRecherche(long graineRecherche){
+		AbstractStrategy<IntVar> recherche = strategie.construire(this, graineRecherche);
+		if(solutionPrecedente != null)
+			recherche = new StrategiePrecedenteDAbord(recherche, valeursPrecedentes());
+		return recherche;
+	}
+	
+	
+	/**
+	 * preparerRecherche pose la stratégie, l'objectif, les limites et l'enregistrement des solutions communs à
+	 * solve() et solveDiverses()
+	 */
+	private void preparerRecherche(long graineRecherche){
+		
+		//Methode de Recherche
+		solveur.set(construireRecherche(graineRecherche));
 		
 		/**if (solveur.findSolution()) {
             System.out.println("Solution trouvée en " + solveur.getMeasures().getTimeCount() + " secondes");        
@@ -872,77 +1865,91 @@ public class SolveurPlanning {
                     + solveur.getMeasures().getTimeCount() + solveur.getMeasures().getSolutionCount() + " secondes");
         }*/
 		
+		//On minimise le nombre de gardes posées sur des indisponibilités souples
+		metriques.marquer(solveur);
 		IntVar[] joursIndisponibilitesSouples = indisponibiliteSouple();
+		objectif = VF.bounded("objectif", 0, joursIndisponibilitesSouples.length, solveur);
+		posterSomme(joursIndisponibilitesSouples, objectif);
+		metriques.finRegle("indisponibiliteSouple", solveur);
 		
-		IntVar sum = VF.bounded("objectif", 0, 999, solveur);
-		
+		//Et, si demandé, le nombre de cases changées par rapport à la solution précédente
+		changements = null;
+		if(solutionPrecedente != null && poidsChangements > 0){
+			IntVar indisponibilites = objectif;
+			changements = changements();
+			objectif = VF.bounded("objectifChangements", 0, indisponibilites.getUB() + poidsChangements*changements.getUB(), solveur);
+			solveur.post(ICF.scalar(new IntVar[] { indisponibilites, changements }, new int[] { 1, poidsChangements }, objectif));
+			metriques.finRegle("changements", solveur);
+		}
 		
-		// A REMETTRE POUR ACTIVER LES INDISPONIBILITES SOUPLES
-   	 
-   	 	//solveur.post(ICF.sum(joursIndisponibilitesSouples, sum));
-   		 
-   	 
+		if(limiteTemps > 0)
+			SMF.limitTime(solveur, limiteTemps);
+		if(limiteNoeuds > 0)
+			SMF.limitNode(solveur, limiteNoeuds);
+		if(limiteEchecs > 0)
+			SMF.limitFail(solveur, limiteEchecs);
+		if(limiteRetours > 0)
+			SMF.limitBacktrack(solveur, limiteRetours);
 		
-		solveur.findOptimalSolution(ResolutionPolicy.MINIMIZE, sum);
-		System.out.println("Solution trouvée en " + solveur.getMeasures().getTimeCount() + " secondes");
-		System.out.println(sum.getValue());
+		//En optimisation, chaque solution trouvée améliore la précédente
+		meilleureSolution = null;
+		solveur.plugMonitor(new IMonitorSolution() {
+			@Override
+			public void onSolution() {
+				meilleureSolution = new SolutionPlanning(SolveurPlanning.this);
+				metriques.solution(meilleureSolution);
+				for(EcouteurSolutions ecouteur : ecouteurs){
+					ecouteur.nouvelleSolution(meilleureSolution);
+				}
+			}
+		});
 		
 	}
 	
 	
+	/**
+	 * rejeter termine sans recherche une résolution dont les données ont des violations
+	 * @return null, aucune solution
+	 */
+	private SolutionPlanning rejeter(){
+		meilleureSolution = null;
+		return null;
+	}
+	
+	
+	/**
+	 * terminerRecherche publie les métriques et affiche le résultat de la recherche
+	 */
+	private void terminerRecherche(){
+		metriques.finResolution(solveur);
+		for(PuitsMetriques puits : puitsMetriques){
+			puits.publier(metriques);
+		}
+		if(meilleureSolution != null){
+			System.out.println("Solution trouvée en " + meilleureSolution.getTemps() + " secondes");
+			System.out.println(meilleureSolution.getObjectif());
+		}
+		else{
+			System.out.println("Pas de solution trouvée en " + solveur.getMeasures().getTimeCount() + " secondes");
+		}
+	}
+	
 	
+	
+	/**
+	 * Affiche la meilleure solution, interne par interne, à travers un tampon
+	 */
 	public void displayResult(){
-        int sommeDeGardes, sommeDastreintes;
-        int[][] nbGardes = new int[nbServices][nbInternes];
-        int[][] nbAstr = new int[nbAstreintes][nbInternes];
-        for(int i=0; i< nbInternes ; i++){
-            for(int t=0; t< nbJours ; t++){
-            	if(t% NB_JOURS_SEMAINE == LUNDI)
-                	System.out.print("   ");
-                System.out.print("[");
-                for(int j=0; j< nbServices ; j++){
-                    System.out.print((x[j][i][t]).getValue());
-                    nbGardes[j][i] += x[j][i][t].getValue();
-                }
-                System.out.print("] ");
-                
-            }
-            sommeDeGardes =0;
-            for(int k=0; k<nbServices ; k++){
-                System.out.print(nomServices[k] + ": " + nbGardes[k][i] + " ");
-                sommeDeGardes += nbGardes[k][i];
-            }
-            System.out.print(" Total: ");
-            System.out.println(sommeDeGardes);
-            
-        }
-         System.out.println("\n");
-         
-         
-         
-         for(int i=0; i< nbInternes ; i++){
-             for(int t=0; t< nbJours ; t++){
-             	if(t% NB_JOURS_SEMAINE == LUNDI)
-                 	System.out.print("   ");
-                 System.out.print("[");
-                 for(int j=0; j< nbAstreintes ; j++){
-                     System.out.print((y[j][i][t]).getValue());
-                     nbAstr[j][i] += y[j][i][t].getValue();
-                 }
-                 System.out.print("] ");
-                 
-             }
-             sommeDastreintes =0;
-             for(int k=0; k<nbAstreintes ; k++){
-                 System.out.print(nomAstreintes[k] + ": " + nbAstr[k][i] + " ");
-                 sommeDastreintes += nbAstr[k][i];
-             }
-             System.out.print(" Total: ");
-             System.out.println(sommeDastreintes);
-             
-         }
-          System.out.println("");
-        
-    }
+		if(meilleureSolution == null){
+			System.out.println("Pas de solution à afficher");
+			return;
+		}
+		try{
+			new ExportPlanning(this).ecrireTexte(new OutputStreamWriter(System.out));
+		}
+		catch(IOException e){
+			throw new IllegalStateException(e);
+		}
+	}
 
 }
@@ -0,0 +1,58 @@
+package fr.brandon.planning;
+
+import java.util.Map;
+
+import solver.exception.ContradictionException;
+import solver.search.strategy.assignments.DecisionOperator;
+import solver.search.strategy.decision.Decision;
+import solver.search.strategy.decision.fast.FastDecision;
+import solver.search.strategy.strategy.AbstractStrategy;
+import solver.variables.IntVar;
+import util.PoolManager;
+
+/**
+ * Démarrage à chaud : garde l'ordre des variables d'une autre stratégie, mais essaie d'abord pour chaque variable
+ * sa valeur dans une solution précédente, tant qu'elle est encore possible.
+ *
+ * @author Brandon Gommard
+ */
+class StrategiePrecedenteDAbord extends AbstractStrategy<IntVar> {
+
+	private static final long serialVersionUID = 1L;
+	private final AbstractStrategy<IntVar> strategie;
+	private final Map<IntVar, Integer> valeursPrecedentes;
+	private final PoolManager<FastDecision> decisions = new PoolManager<FastDecision>();
+
+	/**
+	 * @param strategie stratégie qui choisit la variable, et sa valeur quand la solution précédente ne convient pas
+	 * @param valeursPrecedentes valeur de chaque variable dans la solution précédente
+	 */
+	StrategiePrecedenteDAbord(AbstractStrategy<IntVar> strategie, Map<IntVar, Integer> valeursPrecedentes){
+		super(strategie.getVariables());
+		this.strategie = strategie;
+		this.valeursPrecedentes = valeursPrecedentes;
+	}
+
+	@Override
+	public void init() throws ContradictionException {
+		strategie.init();
+	}
+
+	@Override
+	public Decision<IntVar> getDecision() {
+		Decision<IntVar> decision = strategie.getDecision();
+		if(decision == null)
+			return null;
+		IntVar variable = decision.getDecisionVariable();
+		Integer valeur = valeursPrecedentes.get(variable);
+		if(valeur == null || !variable.contains(valeur))
+			return decision;
+		// la décision de la stratégie est remplacée par l'affectation à la valeur précédente
+		decision.free();
+		FastDecision precedente = decisions.getE();
+		if(precedente == null)
+			precedente = new FastDecision(decisions);
+		precedente.set(variable, valeur, DecisionOperator.int_eq);
+		return precedente;
+	}
+}
@@ -0,0 +1,22 @@
+package fr.brandon.planning;
+
+import solver.search.strategy.strategy.AbstractStrategy;
+import solver.variables.IntVar;
+
+/**
+ * Stratégie de recherche utilisée par SolveurPlanning.solve()
+ *
+ * Les stratégies prédéfinies sont dans StrategiesPredefinies, mais toute autre stratégie peut être fournie
+ * au solveur avec setStrategie.
+ *
+ * @author Brandon Gommard
+ */
+public interface StrategieRecherche {
+
+	/**
+	 * @param planning le planning initialisé sur lequel la recherche va être lancée
+	 * @param graine graine aléatoire de la recherche
+	 * @return la stratégie à donner au solveur
+	 */
+	AbstractStrategy<IntVar> construire(SolveurPlanning planning, long graine);
+}
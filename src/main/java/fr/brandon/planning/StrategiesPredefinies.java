@@ -0,0 +1,322 @@
+package fr.brandon.planning;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import memory.IStateInt;
+import solver.search.strategy.ISF;
+import solver.search.strategy.selectors.IntValueSelector;
+import solver.search.strategy.selectors.VariableSelector;
+import solver.search.strategy.strategy.AbstractStrategy;
+import solver.variables.IntVar;
+
+/**
+ * Stratégies de recherche prédéfinies pour le planning.
+ *
+ * Dans le modèle booléen on branche sur les gardes et astreintes de x et y en essayant d'abord 1, dans le modèle
+ * par affectation sur l'interne affecté à chaque garde et astreinte.
+ *
+ * @author Brandon Gommard
+ */
+public enum StrategiesPredefinies implements StrategieRecherche {
+
+	/**
+	 * Valeur aléatoire sur toutes les gardes (stratégie historique)
+	 */
+	ALEATOIRE {
+		@Override
+		public AbstractStrategy<IntVar> construire(SolveurPlanning planning, long graine) {
+			return ISF.random_value(planning.getVariablesDecision(), graine);
+		}
+	},
+
+	/**
+	 * Remplit le planning jour après jour, service après service
+	 */
+	JOUR_PAR_JOUR {
+		@Override
+		public AbstractStrategy<IntVar> construire(SolveurPlanning planning, long graine) {
+			return ISF.custom(ISF.lexico_var_selector(), valeurParDefaut(planning), gardesParJour(planning, false));
+		}
+	},
+
+	/**
+	 * Traite d'abord les gardes ayant le moins d'internes possibles
+	 */
+	SERVICE_LE_PLUS_CONTRAINT {
+		@Override
+		public AbstractStrategy<IntVar> construire(SolveurPlanning planning, long graine) {
+			// dans le modèle par affectation, la taille du domaine est exactement le nombre d'internes encore possibles
+			if(planning.getModeleAffectation() == ModeleAffectation.ENTIER)
+				return ISF.custom(ISF.minDomainSize_var_selector(), ISF.min_value_selector(), gardesParJour(planning, true));
+			return ISF.custom(ISF.lexico_var_selector(), ISF.max_value_selector(), gardesParJour(planning, true));
+		}
+	},
+
+	/**
+	 * Affecte en priorité les internes qui ont le moins de gardes encore possibles
+	 */
+	INTERNE_MOINS_OPTIONS {
+		@Override
+		public AbstractStrategy<IntVar> construire(SolveurPlanning planning, long graine) {
+			if(planning.getModeleAffectation() == ModeleAffectation.ENTIER)
+				return ISF.custom(ISF.minDomainSize_var_selector(), new InterneMoinsOptions(planning), gardesParJour(planning, false));
+			GardeInterneMoinsOptions selecteur = new GardeInterneMoinsOptions(planning);
+			return ISF.custom(selecteur, ISF.max_value_selector(), selecteur.getGardes());
+		}
+	},
+
+	/**
+	 * dom/wdeg : variable de plus petit domaine pondéré par le nombre d'échecs de ses contraintes
+	 */
+	DOM_WDEG {
+		@Override
+		public AbstractStrategy<IntVar> construire(SolveurPlanning planning, long graine) {
+			return ISF.domOverWDeg(planning.getVariablesDecision(), graine);
+		}
+	},
+
+	/**
+	 * Recherche basée sur l'activité des variables
+	 */
+	ACTIVITE {
+		@Override
+		public AbstractStrategy<IntVar> construire(SolveurPlanning planning, long graine) {
+			return ISF.activity(planning.getVariablesDecision(), graine);
+		}
+	};
+
+	private static IntValueSelector valeurParDefaut(SolveurPlanning planning){
+		if(planning.getModeleAffectation() == ModeleAffectation.ENTIER)
+			return ISF.min_value_selector();
+		return ISF.max_value_selector();
+	}
+
+	/**
+	 * @param planning le planning initialisé
+	 * @param parContrainte true pour trier, dans chaque jour, les gardes par nombre croissant d'internes possibles
+	 * @return les variables de décision rangées par jour, puis par service et astreinte
+	 */
+	private static IntVar[] gardesParJour(SolveurPlanning planning, boolean parContrainte){
+		List<IntVar> variables = new ArrayList<IntVar>();
+		int nbServices = planning.getNbServices();
+		int nbAstreintes = planning.getNbAstreintes();
+		for(int t=0 ; t<planning.getNbJours() ; t++){
+			int[] ordre = new int[nbServices + nbAstreintes];
+			int[] nbPossibles = new int[nbServices + nbAstreintes];
+			for(int k=0 ; k<ordre.length ; k++){
+				ordre[k] = k;
+				nbPossibles[k] = k < nbServices ? planning.nbInternesPossibles(k, t) : planning.getNbInternes();
+			}
+			if(parContrainte){
+				// tri par insertion, le nombre de services est petit
+				for(int k=1 ; k<ordre.length ; k++){
+					int courant = ordre[k];
+					int l = k - 1;
+					while(l >= 0 && nbPossibles[ordre[l]] > nbPossibles[courant]){
+						ordre[l+1] = ordre[l];
+						l--;
+					}
+					ordre[l+1] = courant;
+				}
+			}
+			for(int k : ordre){
+				boolean astreinte = k >= nbServices;
+				int indice = astreinte ? k - nbServices : k;
+				if(planning.getModeleAffectation() == ModeleAffectation.ENTIER){
+					variables.add(astreinte ? planning.getAffectationsAstreintes()[indice][t] : planning.getAffectations()[indice][t]);
+				}
+				else{
+					for(int iInterne=0 ; iInterne<planning.getNbInternes() ; iInterne++){
+						IntVar garde = astreinte ? planning.getY()[indice][iInterne][t] : planning.getX()[indice][iInterne][t];
+						if(planning.estActive(garde))
+							variables.add(garde);
+					}
+				}
+			}
+		}
+		return variables.toArray(new IntVar[variables.size()]);
+	}
+
+	/**
+	 * Gardes et astreintes actives de chaque interne, celles encore libres rangées en tête. Le nombre de libres de
+	 * chaque interne est restauré au retour arrière, et une garde instanciée n'est repoussée derrière les libres
+	 * qu'une fois : chaque décision ne revoit que les gardes encore libres au noeud précédent, et seulement pour les
+	 * internes qu'elle compare.
+	 */
+	private static class OptionsRestantes {
+
+		private final IntVar[][] gardes;
+		//// rang de chaque garde dans l'ordre des gardes du planning, déplacé avec elle
+		private final int[][] rangs;
+		private final IStateInt[] nbLibres;
+
+		OptionsRestantes(SolveurPlanning planning){
+			List<IntVar> variables = new ArrayList<IntVar>();
+			List<Integer> internes = new ArrayList<Integer>();
+			gardesActives(planning, variables, internes);
+			int nbInternes = planning.getNbInternes();
+			int[] nbGardes = new int[nbInternes];
+			for(int iInterne : internes)
+				nbGardes[iInterne]++;
+			this.gardes = new IntVar[nbInternes][];
+			this.rangs = new int[nbInternes][];
+			this.nbLibres = new IStateInt[nbInternes];
+			for(int iInterne=0 ; iInterne<nbInternes ; iInterne++){
+				gardes[iInterne] = new IntVar[nbGardes[iInterne]];
+				rangs[iInterne] = new int[nbGardes[iInterne]];
+				nbLibres[iInterne] = planning.getSolveur().getEnvironment().makeInt(nbGardes[iInterne]);
+				nbGardes[iInterne] = 0;
+			}
+			for(int k=0 ; k<variables.size() ; k++){
+				int iInterne = internes.get(k);
+				gardes[iInterne][nbGardes[iInterne]] = variables.get(k);
+				rangs[iInterne][nbGardes[iInterne]] = k;
+				nbGardes[iInterne]++;
+			}
+		}
+
+		/**
+		 * @return le nombre de gardes et astreintes qui peuvent encore être affectées à l'interne
+		 */
+		int options(int iInterne){
+			IntVar[] parInterne = gardes[iInterne];
+			int[] rangsInterne = rangs[iInterne];
+			int libres = nbLibres[iInterne].get();
+			int k = 0;
+			while(k < libres){
+				if(parInterne[k].isInstantiated()){
+					libres--;
+					IntVar garde = parInterne[k];
+					parInterne[k] = parInterne[libres];
+					parInterne[libres] = garde;
+					int rang = rangsInterne[k];
+					rangsInterne[k] = rangsInterne[libres];
+					rangsInterne[libres] = rang;
+				}
+				else
+					k++;
+			}
+			if(libres != nbLibres[iInterne].get())
+				nbLibres[iInterne].set(libres);
+			return libres;
+		}
+
+		/**
+		 * @return la position, parmi les gardes libres de l'interne, de celle qui vient la première dans l'ordre du
+		 * planning, à appeler juste après options(iInterne) quand il en reste
+		 */
+		int premiereLibre(int iInterne){
+			int meilleure = 0;
+			for(int k=1 ; k<nbLibres[iInterne].get() ; k++){
+				if(rangs[iInterne][k] < rangs[iInterne][meilleure])
+					meilleure = k;
+			}
+			return meilleure;
+		}
+
+		int getNbInternes(){
+			return gardes.length;
+		}
+
+		IntVar garde(int iInterne, int position){
+			return gardes[iInterne][position];
+		}
+
+		int rang(int iInterne, int position){
+			return rangs[iInterne][position];
+		}
+	}
+
+	/**
+	 * gardesActives range les gardes actives de x puis les astreintes de y, par service, interne et jour, avec
+	 * l'interne de chacune
+	 */
+	private static void gardesActives(SolveurPlanning planning, List<IntVar> variables, List<Integer> internes){
+		IntVar[][][][] matrices = { planning.getX(), planning.getY() };
+		for(IntVar[][][] matrice : matrices){
+			for(IntVar[][] parInterne : matrice){
+				for(int iInterne=0 ; iInterne<parInterne.length ; iInterne++){
+					for(IntVar garde : parInterne[iInterne]){
+						if(planning.estActive(garde)){
+							variables.add(garde);
+							internes.add(iInterne);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Modèle par affectation : choisit parmi les internes possibles celui qui a le moins d'options restantes
+	 */
+	private static class InterneMoinsOptions implements IntValueSelector {
+
+		private static final long serialVersionUID = 1L;
+		private final OptionsRestantes options;
+
+		InterneMoinsOptions(SolveurPlanning planning){
+			this.options = new OptionsRestantes(planning);
+		}
+
+		@Override
+		public int selectValue(IntVar var) {
+			int meilleur = var.getLB();
+			int meilleuresOptions = options.options(meilleur);
+			int ub = var.getUB();
+			for(int interne = var.nextValue(meilleur) ; interne <= ub ; interne = var.nextValue(interne)){
+				int optionsInterne = options.options(interne);
+				if(optionsInterne < meilleuresOptions){
+					meilleur = interne;
+					meilleuresOptions = optionsInterne;
+				}
+			}
+			return meilleur;
+		}
+	}
+
+	/**
+	 * Modèle booléen : choisit une garde non instanciée de l'interne qui a le moins d'options restantes, la première
+	 * dans l'ordre du planning en cas d'égalité
+	 */
+	private static class GardeInterneMoinsOptions implements VariableSelector<IntVar> {
+
+		private static final long serialVersionUID = 1L;
+		private final IntVar[] gardes;
+		private final OptionsRestantes options;
+
+		GardeInterneMoinsOptions(SolveurPlanning planning){
+			List<IntVar> variables = new ArrayList<IntVar>();
+			gardesActives(planning, variables, new ArrayList<Integer>());
+			this.gardes = variables.toArray(new IntVar[variables.size()]);
+			this.options = new OptionsRestantes(planning);
+		}
+
+		/**
+		 * @return les gardes sur lesquelles brancher
+		 */
+		IntVar[] getGardes(){
+			return gardes;
+		}
+
+		@Override
+		public IntVar getVariable(IntVar[] variables) {
+			IntVar meilleure = null;
+			int meilleuresOptions = Integer.MAX_VALUE;
+			int meilleurRang = Integer.MAX_VALUE;
+			for(int iInterne=0 ; iInterne<options.getNbInternes() ; iInterne++){
+				int optionsInterne = options.options(iInterne);
+				if(optionsInterne == 0 || optionsInterne > meilleuresOptions)
+					continue;
+				int position = options.premiereLibre(iInterne);
+				if(optionsInterne < meilleuresOptions || options.rang(iInterne, position) < meilleurRang){
+					meilleure = options.garde(iInterne, position);
+					meilleuresOptions = optionsInterne;
+					meilleurRang = options.rang(iInterne, position);
+				}
+			}
+			return meilleure;
+		}
+	}
+}
@@ -0,0 +1,193 @@
+package fr.brandon.planning;
+
+import java.util.Arrays;
+
+/**
+ * Tableau de booléens à deux dimensions rangé en bits : chaque ligne occupe des mots de 64 bits consécutifs, ce
+ * qui permet de parcourir les bits vrais d'une ligne et de combiner deux tableaux mot par mot.
+ *
+ * @author Brandon Gommard
+ */
+public class TableauBits {
+
+	private final int nbLignes;
+	private final int nbColonnes;
+	private final int motsParLigne;
+	private final long[] mots;
+
+	/**
+	 * Tableau dont tous les bits sont faux
+	 */
+	public TableauBits(int nbLignes, int nbColonnes){
+		this.nbLignes = nbLignes;
+		this.nbColonnes = nbColonnes;
+		this.motsParLigne = (nbColonnes + 63) >>> 6;
+		this.mots = new long[nbLignes * motsParLigne];
+	}
+
+	/**
+	 * @param tableau tableau rectangulaire
+	 * @return le tableau en bits, avec les mêmes lignes
+	 */
+	public static TableauBits depuis(boolean[][] tableau){
+		TableauBits bits = new TableauBits(tableau.length, tableau.length == 0 ? 0 : tableau[0].length);
+		for(int ligne=0 ; ligne<bits.nbLignes ; ligne++){
+			for(int colonne=0 ; colonne<bits.nbColonnes ; colonne++){
+				if(tableau[ligne][colonne])
+					bits.mots[ligne*bits.motsParLigne + (colonne >>> 6)] |= 1L << colonne;
+			}
+		}
+		return bits;
+	}
+
+	/**
+	 * @param tableau tableau rectangulaire
+	 * @return le tableau transposé en bits : la ligne i est la colonne i du tableau
+	 */
+	public static TableauBits transpose(boolean[][] tableau){
+		TableauBits bits = new TableauBits(tableau.length == 0 ? 0 : tableau[0].length, tableau.length);
+		for(int colonne=0 ; colonne<bits.nbColonnes ; colonne++){
+			for(int ligne=0 ; ligne<bits.nbLignes ; ligne++){
+				if(tableau[colonne][ligne])
+					bits.mots[ligne*bits.motsParLigne + (colonne >>> 6)] |= 1L << colonne;
+			}
+		}
+		return bits;
+	}
+
+	public int getNbLignes() {
+		return nbLignes;
+	}
+
+	public int getNbColonnes() {
+		return nbColonnes;
+	}
+
+	public boolean get(int ligne, int colonne){
+		return (mots[ligne*motsParLigne + (colonne >>> 6)] & (1L << colonne)) != 0;
+	}
+
+	public void set(int ligne, int colonne, boolean valeur){
+		if(valeur)
+			mots[ligne*motsParLigne + (colonne >>> 6)] |= 1L << colonne;
+		else
+			mots[ligne*motsParLigne + (colonne >>> 6)] &= ~(1L << colonne);
+	}
+
+	/**
+	 * Parcours des bits vrais : for(int c = bits.suivant(ligne, 0) ; c >= 0 ; c = bits.suivant(ligne, c + 1))
+	 * @return la première colonne à partir de colonne dont le bit est vrai, -1 s'il n'y en a pas
+	 */
+	public int suivant(int ligne, int colonne){
+		if(colonne >= nbColonnes)
+			return -1;
+		int iMot = colonne >>> 6;
+		long mot = mots[ligne*motsParLigne + iMot] & (-1L << colonne);
+		while(mot == 0){
+			iMot++;
+			if(iMot == motsParLigne)
+				return -1;
+			mot = mots[ligne*motsParLigne + iMot];
+		}
+		return (iMot << 6) + Long.numberOfTrailingZeros(mot);
+	}
+
+	/**
+	 * @return le nombre de bits vrais de la ligne
+	 */
+	public int cardinalite(int ligne){
+		int nb = 0;
+		for(int iMot=ligne*motsParLigne ; iMot<(ligne + 1)*motsParLigne ; iMot++)
+			nb += Long.bitCount(mots[iMot]);
+		return nb;
+	}
+
+	/**
+	 * @return le nombre de bits vrais du tableau
+	 */
+	public int cardinalite(){
+		int nb = 0;
+		for(long mot : mots)
+			nb += Long.bitCount(mot);
+		return nb;
+	}
+
+	/**
+	 * @return true si les deux lignes ont les mêmes bits
+	 */
+	public boolean lignesEgales(int ligne, int autreLigne){
+		for(int iMot=0 ; iMot<motsParLigne ; iMot++){
+			if(mots[ligne*motsParLigne + iMot] != mots[autreLigne*motsParLigne + iMot])
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return le nombre de bits qui diffèrent entre les deux tableaux, calculé mot par mot
+	 */
+	public int nbDifferences(TableauBits autre){
+		verifierDimensions(autre);
+		int nb = 0;
+		for(int iMot=0 ; iMot<mots.length ; iMot++)
+			nb += Long.bitCount(mots[iMot] ^ autre.mots[iMot]);
+		return nb;
+	}
+
+	/**
+	 * @return le tableau vrai où ce tableau est vrai et l'autre faux, calculé mot par mot
+	 */
+	public TableauBits etNon(TableauBits autre){
+		verifierDimensions(autre);
+		TableauBits resultat = new TableauBits(nbLignes, nbColonnes);
+		for(int iMot=0 ; iMot<mots.length ; iMot++)
+			resultat.mots[iMot] = mots[iMot] & ~autre.mots[iMot];
+		return resultat;
+	}
+
+	/**
+	 * @return le tableau vrai où les deux tableaux sont vrais, calculé mot par mot
+	 */
+	public TableauBits et(TableauBits autre){
+		verifierDimensions(autre);
+		TableauBits resultat = new TableauBits(nbLignes, nbColonnes);
+		for(int iMot=0 ; iMot<mots.length ; iMot++)
+			resultat.mots[iMot] = mots[iMot] & autre.mots[iMot];
+		return resultat;
+	}
+
+	/**
+	 * @return le tableau vrai où ce tableau est faux
+	 */
+	public TableauBits non(){
+		TableauBits resultat = new TableauBits(nbLignes, nbColonnes);
+		for(int iMot=0 ; iMot<mots.length ; iMot++)
+			resultat.mots[iMot] = ~mots[iMot];
+		//les bits au-delà de la dernière colonne restent faux
+		if((nbColonnes & 63) != 0){
+			long masque = (1L << nbColonnes) - 1;
+			for(int ligne=0 ; ligne<nbLignes ; ligne++)
+				resultat.mots[(ligne + 1)*motsParLigne - 1] &= masque;
+		}
+		return resultat;
+	}
+
+	private void verifierDimensions(TableauBits autre){
+		if(autre.nbLignes != nbLignes || autre.nbColonnes != nbColonnes)
+			throw new IllegalArgumentException("Tableaux de dimensions différentes : " + nbLignes + "x" + nbColonnes
+					+ " et " + autre.nbLignes + "x" + autre.nbColonnes);
+	}
+
+	@Override
+	public boolean equals(Object autre) {
+		if(!(autre instanceof TableauBits))
+			return false;
+		TableauBits tableau = (TableauBits) autre;
+		return nbLignes == tableau.nbLignes && nbColonnes == tableau.nbColonnes && Arrays.equals(mots, tableau.mots);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * (31 * nbLignes + nbColonnes) + Arrays.hashCode(mots);
+	}
+}
@@ -0,0 +1,391 @@
+package fr.brandon.planning;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Vérification des données d'un planning avant la construction du modèle : des comptes qui suffisent souvent à
+ * prouver qu'un planning n'a pas de solution, en quelques millisecondes au lieu d'une longue recherche.
+ *
+ * Trois réseaux de flot sont résolus, chacun ne relâchant que des règles actives du planning :
+ * - chaque jour, un couplage entre les services et les internes aptes et disponibles, chaque interne ne prenant
+ *   qu'une garde par jour
+ * - sur deux jours consécutifs, le même couplage, le repos du lendemain interdisant à un interne une garde chacun
+ *   des deux jours
+ * - sur toute la période, un flot des gardes vers les internes, limité pour chaque interne à une garde par paire
+ *   de jours et à la borne haute de equilibreGarde, et le nombre de gardes possibles de chaque interne comparé à
+ *   la borne basse
+ *
+ * Une violation prouve que le planning n'a pas de solution. L'absence de violation ne prouve rien.
+ *
+ * @author Brandon Gommard
+ */
+public class VerificationFaisabilite {
+
+	private final SolveurPlanning planning;
+	private final int nbServices;
+	private final int nbInternes;
+	private final int nbJours;
+	//// seul le repos du lendemain compte : les autres règles d'enchaînement ne limitent pas ces flots
+	private final boolean reposLendemain;
+	//// pour chaque service et chaque jour (ligne), les internes (colonnes) aptes, disponibles et reposés
+	private final TableauBits[] possibles;
+
+	/**
+	 * @param planning le planning, pas forcément initialisé, dont les données et les règles actives sont vérifiées
+	 */
+	public VerificationFaisabilite(SolveurPlanning planning){
+		this.planning = planning;
+		this.nbServices = planning.getNbServices();
+		this.nbInternes = planning.getNbInternes();
+		this.nbJours = planning.getNbJours();
+		this.reposLendemain = planning.isRegleActive(Regle.REPOS_LENDEMAIN);
+		ReportPlanning report = planning.getReport();
+
+		this.possibles = new TableauBits[nbServices];
+		for(int iService=0 ; iService<nbServices ; iService++){
+			possibles[iService] = new TableauBits(nbJours, nbInternes);
+			for(int iInterne=0 ; iInterne<nbInternes ; iInterne++){
+				boolean indispo = planning.isIndisponibiliteForteActive(iInterne);
+				boolean aptitude = planning.isRegleActive(Regle.EST_CAPABLE);
+				// une garde le dernier jour de la période précédente interdit une garde le premier jour
+				boolean repos = reposLendemain && report != null && (report.getHistorique()[iInterne] & 1) == 1;
+				for(int t=0 ; t<nbJours ; t++){
+					possibles[iService].set(t, iInterne, (!aptitude || planning.getAptitude()[iService][iInterne][t])
+							&& (!indispo || !planning.getIndispoForte()[iInterne][t]) && !(repos && t == 0));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Vérifie les jours, puis les paires de jours si chaque jour peut être couvert, puis l'équilibre si chaque
+	 * paire de jours peut être couverte
+	 * @return les violations trouvées, vide si aucune
+	 */
+	public List<Violation> verifier(){
+		List<Violation> violations = new ArrayList<Violation>();
+		//le modèle par affectation pose toujours la couverture
+		boolean entier = planning.getModeleAffectation() == ModeleAffectation.ENTIER;
+		if(!entier && !planning.isRegleActive(Regle.COUVERTURE_GARDES)){
+			verifierAstreintes(violations, entier);
+			return violations;
+		}
+		for(int t=0 ; t<nbJours ; t++)
+			verifierJours(t, 1, Regle.COUVERTURE_GARDES, violations);
+		verifierAstreintes(violations, entier);
+		if(!violations.isEmpty())
+			return violations;
+
+		if(reposLendemain){
+			for(int t=0 ; t+1<nbJours ; t++)
+				verifierJours(t, 2, Regle.REPOS_LENDEMAIN, violations);
+			if(!violations.isEmpty())
+				return violations;
+		}
+		if(planning.isRegleActive(Regle.EQUILIBRE_GARDE))
+			verifierEquilibre(violations);
+		return violations;
+	}
+
+	/**
+	 * verifierJours couple les gardes de nbJoursCouples jours consécutifs avec les internes possibles, chaque
+	 * interne prenant au plus une de ces gardes, et signale chaque garde qui reste sans interne
+	 */
+	private void verifierJours(int debut, int nbJoursCouples, Regle regle, List<Violation> violations){
+		int nbGardes = nbJoursCouples * nbServices;
+		int source = nbGardes + nbInternes;
+		int puits = source + 1;
+		Reseau reseau = new Reseau(puits + 1);
+		int[] arcsGardes = new int[nbGardes];
+		for(int g=0 ; g<nbGardes ; g++){
+			int t = debut + g / nbServices;
+			int iService = g % nbServices;
+			arcsGardes[g] = reseau.arc(source, g, 1);
+			for(int i=possibles[iService].suivant(t, 0) ; i>=0 ; i=possibles[iService].suivant(t, i+1))
+				reseau.arc(g, nbGardes + i, 1);
+		}
+		for(int iInterne=0 ; iInterne<nbInternes ; iInterne++)
+			reseau.arc(nbGardes + iInterne, puits, 1);
+
+		if(reseau.flotMax(source, puits) == nbGardes)
+			return;
+		for(int g=0 ; g<nbGardes ; g++){
+			if(reseau.flot(arcsGardes[g]) == 0){
+				int t = debut + g / nbServices;
+				int iService = g % nbServices;
+				if(possibles[iService].suivant(t, 0) < 0)
+					violations.add(new Violation(regle, t, iService, -1, "aucun interne apte et disponible"));
+				else if(nbJoursCouples == 1)
+					violations.add(new Violation(regle, t, iService, -1, "pas assez d'internes aptes et disponibles pour tous les services"));
+				else
+					violations.add(new Violation(regle, t, iService, -1, "pas assez d'internes pour les gardes des jours "
+							+ debut + " et " + (debut + 1) + " avec le repos du lendemain"));
+				// un seul interne manquant par paire de jours, les autres gardes dépendent du couplage choisi
+				if(nbJoursCouples > 1)
+					return;
+			}
+		}
+	}
+
+	/**
+	 * verifierAstreintes s'assure qu'il reste au moins un interne sans garde pour les astreintes quand une garde
+	 * exclut l'astreinte, ce que le modèle par affectation pose toujours
+	 */
+	private void verifierAstreintes(List<Violation> violations, boolean entier){
+		int nbAstreintes = planning.getNbAstreintes();
+		int nbLibres = 0;
+		if(nbAstreintes > 0 && (entier || planning.isRegleActive(Regle.COUVERTURE_ASTREINTES)
+				&& planning.isRegleActive(Regle.INCOMPATIBLE_GARDE_ASTREINTE)))
+			nbLibres = 1;
+		int nbGardes = entier || planning.isRegleActive(Regle.COUVERTURE_GARDES) ? nbServices : 0;
+		if(nbGardes + nbLibres > nbInternes)
+			violations.add(new Violation(Regle.COUVERTURE_ASTREINTES, -1, -1, -1, nbInternes + " internes pour "
+					+ nbGardes + " gardes et " + nbAstreintes + " astreintes chaque jour"));
+	}
+
+	/**
+	 * verifierEquilibre compare les bornes de equilibreGarde au nombre de gardes possibles de chaque interne, puis
+	 * fait passer toutes les gardes de la période dans un réseau où chaque interne prend au plus une garde par
+	 * paire de jours (par jour sans le repos du lendemain) et au plus la borne haute
+	 */
+	private void verifierEquilibre(List<Violation> violations){
+		ReportPlanning report = planning.getReport();
+		int total = nbServices * nbJours;
+		int totalReporte = 0;
+		if(report != null){
+			for(int reporte : report.getGardes())
+				totalReporte += reporte;
+		}
+		int[] bornes = SolveurPlanning.bornesEquilibre(planning.getModeEquilibre(), total + totalReporte, nbInternes,
+				planning.getNbGardeEcart());
+
+		int[] bornesHautes = new int[nbInternes];
+		for(int iInterne=0 ; iInterne<nbInternes ; iInterne++){
+			int reporte = report != null ? report.getGardes()[iInterne] : 0;
+			int borneBasse = Math.max(bornes[0] - reporte, 0);
+			bornesHautes[iInterne] = Math.max(Math.max(bornes[0], bornes[1]) - reporte, 0);
+			int nbPossibles = nbGardesPossibles(iInterne);
+			if(nbPossibles < borneBasse)
+				violations.add(new Violation(Regle.EQUILIBRE_GARDE, -1, -1, iInterne, "au plus " + nbPossibles
+						+ " gardes possibles pour une borne basse de " + borneBasse));
+		}
+		if(!violations.isEmpty())
+			return;
+
+		int taillePaquet = reposLendemain ? 2 : 1;
+		int nbPaquets = (nbJours + taillePaquet - 1) / taillePaquet;
+		int premierPaquet = total;
+		int premierInterne = premierPaquet + nbInternes * nbPaquets;
+		int source = premierInterne + nbInternes;
+		int puits = source + 1;
+		Reseau reseau = new Reseau(puits + 1);
+		int[] arcsGardes = new int[total];
+		for(int t=0 ; t<nbJours ; t++){
+			for(int iService=0 ; iService<nbServices ; iService++){
+				int g = t * nbServices + iService;
+				arcsGardes[g] = reseau.arc(source, g, 1);
+				for(int i=possibles[iService].suivant(t, 0) ; i>=0 ; i=possibles[iService].suivant(t, i+1))
+					reseau.arc(g, premierPaquet + i * nbPaquets + t / taillePaquet, 1);
+			}
+		}
+		for(int iInterne=0 ; iInterne<nbInternes ; iInterne++){
+			for(int p=0 ; p<nbPaquets ; p++)
+				reseau.arc(premierPaquet + iInterne * nbPaquets + p, premierInterne + iInterne, 1);
+			reseau.arc(premierInterne + iInterne, puits, bornesHautes[iInterne]);
+		}
+
+		int flot = reseau.flotMax(source, puits);
+		if(flot == total)
+			return;
+		for(int g=0 ; g<total ; g++){
+			if(reseau.flot(arcsGardes[g]) == 0){
+				violations.add(new Violation(Regle.EQUILIBRE_GARDE, g / nbServices, g % nbServices, -1, "au plus "
+						+ flot + " gardes sur " + total + " peuvent être données sans dépasser les bornes hautes"));
+				return;
+			}
+		}
+	}
+
+	/**
+	 * @return le plus grand nombre de jours où l'interne peut être de garde, sans deux jours consécutifs avec le
+	 * repos du lendemain : en prenant chaque jour possible le plus tôt, on en prend le plus
+	 */
+	private int nbGardesPossibles(int iInterne){
+		int nb = 0;
+		int derniere = -2;
+		for(int t=0 ; t<nbJours ; t++){
+			if(reposLendemain && t == derniere + 1)
+				continue;
+			for(int iService=0 ; iService<nbServices ; iService++){
+				if(possibles[iService].get(t, iInterne)){
+					nb++;
+					derniere = t;
+					break;
+				}
+			}
+		}
+		return nb;
+	}
+
+	/**
+	 * Règle violée par les données, avec le jour, le service ou l'interne en cause
+	 */
+	public static class Violation {
+
+		private final Regle regle;
+		private final int jour;
+		private final int service;
+		private final int interne;
+		private final String message;
+
+		Violation(Regle regle, int jour, int service, int interne, String message){
+			this.regle = regle;
+			this.jour = jour;
+			this.service = service;
+			this.interne = interne;
+			this.message = message;
+		}
+
+		public Regle getRegle() {
+			return regle;
+		}
+
+		/**
+		 * @return le jour en cause, -1 si la violation ne dépend pas du jour
+		 */
+		public int getJour() {
+			return jour;
+		}
+
+		/**
+		 * @return l'indice du service en cause, -1 si aucun
+		 */
+		public int getService() {
+			return service;
+		}
+
+		/**
+		 * @return l'interne en cause, -1 si aucun
+		 */
+		public int getInterne() {
+			return interne;
+		}
+
+		public String getMessage() {
+			return message;
+		}
+
+		@Override
+		public String toString() {
+			return regle + (jour >= 0 ? " j" + jour : "") + (service >= 0 ? " service " + service : "")
+					+ (interne >= 0 ? " interne " + interne : "") + " : " + message;
+		}
+	}
+
+	/**
+	 * Réseau de flot à capacités entières, résolu par l'algorithme de Dinic : des flots bloquants successifs dans
+	 * le graphe des niveaux, ce qui sur des capacités unitaires demande peu de phases
+	 */
+	private static class Reseau {
+
+		//// arcs rangés par paires, l'arc a et son arc inverse a ^ 1, chaînés par noeud de départ
+		private final int[] premier;
+		private int[] suivant = new int[16];
+		private int[] cible = new int[16];
+		private int[] capacite = new int[16];
+		private int nbArcs;
+		private final int[] niveau;
+		private final int[] courant;
+
+		Reseau(int nbNoeuds){
+			premier = new int[nbNoeuds];
+			Arrays.fill(premier, -1);
+			niveau = new int[nbNoeuds];
+			courant = new int[nbNoeuds];
+		}
+
+		/**
+		 * @return l'indice de l'arc ajouté
+		 */
+		int arc(int depart, int arrivee, int capaciteArc){
+			if(nbArcs + 2 > cible.length){
+				suivant = Arrays.copyOf(suivant, 2 * cible.length);
+				capacite = Arrays.copyOf(capacite, 2 * cible.length);
+				cible = Arrays.copyOf(cible, 2 * cible.length);
+			}
+			ajouter(depart, arrivee, capaciteArc);
+			ajouter(arrivee, depart, 0);
+			return nbArcs - 2;
+		}
+
+		private void ajouter(int depart, int arrivee, int capaciteArc){
+			cible[nbArcs] = arrivee;
+			capacite[nbArcs] = capaciteArc;
+			suivant[nbArcs] = premier[depart];
+			premier[depart] = nbArcs;
+			nbArcs++;
+		}
+
+		/**
+		 * @return le flot passé par l'arc, qui est la capacité résiduelle de son arc inverse
+		 */
+		int flot(int arc){
+			return capacite[arc ^ 1];
+		}
+
+		int flotMax(int source, int puits){
+			int flot = 0;
+			while(niveaux(source, puits)){
+				System.arraycopy(premier, 0, courant, 0, premier.length);
+				for(int pousse=pousser(source, puits, Integer.MAX_VALUE) ; pousse>0 ; pousse=pousser(source, puits, Integer.MAX_VALUE))
+					flot += pousse;
+			}
+			return flot;
+		}
+
+		/**
+		 * niveaux numérote les noeuds par distance à la source dans le graphe résiduel
+		 * @return true si le puits est encore accessible
+		 */
+		private boolean niveaux(int source, int puits){
+			Arrays.fill(niveau, -1);
+			int[] file = new int[niveau.length];
+			int debut = 0, fin = 0;
+			file[fin++] = source;
+			niveau[source] = 0;
+			while(debut < fin){
+				int noeud = file[debut++];
+				for(int a=premier[noeud] ; a>=0 ; a=suivant[a]){
+					if(capacite[a] > 0 && niveau[cible[a]] < 0){
+						niveau[cible[a]] = niveau[noeud] + 1;
+						file[fin++] = cible[a];
+					}
+				}
+			}
+			return niveau[puits] >= 0;
+		}
+
+		/**
+		 * pousser cherche un chemin augmentant d'un niveau au suivant, en reprenant chaque noeud à l'arc où il
+		 * s'était arrêté
+		 */
+		private int pousser(int noeud, int puits, int disponible){
+			if(noeud == puits)
+				return disponible;
+			for( ; courant[noeud]>=0 ; courant[noeud]=suivant[courant[noeud]]){
+				int a = courant[noeud];
+				if(capacite[a] > 0 && niveau[cible[a]] == niveau[noeud] + 1){
+					int pousse = pousser(cible[a], puits, Math.min(disponible, capacite[a]));
+					if(pousse > 0){
+						capacite[a] -= pousse;
+						capacite[a ^ 1] += pousse;
+						return pousse;
+					}
+				}
+			}
+			return 0;
+		}
+	}
+}
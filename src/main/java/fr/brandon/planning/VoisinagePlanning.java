@@ -0,0 +1,156 @@
+package fr.brandon.planning;
+
+import java.util.Random;
+
+import solver.ICause;
+import solver.exception.ContradictionException;
+import solver.search.loop.lns.neighbors.ANeighbor;
+import solver.variables.IntVar;
+
+/**
+ * Voisinage pour la recherche à voisinage large (LNS) sur le planning.
+ *
+ * A chaque redémarrage, toutes les gardes et astreintes de x et y sont fixées à leur valeur dans la meilleure solution,
+ * sauf celles d'une partie du planning qui est relâchée puis réoptimisée. Les voisinages utilisés à tour de rôle sont
+ * une fenêtre de jours, la colonne d'un service ou d'une astreinte, et un groupe d'internes.
+ *
+ * Fixer les cellules de x et y convient aussi au modèle par affectation, le channeling se charge de fixer les
+ * affectations correspondantes.
+ *
+ * @author Brandon Gommard
+ */
+public class VoisinagePlanning extends ANeighbor {
+
+	private static final int FENETRE_JOURS = 0;
+	private static final int SERVICE = 1;
+	private static final int GROUPE_INTERNES = 2;
+	private static final int NB_VOISINAGES = 3;
+
+	private final SolveurPlanning planning;
+	private final Random random;
+	private final int nbInternes;
+	private final int nbJours;
+	private final int nbServices;
+	private final int nbAstreintes;
+
+	//// meilleure solution, pour x puis pour y
+	private final int[][][] solutionGardes;
+	private final int[][][] solutionAstreintes;
+
+	private final int tailleFenetreInitiale;
+	private final int tailleGroupeInitiale;
+	private int tailleFenetre;
+	private int tailleGroupe;
+	private int voisinage = NB_VOISINAGES - 1;
+
+	//// partie relâchée au dernier appel de fixSomeVariables
+	private boolean[] joursLibres;
+	private boolean[] colonnesLibres;
+	private boolean[] internesLibres;
+	//// true si le dernier voisinage relâchait tout le planning
+	private boolean complet;
+
+	/**
+	 * @param planning le planning initialisé
+	 * @param graine graine du tirage des voisinages
+	 */
+	public VoisinagePlanning(SolveurPlanning planning, long graine){
+		super(planning.getSolveur());
+		this.planning = planning;
+		this.random = new Random(graine);
+		this.nbInternes = planning.getNbInternes();
+		this.nbJours = planning.getNbJours();
+		this.nbServices = planning.getNbServices();
+		this.nbAstreintes = planning.getNbAstreintes();
+		this.solutionGardes = new int[nbServices][nbInternes][nbJours];
+		this.solutionAstreintes = new int[nbAstreintes][nbInternes][nbJours];
+		//on commence par relâcher une semaine, ou un quart des internes
+		this.tailleFenetreInitiale = Math.min(SolveurPlanning.NB_JOURS_SEMAINE, nbJours);
+		this.tailleGroupeInitiale = Math.min(Math.max(2, nbInternes / 4), nbInternes);
+		this.tailleFenetre = tailleFenetreInitiale;
+		this.tailleGroupe = tailleGroupeInitiale;
+	}
+
+	@Override
+	public void recordSolution() {
+		enregistrer(planning.getX(), solutionGardes);
+		enregistrer(planning.getY(), solutionAstreintes);
+		tailleFenetre = tailleFenetreInitiale;
+		tailleGroupe = tailleGroupeInitiale;
+	}
+
+	private void enregistrer(IntVar[][][] gardes, int[][][] solution){
+		for(int k=0 ; k<gardes.length ; k++){
+			for(int iInterne=0 ; iInterne<nbInternes ; iInterne++){
+				for(int t=0 ; t<nbJours ; t++){
+					solution[k][iInterne][t] = gardes[k][iInterne][t].getValue();
+				}
+			}
+		}
+	}
+
+	@Override
+	public void fixSomeVariables(ICause cause) throws ContradictionException {
+		voisinage = (voisinage + 1) % NB_VOISINAGES;
+		joursLibres = new boolean[nbJours];
+		colonnesLibres = new boolean[nbServices + nbAstreintes];
+		internesLibres = new boolean[nbInternes];
+
+		switch(voisinage){
+		case FENETRE_JOURS:
+			int debut = random.nextInt(nbJours - tailleFenetre + 1);
+			for(int t=debut ; t<debut+tailleFenetre ; t++){
+				joursLibres[t] = true;
+			}
+			break;
+		case SERVICE:
+			colonnesLibres[random.nextInt(colonnesLibres.length)] = true;
+			break;
+		default:
+			int nbLibres = 0;
+			while(nbLibres < tailleGroupe){
+				int iInterne = random.nextInt(nbInternes);
+				if(!internesLibres[iInterne]){
+					internesLibres[iInterne] = true;
+					nbLibres++;
+				}
+			}
+		}
+
+		complet = (voisinage == FENETRE_JOURS && tailleFenetre >= nbJours)
+				|| (voisinage == GROUPE_INTERNES && tailleGroupe >= nbInternes);
+		fixer(planning.getX(), solutionGardes, 0, cause);
+		fixer(planning.getY(), solutionAstreintes, nbServices, cause);
+	}
+
+	private void fixer(IntVar[][][] gardes, int[][][] solution, int premiereColonne, ICause cause) throws ContradictionException {
+		for(int k=0 ; k<gardes.length ; k++){
+			if(colonnesLibres[premiereColonne + k])
+				continue;
+			for(int iInterne=0 ; iInterne<nbInternes ; iInterne++){
+				if(internesLibres[iInterne])
+					continue;
+				for(int t=0 ; t<nbJours ; t++){
+					if(!joursLibres[t] && planning.estActive(gardes[k][iInterne][t]))
+						gardes[k][iInterne][t].instantiateTo(solution[k][iInterne][t], cause);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Aucune meilleure solution dans le voisinage : on agrandit la fenêtre de jours et le groupe d'internes
+	 */
+	@Override
+	public void restrictLess() {
+		if(tailleFenetre < nbJours)
+			tailleFenetre++;
+		if(tailleGroupe < nbInternes)
+			tailleGroupe++;
+	}
+
+	@Override
+	public boolean isSearchComplete() {
+		return complet;
+	}
+}
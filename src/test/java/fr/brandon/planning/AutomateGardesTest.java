@@ -0,0 +1,58 @@
+package fr.brandon.planning;
+
+import org.junit.Test;
+
+import solver.constraints.nary.automata.FA.FiniteAutomaton;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for AutomateGardes.
+ */
+public class AutomateGardesTest {
+
+	/**
+	 * Deux gardes consécutives sont refusées
+	 */
+	@Test
+	public void reposLendemainTest() {
+		FiniteAutomaton automate = new AutomateGardes(true, false, false).construire();
+		assertTrue(automate.run(new int[] { 1, 0, 1, 0, 1 }));
+		assertFalse(automate.run(new int[] { 0, 1, 1, 0, 0 }));
+	}
+
+	/**
+	 * Une garde en t, t+2 et t+4 est refusée
+	 */
+	@Test
+	public void enchainementDesagreableTest() {
+		FiniteAutomaton automate = new AutomateGardes(true, true, false).construire();
+		assertTrue(automate.run(new int[] { 1, 0, 1, 0, 0, 1 }));
+		assertFalse(automate.run(new int[] { 1, 0, 1, 0, 1 }));
+	}
+
+	/**
+	 * Une garde le vendredi impose une garde le dimanche et inversement
+	 */
+	@Test
+	public void enchainementVDTest() {
+		FiniteAutomaton automate = new AutomateGardes(true, true, true).construire();
+		assertTrue(automate.run(new int[] { 0, 0, 0, 0, 1, 0, 1 }));
+		assertFalse(automate.run(new int[] { 0, 0, 0, 0, 1, 0, 0 }));
+		assertFalse(automate.run(new int[] { 0, 0, 0, 0, 0, 0, 1 }));
+		assertTrue(automate.run(new int[] { 0, 0, 0, 0, 0, 0, 0, 1 }));
+	}
+
+	/**
+	 * Les règles s'appliquent à la jonction avec les jours précédant la période
+	 */
+	@Test
+	public void historiqueTest() {
+		// garde le dimanche précédent
+		FiniteAutomaton automate = new AutomateGardes(true, true, true).construire(1);
+		assertFalse(automate.run(new int[] { 1, 0, 0 }));
+		assertTrue(automate.run(new int[] { 0, 1, 0 }));
+		// gardes le jeudi et le samedi précédents
+		automate = new AutomateGardes(true, true, true).construire(0b1010);
+		assertFalse(automate.run(new int[] { 1, 0, 0 }));
+	}
+}
@@ -0,0 +1,142 @@
+package fr.brandon.planning;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for ChargeurInstances.
+ */
+public class ChargeurInstancesTest {
+
+	private static final String JSON = "[\n"
+			+ "{ \"nom\": \"Nord\", \"debut\": \"2026-11-02\", \"jours\": 14, \"ecartGardes\": 1, \"ecartAstreintes\": 2,\n"
+			+ "  \"services\": [\"MAT\", \"SAMU\"], \"astreintes\": [\"AST\"], \"nbInternes\": 4,\n"
+			+ "  \"internes\": [\n"
+			+ "    { \"vd\": false, \"indispoForte\": [3, \"2026-11-09..2026-11-10\"] },\n"
+			+ "    { \"indispoSouple\": [\"0..1\"], \"inaptitudes\": { \"SAMU\": \"tous\", \"MAT\": [13] } },\n"
+			+ "    { \"incompatibles\": [0] },\n"
+			+ "    {}\n"
+			+ "  ] },\n"
+			+ "{ \"nom\": \"Sud\", \"jours\": 7, \"ecartGardes\": 2, \"ecartAstreintes\": 2, \"services\": [\"BLOC\"],\n"
+			+ "  \"nbInternes\": 3, \"internes\": [{}, {}, {}] }\n"
+			+ "]";
+
+	private static final String CSV = "# même sites que JSON\n"
+			+ "site;Nord\n"
+			+ "debut;2026-11-02\n"
+			+ "jours;14\n"
+			+ "ecarts;1;2\n"
+			+ "services;MAT;SAMU\n"
+			+ "astreintes;AST\n"
+			+ "internes;4\n"
+			+ "vd;0;non\n"
+			+ "indispoForte;0;3;2026-11-09..2026-11-10\n"
+			+ "indispoSouple;1;0..1\n"
+			+ "inapte;1;SAMU\n"
+			+ "inapte;1;MAT;13\n"
+			+ "incompatible;2;0\n"
+			+ "\n"
+			+ "site;Sud\n"
+			+ "jours;7\n"
+			+ "ecarts;2;2\n"
+			+ "services;BLOC\n"
+			+ "internes;3\n";
+
+	private static void verifierSites(ChargeurInstances chargeur) throws IOException {
+		InstancePlanning nord = chargeur.suivante();
+		assertEquals("Nord", chargeur.getNomSite());
+		assertEquals(2, nord.getNbServices());
+		assertEquals(1, nord.getNbAstreintes());
+		assertEquals(4, nord.getNbInternes());
+		assertEquals(14, nord.getNbJours());
+		assertEquals(1, nord.getNbGardeEcart());
+		assertEquals(2, nord.getNbAstreintesEcart());
+		assertTrue(Arrays.equals(new boolean[] { false, true, true, true }, nord.getVD()));
+		assertTrue(Arrays.equals(new boolean[] { false, false, false, true, false, false, false, true, true, false,
+				false, false, false, false }, nord.getIndispoForte()[0]));
+		assertTrue(nord.getIndispoSouple()[1][0] && nord.getIndispoSouple()[1][1] && !nord.getIndispoSouple()[1][2]);
+		for (int t = 0; t < 14; t++) {
+			assertFalse(nord.getAptitude()[1][1][t]);
+			assertEquals(t != 13, nord.getAptitude()[0][1][t]);
+			assertTrue(nord.getAptitude()[1][0][t]);
+		}
+		assertFalse(nord.getPeutTravailEnsemble()[0][2]);
+		assertFalse(nord.getPeutTravailEnsemble()[2][0]);
+		assertTrue(nord.getPeutTravailEnsemble()[1][2]);
+
+		InstancePlanning sud = chargeur.suivante();
+		assertEquals("Sud", chargeur.getNomSite());
+		assertEquals(0, sud.getNbAstreintes());
+		assertEquals(3, sud.getNbInternes());
+		assertEquals(7, sud.getNbJours());
+		assertNull(chargeur.suivante());
+		assertNull(chargeur.suivante());
+	}
+
+	@Test
+	public void jsonTest() throws IOException {
+		verifierSites(ChargeurInstances.json(new StringReader(JSON)));
+	}
+
+	@Test
+	public void csvTest() throws IOException {
+		verifierSites(ChargeurInstances.csv(new StringReader(CSV)));
+	}
+
+	/**
+	 * Un site seul, sans tableau, est une instance qui se résout
+	 */
+	@Test
+	public void siteSeulTest() throws IOException {
+		ChargeurInstances chargeur = ChargeurInstances.json(new StringReader("{ \"jours\": 7, \"ecartGardes\": 2, "
+				+ "\"ecartAstreintes\": 2, \"services\": [\"MAT\"], \"astreintes\": [], \"nbInternes\": 4 }"));
+		InstancePlanning instance = chargeur.suivante();
+		assertNull(chargeur.getNomSite());
+		assertNull(chargeur.suivante());
+		SolveurPlanning planning = instance.creerSolveur();
+		planning.setStrategie(StrategiesPredefinies.DOM_WDEG);
+		planning.setLimiteTemps(2000);
+		planning.initialisation();
+		assertNotNull(planning.solve());
+	}
+
+	private static String erreur(ChargeurInstances chargeur) throws IOException {
+		try {
+			chargeur.suivante();
+		} catch (IllegalArgumentException e) {
+			return e.getMessage();
+		}
+		fail("Fichier invalide accepté");
+		return null;
+	}
+
+	/**
+	 * Les fichiers incohérents sont refusés avec la ligne fautive
+	 */
+	@Test
+	public void erreursTest() throws IOException {
+		String enTete = "jours;7\necarts;1;1\nservices;MAT\ninternes;2\n";
+		assertEquals("Ligne 5 : jour hors de la période : 7",
+				erreur(ChargeurInstances.csv(new StringReader(enTete + "indispoForte;1;7"))));
+		assertEquals("Ligne 5 : service inconnu : BLOC",
+				erreur(ChargeurInstances.csv(new StringReader(enTete + "inapte;0;BLOC"))));
+		assertEquals("Ligne 2 : nombre de jours manquant",
+				erreur(ChargeurInstances.csv(new StringReader("internes;2\nvd;0;non"))));
+		assertEquals("Ligne 1 : la période doit commencer un lundi : 2026-11-03",
+				erreur(ChargeurInstances.csv(new StringReader("debut;2026-11-03"))));
+
+		String json = "{ \"jours\": 7, \"ecartGardes\": 1, \"ecartAstreintes\": 1, \"services\": [\"MAT\"],\n"
+				+ "\"nbInternes\": 2,\n";
+		assertEquals("Ligne 3 : 2 internes attendus, 1 lus",
+				erreur(ChargeurInstances.json(new StringReader(json + "\"internes\": [{}] }"))));
+		assertEquals("Ligne 3 : \"jours\" doit précéder les données des internes",
+				erreur(ChargeurInstances.json(new StringReader(json + "\"internes\": [{}, {}], \"jours\": 8 }"))));
+		assertEquals("Ligne 3 : interne hors limites : 2",
+				erreur(ChargeurInstances.json(new StringReader(json + "\"internes\": [{ \"incompatibles\": [2] }, {}] }"))));
+	}
+}
@@ -0,0 +1,77 @@
+package fr.brandon.planning;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for CouvertureCliques.
+ */
+public class CouvertureCliquesTest {
+
+	private static boolean[][] sansConflit(int nbInternes) {
+		boolean[][] peutTravaillerEnsemble = new boolean[nbInternes][nbInternes];
+		for (int i = 0; i < nbInternes; i++) {
+			for (int j = 0; j < nbInternes; j++) {
+				peutTravaillerEnsemble[i][j] = true;
+			}
+		}
+		return peutTravaillerEnsemble;
+	}
+
+	/**
+	 * Trois internes incompatibles deux à deux forment une seule clique
+	 */
+	@Test
+	public void triangleTest() {
+		boolean[][] peutTravaillerEnsemble = sansConflit(5);
+		peutTravaillerEnsemble[0][1] = false;
+		peutTravaillerEnsemble[1][2] = false;
+		peutTravaillerEnsemble[2][0] = false;
+
+		List<int[]> cliques = new CouvertureCliques(peutTravaillerEnsemble).calculer();
+		assertEquals(1, cliques.size());
+		assertEquals(3, cliques.get(0).length);
+	}
+
+	/**
+	 * Chaque conflit est couvert et chaque clique ne contient que des internes en conflit
+	 */
+	@Test
+	public void couvertureTest() {
+		int nbInternes = 30;
+		Random random = new Random(42);
+		boolean[][] peutTravaillerEnsemble = sansConflit(nbInternes);
+		for (int i = 0; i < nbInternes; i++) {
+			for (int j = 0; j < nbInternes; j++) {
+				if (i != j && random.nextDouble() < 0.2)
+					peutTravaillerEnsemble[i][j] = false;
+			}
+		}
+
+		CouvertureCliques couverture = new CouvertureCliques(peutTravaillerEnsemble);
+		List<int[]> cliques = couverture.calculer();
+		boolean[][] couvert = new boolean[nbInternes][nbInternes];
+		for (int[] clique : cliques) {
+			for (int a : clique) {
+				for (int b : clique) {
+					if (a != b) {
+						assertTrue("La clique contient deux internes compatibles",
+								couverture.estEnConflit(a, b));
+						couvert[a][b] = true;
+					}
+				}
+			}
+		}
+		for (int i = 0; i < nbInternes; i++) {
+			for (int j = 0; j < nbInternes; j++) {
+				if (!peutTravaillerEnsemble[i][j])
+					assertTrue("Le conflit " + i + "-" + j + " n'est pas couvert",
+							couvert[i][j]);
+			}
+		}
+	}
+}
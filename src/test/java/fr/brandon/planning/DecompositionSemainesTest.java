@@ -0,0 +1,20 @@
+package fr.brandon.planning;
+
+import org.junit.Test;
+
+/**
+ * Unit test for DecompositionSemaines.
+ */
+public class DecompositionSemainesTest {
+
+	/**
+	 * Les semaines recousues forment un planning qui respecte les règles entre les semaines (repos, enchaînements
+	 * désagréables, vendredi-dimanche) et l'équilibre de chaque catégorie sur toute la période
+	 */
+	@Test
+	public void resoudreTest() {
+		SolveurPlanning planning = PlanningsGeneres.planning(84, 3);
+		SolutionPlanning solution = new DecompositionSemaines(planning, 4).resoudre();
+		PlanningsGeneres.verifierRegles(planning, solution);
+	}
+}
@@ -0,0 +1,147 @@
+package fr.brandon.planning;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import util.ESat;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for DiagnosticPlanning.
+ */
+public class DiagnosticPlanningTest {
+
+	private static final int NB_INTERNES = 5;
+	private static final int NB_JOURS = 7;
+
+	/**
+	 * Un service et une astreinte pour 5 internes sur une semaine, les internes 1 à 4 étant indisponibles le
+	 * mercredi, et l'interne 0 aussi si demandé
+	 */
+	private static SolveurPlanning planning(boolean mercrediVide) {
+		boolean[] respectVD = new boolean[NB_INTERNES];
+		boolean[][] indispoForte = new boolean[NB_INTERNES][NB_JOURS];
+		boolean[][] peutTravaillerEnsemble = new boolean[NB_INTERNES][NB_INTERNES];
+		boolean[][][] aptitude = new boolean[1][NB_INTERNES][NB_JOURS];
+		for (int i = 0; i < NB_INTERNES; i++) {
+			respectVD[i] = true;
+			indispoForte[i][SolveurPlanning.MERCREDI] = i > 0 || mercrediVide;
+			for (int j = 0; j < NB_INTERNES; j++) {
+				peutTravaillerEnsemble[i][j] = true;
+			}
+			for (int t = 0; t < NB_JOURS; t++) {
+				aptitude[0][i][t] = true;
+			}
+		}
+		SolveurPlanning planning = new SolveurPlanning(1, 1, NB_INTERNES, NB_JOURS, 1, 2, new String[] { "MAT" },
+				new String[] { "AST" }, respectVD, indispoForte, new boolean[NB_INTERNES][NB_JOURS],
+				peutTravaillerEnsemble, aptitude);
+		planning.setStrategie(StrategiesPredefinies.DOM_WDEG);
+		planning.setGraine(0);
+		return planning;
+	}
+
+	/**
+	 * Un service et une astreinte pour 5 internes sur une semaine, seul l'interne 0 étant disponible le vendredi, et
+	 * indisponible le dimanche
+	 */
+	private static SolveurPlanning planningVD() {
+		SolveurPlanning planning = planning(false);
+		for (int i = 0; i < NB_INTERNES; i++) {
+			planning.getIndispoForte()[i][SolveurPlanning.MERCREDI] = false;
+			planning.getIndispoForte()[i][SolveurPlanning.VENDREDI] = i > 0;
+		}
+		planning.getIndispoForte()[0][SolveurPlanning.DIMANCHE] = true;
+		return planning;
+	}
+
+	private static void verifierConflit(List<DiagnosticPlanning.Groupe> conflit) {
+		assertNotNull(conflit);
+		assertEquals(NB_INTERNES + 1, conflit.size());
+		assertEquals(Regle.COUVERTURE_GARDES, conflit.get(0).getRegle());
+		for (int i = 0; i < NB_INTERNES; i++) {
+			assertEquals(Regle.INDISPONIBILITE_FORTE, conflit.get(i + 1).getRegle());
+			assertEquals(i, conflit.get(i + 1).getInterne());
+		}
+	}
+
+	/**
+	 * Personne ne peut prendre la garde du mercredi : le conflit est la couverture des gardes et les
+	 * indisponibilités de tous les internes
+	 */
+	@Test
+	public void conflitTest() {
+		DiagnosticPlanning diagnostic = new DiagnosticPlanning(planning(true));
+		diagnostic.setNbThreads(1);
+		verifierConflit(diagnostic.diagnostiquer());
+		assertTrue(diagnostic.isMinimal());
+	}
+
+	/**
+	 * Les vérifications anticipées sur plusieurs threads donnent le même conflit
+	 */
+	@Test
+	public void parallelTest() {
+		DiagnosticPlanning diagnostic = new DiagnosticPlanning(planning(true));
+		diagnostic.setNbThreads(3);
+		verifierConflit(diagnostic.diagnostiquer());
+		assertTrue(diagnostic.isMinimal());
+	}
+
+	/**
+	 * La garde du vendredi impose à l'interne 0 celle du dimanche par la seule règle VD : le conflit la sépare du
+	 * repos du lendemain et des enchaînements désagréables
+	 */
+	@Test
+	public void regleVDTest() {
+		DiagnosticPlanning diagnostic = new DiagnosticPlanning(planningVD());
+		diagnostic.setNbThreads(1);
+		List<DiagnosticPlanning.Groupe> conflit = diagnostic.diagnostiquer();
+		assertNotNull(conflit);
+		assertTrue(diagnostic.isMinimal());
+		assertEquals(NB_INTERNES + 2, conflit.size());
+		assertEquals(Regle.COUVERTURE_GARDES, conflit.get(0).getRegle());
+		assertEquals(Regle.ENCHAINEMENT_VD, conflit.get(1).getRegle());
+		for (int i = 0; i < NB_INTERNES; i++) {
+			assertEquals(Regle.INDISPONIBILITE_FORTE, conflit.get(i + 2).getRegle());
+			assertEquals(i, conflit.get(i + 2).getInterne());
+		}
+
+		SolveurPlanning planning = planningVD();
+		planning.setRegleActive(Regle.ENCHAINEMENT_VD, false);
+		planning.initialisation();
+		assertEquals(ESat.TRUE, planning.verifier());
+	}
+
+	@Test
+	public void faisableTest() {
+		DiagnosticPlanning diagnostic = new DiagnosticPlanning(planning(false));
+		diagnostic.setNbThreads(1);
+		assertEquals(Regle.values().length - 1 + NB_INTERNES - 1, diagnostic.getGroupes().size());
+		assertNull(diagnostic.diagnostiquer());
+		assertEquals(1, diagnostic.getNbVerifications());
+	}
+
+	/**
+	 * Ignorer les indisponibilités d'un seul interne suffit à couvrir le mercredi, et il est alors de garde
+	 */
+	@Test
+	public void regleDesactiveeTest() {
+		SolveurPlanning planning = planning(true);
+		planning.initialisation();
+		assertEquals(ESat.FALSE, planning.verifier());
+
+		planning = planning(true);
+		planning.setIndisponibiliteForteActive(3, false);
+		planning.initialisation();
+		assertEquals(ESat.TRUE, planning.verifier());
+		assertTrue(planning.getMeilleureSolution().estDeGarde(0, 3, SolveurPlanning.MERCREDI));
+
+		planning = planning(true);
+		planning.setRegleActive(Regle.COUVERTURE_GARDES, false);
+		planning.setModeleCreux(true);
+		planning.initialisation();
+		assertEquals(ESat.TRUE, planning.verifier());
+	}
+}
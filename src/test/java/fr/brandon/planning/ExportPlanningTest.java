@@ -0,0 +1,153 @@
+package fr.brandon.planning;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.util.TimeZone;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for ExportPlanning.
+ */
+public class ExportPlanningTest {
+
+	private static final String[] SERVICES = { "MAT", "SAMU" };
+	private static final String[] ASTREINTES = { "AST" };
+	// lundi 2 novembre 2026
+	private static final String DEBUT = "2026-11-02";
+
+	/**
+	 * 3 internes sur 8 jours : le service k est tenu le jour t par l'interne (t + k) % 3, l'astreinte par l'interne
+	 * t % 3, sauf le dernier jour sans astreinte
+	 */
+	private static SolutionPlanning solution() {
+		boolean[][][] gardes = new boolean[2][3][8];
+		boolean[][][] astreintes = new boolean[1][3][8];
+		for (int t = 0; t < 8; t++) {
+			for (int k = 0; k < 2; k++) {
+				gardes[k][(t + k) % 3][t] = true;
+			}
+			if (t < 7) {
+				astreintes[0][t % 3][t] = true;
+			}
+		}
+		return new SolutionPlanning(gardes, astreintes, 12, 0.5);
+	}
+
+	private static ExportPlanning export() {
+		ExportPlanning export = new ExportPlanning(solution(), SERVICES, ASTREINTES);
+		export.setDebut(DEBUT);
+		return export;
+	}
+
+	@Test
+	public void csvTest() throws Exception {
+		StringWriter sortie = new StringWriter();
+		export().ecrireCsv(sortie);
+		String[] lignes = sortie.toString().split("\r?\n");
+		assertEquals(9, lignes.length);
+		assertEquals("jour;date;MAT;SAMU;AST", lignes[0]);
+		assertEquals("0;2026-11-02;0;1;0", lignes[1]);
+		assertEquals("7;2026-11-09;1;2;", lignes[8]);
+	}
+
+	@Test
+	public void jsonTest() throws Exception {
+		StringWriter sortie = new StringWriter();
+		export().ecrireJson(sortie);
+		String json = sortie.toString();
+		assertTrue(json.startsWith("{\"objectif\":12,\"nbInternes\":3,\"debut\":\"2026-11-02\""));
+		assertTrue(json.contains("\"services\":[\"MAT\",\"SAMU\"],\"astreintes\":[\"AST\"]"));
+		assertTrue(json.contains("{\"jour\":1,\"date\":\"2026-11-03\",\"MAT\":1,\"SAMU\":2,\"AST\":1}"));
+		assertTrue(json.contains("{\"jour\":7,\"date\":\"2026-11-09\",\"MAT\":1,\"SAMU\":2,\"AST\":null}"));
+	}
+
+	/**
+	 * Le calendrier d'un interne a un événement par garde et par astreinte, avec des fins de ligne CRLF
+	 */
+	@Test
+	public void iCalendarTest() throws Exception {
+		StringWriter sortie = new StringWriter();
+		export().ecrireICalendar(sortie, 0);
+		String calendrier = sortie.toString();
+		assertTrue(calendrier.startsWith("BEGIN:VCALENDAR\r\n"));
+		assertTrue(calendrier.endsWith("END:VCALENDAR\r\n"));
+		// MAT les jours 0, 3, 6 ; SAMU les jours 2, 5 ; AST les jours 0, 3, 6
+		assertEquals(8, calendrier.split("BEGIN:VEVENT").length - 1);
+		assertTrue(calendrier.contains("DTSTART;VALUE=DATE:20261102\r\nDTEND;VALUE=DATE:20261103\r\nSUMMARY:Garde MAT\r\n"));
+		assertTrue(calendrier.contains("DTSTART;VALUE=DATE:20261104\r\nDTEND;VALUE=DATE:20261105\r\nSUMMARY:Garde SAMU\r\n"));
+		assertTrue(calendrier.contains("SUMMARY:Astreinte AST\r\n"));
+
+		try {
+			new ExportPlanning(solution(), SERVICES, ASTREINTES).ecrireICalendar(new StringWriter(), 0);
+			fail("iCalendar sans date de début");
+		} catch (IllegalStateException e) {
+			// attendu
+		}
+	}
+
+	/**
+	 * Les dates ne dépendent pas du fuseau horaire local, même à l'est ou à l'ouest de UTC
+	 */
+	@Test
+	public void fuseauTest() throws Exception {
+		TimeZone fuseau = TimeZone.getDefault();
+		try {
+			for (String id : new String[] { "Europe/Paris", "America/Los_Angeles", "Pacific/Auckland" }) {
+				TimeZone.setDefault(TimeZone.getTimeZone(id));
+				StringWriter sortie = new StringWriter();
+				export().ecrireCsv(sortie);
+				String[] lignes = sortie.toString().split("\r?\n");
+				assertEquals(id, "0;2026-11-02;0;1;0", lignes[1]);
+				assertEquals(id, "7;2026-11-09;1;2;", lignes[8]);
+			}
+		} finally {
+			TimeZone.setDefault(fuseau);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void dateInvalideTest() {
+		new ExportPlanning(solution(), SERVICES, ASTREINTES).setDebut("2026-11-31");
+	}
+
+	@Test
+	public void binaireTest() throws Exception {
+		ByteArrayOutputStream sortie = new ByteArrayOutputStream();
+		export().ecrireBinaire(sortie);
+		ExportPlanning relu = ExportPlanning.lireBinaire(new ByteArrayInputStream(sortie.toByteArray()));
+		assertArrayEquals(SERVICES, relu.getNomServices());
+		assertArrayEquals(ASTREINTES, relu.getNomAstreintes());
+		SolutionPlanning solution = relu.getSolution();
+		assertEquals(0, solution.nbDifferences(solution()));
+		assertEquals(12, solution.getObjectif());
+		assertEquals(-1, relu.getInterneDAstreinte(0, 7));
+
+		StringWriter csv = new StringWriter();
+		relu.ecrireCsv(csv);
+		StringWriter attendu = new StringWriter();
+		export().ecrireCsv(attendu);
+		assertEquals(attendu.toString(), csv.toString());
+	}
+
+	@Test
+	public void texteTest() throws Exception {
+		StringWriter sortie = new StringWriter();
+		export().ecrireTexte(sortie);
+		String[] lignes = sortie.toString().split("\r?\n", -1);
+		assertEquals("   [10] [00] [01] [10] [00] [01] [10]    [00] MAT: 3 SAMU: 2  Total: 5", lignes[0]);
+		assertEquals("", lignes[3]);
+		assertEquals("   [1] [0] [0] [1] [0] [0] [1]    [0] AST: 3  Total: 3", lignes[5]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void doublonTest() {
+		boolean[][][] gardes = new boolean[2][3][8];
+		gardes[0][0][0] = true;
+		gardes[0][1][0] = true;
+		new ExportPlanning(new SolutionPlanning(gardes, new boolean[1][3][8], 0, 0), SERVICES, ASTREINTES);
+	}
+}
@@ -0,0 +1,59 @@
+package fr.brandon.planning;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import solver.search.loop.monitors.SMF;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for GenerateurInstances.
+ */
+public class GenerateurInstancesTest {
+
+	private static GenerateurInstances generateur(int nbInternes, int nbJours, long graine) {
+		GenerateurInstances generateur = new GenerateurInstances();
+		generateur.setNbInternes(nbInternes);
+		generateur.setNbJours(nbJours);
+		generateur.setDensiteIndispoForte(0.1);
+		generateur.setDensiteConflits(0.1);
+		generateur.setDensiteInaptitudes(0.1);
+		generateur.setGraine(graine);
+		return generateur;
+	}
+
+	/**
+	 * Deux générations avec la même graine donnent la même instance
+	 */
+	@Test
+	public void memeGraineTest() {
+		InstancePlanning a = generateur(20, 28, 7).generer();
+		InstancePlanning b = generateur(20, 28, 7).generer();
+		assertTrue(Arrays.equals(a.getVD(), b.getVD()));
+		assertTrue(Arrays.deepEquals(a.getIndispoForte(), b.getIndispoForte()));
+		assertTrue(Arrays.deepEquals(a.getIndispoSouple(), b.getIndispoSouple()));
+		assertTrue(Arrays.deepEquals(a.getPeutTravailEnsemble(), b.getPeutTravailEnsemble()));
+		assertTrue(Arrays.deepEquals(a.getAptitude(), b.getAptitude()));
+		assertEquals(a.getNbGardeEcart(), b.getNbGardeEcart());
+	}
+
+	/**
+	 * Les instances générées faisables admettent un planning
+	 */
+	@Test
+	public void faisableTest() {
+		int[][] dimensions = { { 10, 14 }, { 15, 28 }, { 30, 35 } };
+		for (int[] dimension : dimensions) {
+			for (long graine = 0; graine < 3; graine++) {
+				SolveurPlanning planning = generateur(dimension[0], dimension[1], graine).generer().creerSolveur();
+				planning.setStrategie(StrategiesPredefinies.DOM_WDEG);
+				planning.setGraine(0);
+				planning.initialisation();
+				SMF.limitSolution(planning.getSolveur(), 1);
+				assertNotNull("Pas de planning pour " + dimension[0] + " internes sur " + dimension[1]
+						+ " jours, graine " + graine, planning.solve());
+			}
+		}
+	}
+}
@@ -0,0 +1,32 @@
+package fr.brandon.planning;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for HorizonGlissant.
+ */
+public class HorizonGlissantTest {
+
+	/**
+	 * Le planning par fenêtres de 5 semaines, la dernière n'en ayant que 2, respecte les règles d'enchaînement à la
+	 * jonction des fenêtres, et son report cumule chaque catégorie avec l'équilibre de toute la période
+	 */
+	@Test
+	public void resoudreTest() {
+		SolveurPlanning planning = PlanningsGeneres.planning(84, 3);
+		HorizonGlissant horizon = new HorizonGlissant(planning, 5);
+		SolutionPlanning solution = horizon.resoudre();
+		ReportPlanning cumul = PlanningsGeneres.verifierRegles(planning, solution);
+
+		ReportPlanning report = horizon.getReport();
+		assertArrayEquals(cumul.getGardes(), report.getGardes());
+		assertArrayEquals(cumul.getGardesSamu(), report.getGardesSamu());
+		assertArrayEquals(cumul.getGardesJeudi(), report.getGardesJeudi());
+		assertArrayEquals(cumul.getGardesSamedi(), report.getGardesSamedi());
+		assertArrayEquals(cumul.getGardesDimanche(), report.getGardesDimanche());
+		assertArrayEquals(cumul.getAstreintes(), report.getAstreintes());
+		assertArrayEquals(cumul.getHistorique(), report.getHistorique());
+	}
+}
@@ -0,0 +1,83 @@
+package fr.brandon.planning;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for InternesEquivalents.
+ */
+public class InternesEquivalentsTest {
+
+	private static final int NB_INTERNES = 8;
+	private static final int NB_JOURS = 14;
+
+	private boolean[][] peutTravaillerEnsemble = new boolean[NB_INTERNES][NB_INTERNES];
+	private boolean[][] indispoSouple = new boolean[NB_INTERNES][NB_JOURS];
+
+	public InternesEquivalentsTest() {
+		for (int i = 0; i < NB_INTERNES; i++) {
+			for (int j = 0; j < NB_INTERNES; j++) {
+				peutTravaillerEnsemble[i][j] = true;
+			}
+		}
+	}
+
+	private SolveurPlanning planning() {
+		boolean[] respectVD = new boolean[NB_INTERNES];
+		for (int i = 0; i < NB_INTERNES; i++) {
+			respectVD[i] = true;
+		}
+		respectVD[0] = false;
+		boolean[][][] aptitude = new boolean[2][NB_INTERNES][NB_JOURS];
+		for (int iService = 0; iService < 2; iService++) {
+			for (int i = 0; i < NB_INTERNES; i++) {
+				for (int t = 0; t < NB_JOURS; t++) {
+					aptitude[iService][i][t] = true;
+				}
+			}
+		}
+		aptitude[1][1][5] = false;
+		return new SolveurPlanning(2, 1, NB_INTERNES, NB_JOURS, 2, 2, new String[] { "MAT", "SAMU" },
+				new String[] { "AST" }, respectVD, new boolean[NB_INTERNES][NB_JOURS], indispoSouple,
+				peutTravaillerEnsemble, aptitude);
+	}
+
+	/**
+	 * Les internes qui diffèrent par la règle VD, une aptitude ou une indisponibilité sont seuls dans leur classe
+	 */
+	@Test
+	public void calculerTest() {
+		indispoSouple[2][3] = true;
+		List<int[]> classes = new InternesEquivalents(planning()).calculer();
+		assertEquals(1, classes.size());
+		assertArrayEquals(new int[] { 3, 4, 5, 6, 7 }, classes.get(0));
+	}
+
+	/**
+	 * Deux internes en conflit l'un avec l'autre restent interchangeables entre eux, pas avec les autres
+	 */
+	@Test
+	public void conflitTest() {
+		peutTravaillerEnsemble[4][5] = false;
+		List<int[]> classes = new InternesEquivalents(planning()).calculer();
+		assertEquals(2, classes.size());
+		assertArrayEquals(new int[] { 2, 3, 6, 7 }, classes.get(0));
+		assertArrayEquals(new int[] { 4, 5 }, classes.get(1));
+	}
+
+	/**
+	 * Le report des périodes précédentes distingue les internes
+	 */
+	@Test
+	public void reportTest() {
+		SolveurPlanning planning = planning();
+		ReportPlanning report = new ReportPlanning(NB_INTERNES);
+		report.getGardes()[3]++;
+		planning.setReport(report);
+		assertFalse(new InternesEquivalents(planning).sontEquivalents(3, 4));
+		assertArrayEquals(new int[] { 2, 4, 5, 6, 7 }, new InternesEquivalents(planning).calculer().get(0));
+	}
+}
@@ -0,0 +1,57 @@
+package fr.brandon.planning;
+
+import static org.junit.Assert.*;
+
+/**
+ * Plannings sur des instances générées, partagés par les tests des résolutions par morceaux, et vérification de
+ * leurs règles sur toute la période.
+ */
+final class PlanningsGeneres {
+
+	static final int NB_INTERNES = 12;
+
+	private PlanningsGeneres() {
+	}
+
+	/**
+	 * @return un planning, pas encore initialisé, sur une instance générée de 12 internes, résolu avec dom/wdeg en
+	 * au plus 2 secondes par résolution
+	 */
+	static SolveurPlanning planning(int nbJours, long graine) {
+		GenerateurInstances generateur = new GenerateurInstances();
+		generateur.setNbInternes(NB_INTERNES);
+		generateur.setNbJours(nbJours);
+		generateur.setGraine(graine);
+		SolveurPlanning planning = generateur.generer().creerSolveur();
+		planning.setStrategie(StrategiesPredefinies.DOM_WDEG);
+		planning.setGraine(0);
+		planning.setLimiteTemps(2000);
+		return planning;
+	}
+
+	/**
+	 * Vérifie que chaque service a un interne chaque jour, les enchaînements depuis le début de la période (repos,
+	 * enchaînements désagréables, vendredi-dimanche) et l'équilibre de chaque catégorie sur toute la période
+	 * @return le report cumulé de la solution
+	 */
+	static ReportPlanning verifierRegles(SolveurPlanning planning, SolutionPlanning solution) {
+		assertNotNull(solution);
+		assertEquals(planning.getNbJours(), solution.getNbJours());
+		for (int iService = 0; iService < solution.getNbServices(); iService++) {
+			for (int t = 0; t < solution.getNbJours(); t++) {
+				int nbDeGarde = 0;
+				for (int iInterne = 0; iInterne < solution.getNbInternes(); iInterne++) {
+					if (solution.estDeGarde(iService, iInterne, t))
+						nbDeGarde++;
+				}
+				assertEquals("Service " + iService + " au jour " + t, 1, nbDeGarde);
+			}
+		}
+		DecompositionSemaines regles = new DecompositionSemaines(planning, 1);
+		ReportPlanning debut = new ReportPlanning(planning.getNbInternes());
+		assertTrue(regles.enchaine(debut, solution));
+		ReportPlanning cumul = debut.cumuler(solution, planning.getNomServices());
+		assertTrue(regles.estEquilibre(cumul));
+		return cumul;
+	}
+}
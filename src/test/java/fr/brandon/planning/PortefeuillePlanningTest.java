@@ -0,0 +1,114 @@
+package fr.brandon.planning;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for PortefeuillePlanning.
+ */
+public class PortefeuillePlanningTest {
+
+	//// limite de chaque solveur, bien au-delà du temps attendu : le portefeuille doit s'arrêter avant
+	private static final long LIMITE = 60000;
+
+	/**
+	 * Un service et une astreinte pour 6 internes sur deux semaines, chaque interne ayant des indisponibilités
+	 * souples, et tous étant indisponibles le mercredi si demandé
+	 */
+	private static SolveurPlanning planning(boolean mercrediVide) {
+		int nbInternes = 6;
+		int nbJours = 14;
+		boolean[] respectVD = new boolean[nbInternes];
+		boolean[][] indispoForte = new boolean[nbInternes][nbJours];
+		boolean[][] indispoSouple = new boolean[nbInternes][nbJours];
+		boolean[][] peutTravaillerEnsemble = new boolean[nbInternes][nbInternes];
+		boolean[][][] aptitude = new boolean[1][nbInternes][nbJours];
+		for (int i = 0; i < nbInternes; i++) {
+			respectVD[i] = true;
+			indispoForte[i][SolveurPlanning.MERCREDI] = mercrediVide;
+			for (int j = 0; j < nbInternes; j++) {
+				peutTravaillerEnsemble[i][j] = true;
+			}
+			for (int t = 0; t < nbJours; t++) {
+				indispoSouple[i][t] = (i + t) % 3 == 0;
+				aptitude[0][i][t] = true;
+			}
+		}
+		SolveurPlanning planning = new SolveurPlanning(1, 1, nbInternes, nbJours, 1, 2, new String[] { "MAT" },
+				new String[] { "AST" }, respectVD, indispoForte, indispoSouple,
+				peutTravaillerEnsemble, aptitude);
+		planning.setStrategie(StrategiesPredefinies.DOM_WDEG);
+		planning.setGraine(0);
+		return planning;
+	}
+
+	/**
+	 * Le premier planning trouvé arrête tous les solveurs
+	 */
+	@Test
+	public void premiereSolutionTest() {
+		PortefeuillePlanning portefeuille = new PortefeuillePlanning(planning(false), 2);
+		portefeuille.setPremiereSolution(true);
+		portefeuille.setLimiteTemps(LIMITE);
+		long debut = System.currentTimeMillis();
+		assertNotNull(portefeuille.resoudre());
+		assertTrue(System.currentTimeMillis() - debut < LIMITE / 2);
+	}
+
+	/**
+	 * Le premier solveur qui prouve l'optimum arrête les autres, et le portefeuille rend l'optimum d'une
+	 * résolution seule
+	 */
+	@Test
+	public void meilleureSolutionTest() {
+		SolveurPlanning seul = planning(false);
+		seul.initialisation();
+		SolutionPlanning optimum = seul.solve();
+		assertNotNull(optimum);
+
+		PortefeuillePlanning portefeuille = new PortefeuillePlanning(planning(false), 2);
+		portefeuille.setStrategies(StrategiesPredefinies.DOM_WDEG, StrategiesPredefinies.JOUR_PAR_JOUR);
+		portefeuille.setLimiteTemps(LIMITE);
+		long debut = System.currentTimeMillis();
+		SolutionPlanning meilleure = portefeuille.resoudre();
+		assertTrue(System.currentTimeMillis() - debut < LIMITE / 2);
+		assertNotNull(meilleure);
+		assertEquals(optimum.getObjectif(), meilleure.getObjectif());
+	}
+
+	/**
+	 * Chaque solveur du portefeuille publie ses métriques sous son propre nom
+	 */
+	@Test
+	public void puitsJmxTest() throws Exception {
+		SolveurPlanning planning = planning(false);
+		planning.setNom("test-portefeuille");
+		planning.ajouterPuitsMetriques(new PuitsJmx());
+		PortefeuillePlanning portefeuille = new PortefeuillePlanning(planning, 2);
+		portefeuille.setLimiteTemps(LIMITE);
+		portefeuille.resoudre();
+
+		MBeanServer serveur = ManagementFactory.getPlatformMBeanServer();
+		for (int numero = 0; numero < 2; numero++) {
+			ObjectName nom = PuitsJmx.nomJmx("test-portefeuille portefeuille " + numero);
+			assertTrue(serveur.isRegistered(nom));
+			serveur.unregisterMBean(nom);
+		}
+	}
+
+	/**
+	 * Des données impossibles arrêtent tous les solveurs sans recherche
+	 */
+	@Test
+	public void donneesImpossiblesTest() {
+		PortefeuillePlanning portefeuille = new PortefeuillePlanning(planning(true), 2);
+		portefeuille.setLimiteTemps(LIMITE);
+		assertNull(portefeuille.resoudre());
+	}
+}
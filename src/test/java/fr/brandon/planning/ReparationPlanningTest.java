@@ -0,0 +1,50 @@
+package fr.brandon.planning;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for ReparationPlanning.
+ */
+public class ReparationPlanningTest {
+
+	/**
+	 * L'absence d'un interne de garde est réparée dans un petit voisinage, sans toucher au reste du planning
+	 */
+	@Test
+	public void reparerTest() {
+		SolveurPlanning planning = PlanningsGeneres.planning(56, 5);
+		planning.initialisation();
+		SolutionPlanning solution = planning.solve();
+		assertNotNull(solution);
+
+		// l'interne de garde au premier service le jour 30 devient absent les jours 30 et 31
+		int absent = 0;
+		while (!solution.estDeGarde(0, absent, 30))
+			absent++;
+		ReparationPlanning reparation = new ReparationPlanning(PlanningsGeneres.planning(56, 5), solution);
+		SolutionPlanning reparee = reparation.reparer(absent, 30, 31);
+
+		assertNotNull(reparee);
+		for (int iService = 0; iService < reparee.getNbServices(); iService++) {
+			assertFalse(reparee.estDeGarde(iService, absent, 30));
+			assertFalse(reparee.estDeGarde(iService, absent, 31));
+		}
+		assertTrue(reparation.getNiveau() < ReparationPlanning.getNbNiveaux() - 1);
+		assertEquals(reparee.nbDifferences(solution), reparation.getChangements().size());
+		assertFalse(reparation.getChangements().isEmpty());
+		for (ReparationPlanning.Changement changement : reparation.getChangements()) {
+			assertTrue(changement.getJour() >= 30 - 14 && changement.getJour() <= 31 + 14);
+		}
+		assertTrue(reparation.getModele().getIndispoForte()[absent][31]);
+
+		// la réparation sur une fenêtre respecte les règles de toute la période, équilibre et enchaînements compris
+		PlanningsGeneres.verifierRegles(reparation.getModele(), reparee);
+		SolveurPlanning complet = reparation.getModele().copier();
+		complet.setBriserSymetries(false);
+		complet.initialisation();
+		complet.figer(reparee, new boolean[reparee.getNbInternes()][reparee.getNbJours()]);
+		assertNotNull(complet.solve());
+	}
+}
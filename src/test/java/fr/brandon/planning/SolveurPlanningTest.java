@@ -1,11 +1,19 @@
 package fr.brandon.planning;
 
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import solver.Solver;
 import solver.constraints.ICF;
 import solver.variables.IntVar;
 import solver.variables.VF;
@@ -100,6 +108,9 @@ public class SolveurPlanningTest {
 				respectVD, indispoForte, indispoSouple, peutTravaillerEnsemble,
 				aptitude);
 
+		// recherche par défaut, avec une graine fixée pour que les tests soient reproductibles
+		planningTest.setGraine(1);
+		planningTest.setLimiteTemps(3000);
 		planningTest.initialisation();
 		planningTest.solve();
 
@@ -626,4 +637,405 @@ public class SolveurPlanningTest {
 		}
 	}
 
+	/**
+	 * Test de la résolution limitée : chaque solution reçue améliore la précédente et solve() rend la dernière
+	 */
+	@Test
+	public void solutionsAmelioreesTest() {
+		SolveurPlanning planning = planningTest.copier();
+		planning.setLimiteTemps(3000);
+		final List<SolutionPlanning> solutions = new ArrayList<SolutionPlanning>();
+		planning.ajouterEcouteur(new EcouteurSolutions() {
+			@Override
+			public void nouvelleSolution(SolutionPlanning solution) {
+				solutions.add(solution);
+			}
+		});
+		planning.initialisation();
+		SolutionPlanning meilleure = planning.solve();
+
+		assertFalse("Aucune solution reçue", solutions.isEmpty());
+		for (int k = 1; k < solutions.size(); k++) {
+			assertTrue("La solution " + k + " n'améliore pas la précédente",
+					solutions.get(k).getObjectif() < solutions.get(k - 1).getObjectif());
+		}
+		assertSame(solutions.get(solutions.size() - 1), meilleure);
+		for (int iService = 0; iService < planning.getNbServices(); iService++) {
+			for (int t = 0; t < planning.getNbJours(); t++) {
+				int nbDeGarde = 0;
+				for (int iInterne = 0; iInterne < planning.getNbInternes(); iInterne++) {
+					if (meilleure.estDeGarde(iService, iInterne, t))
+						nbDeGarde++;
+				}
+				assertEquals(1, nbDeGarde);
+			}
+		}
+	}
+
+	/**
+	 * Test de la recherche à grand voisinage : avec la même stratégie et la même limite, elle trouve un planning au
+	 * moins aussi bon que le branch and bound seul
+	 */
+	@Test
+	public void rechercheVoisinageTest() {
+		SolveurPlanning seul = planningTest.copier();
+		seul.setStrategie(StrategiesPredefinies.DOM_WDEG);
+		seul.setGraine(0);
+		seul.setLimiteTemps(3000);
+		seul.initialisation();
+		SolutionPlanning sansVoisinage = seul.solve();
+		assertNotNull(sansVoisinage);
+
+		SolveurPlanning planning = seul.copier();
+		planning.setRechercheVoisinage(true);
+		planning.initialisation();
+		SolutionPlanning meilleure = planning.solve();
+
+		assertNotNull(meilleure);
+		assertTrue(meilleure.getObjectif() + " > " + sansVoisinage.getObjectif(),
+				meilleure.getObjectif() <= sansVoisinage.getObjectif());
+		for (int iService = 0; iService < planning.getNbServices(); iService++) {
+			for (int t = 0; t < planning.getNbJours(); t++) {
+				int nbDeGarde = 0;
+				for (int iInterne = 0; iInterne < planning.getNbInternes(); iInterne++) {
+					if (meilleure.estDeGarde(iService, iInterne, t))
+						nbDeGarde++;
+				}
+				assertEquals(1, nbDeGarde);
+			}
+		}
+	}
+
+	/**
+	 * Test du modèle par affectation : il trouve un planning comme le modèle booléen, chaque garde et astreinte est
+	 * tenue par un interne, et les variables 0/1 de getX() et getY() suivent les affectations
+	 */
+	@Test
+	public void modeleEntierTest() {
+		final SolveurPlanning planning = planningTest.copier();
+		planning.setModeleAffectation(ModeleAffectation.ENTIER);
+		planning.setStrategie(StrategiesPredefinies.DOM_WDEG);
+		planning.setLimiteTemps(3000);
+		final List<String> ecarts = new ArrayList<String>();
+		planning.ajouterEcouteur(new EcouteurSolutions() {
+			@Override
+			public void nouvelleSolution(SolutionPlanning solution) {
+				for (int iInterne = 0; iInterne < planning.getNbInternes(); iInterne++) {
+					for (int t = 0; t < planning.getNbJours(); t++) {
+						for (int iService = 0; iService < planning.getNbServices(); iService++) {
+							if ((planning.getX()[iService][iInterne][t].getValue() == 1) != solution.estDeGarde(iService, iInterne, t))
+								ecarts.add("garde " + iService + " " + iInterne + " " + t);
+						}
+						for (int iAstreinte = 0; iAstreinte < planning.getNbAstreintes(); iAstreinte++) {
+							if ((planning.getY()[iAstreinte][iInterne][t].getValue() == 1) != solution.estDAstreinte(iAstreinte, iInterne, t))
+								ecarts.add("astreinte " + iAstreinte + " " + iInterne + " " + t);
+						}
+					}
+				}
+			}
+		});
+		planning.initialisation();
+		SolutionPlanning solution = planning.solve();
+
+		assertEquals(planningTest.getMeilleureSolution() != null, solution != null);
+		assertNotNull(solution);
+		assertTrue(ecarts.toString(), ecarts.isEmpty());
+		for (int t = 0; t < planning.getNbJours(); t++) {
+			for (int iService = 0; iService < planning.getNbServices(); iService++) {
+				int nbDeGarde = 0;
+				for (int iInterne = 0; iInterne < planning.getNbInternes(); iInterne++) {
+					if (solution.estDeGarde(iService, iInterne, t))
+						nbDeGarde++;
+				}
+				assertEquals(1, nbDeGarde);
+			}
+			for (int iAstreinte = 0; iAstreinte < planning.getNbAstreintes(); iAstreinte++) {
+				int nbDAstreinte = 0;
+				for (int iInterne = 0; iInterne < planning.getNbInternes(); iInterne++) {
+					if (solution.estDAstreinte(iAstreinte, iInterne, t)) {
+						nbDAstreinte++;
+						for (int iService = 0; iService < planning.getNbServices(); iService++)
+							assertFalse(solution.estDeGarde(iService, iInterne, t));
+					}
+				}
+				assertEquals(1, nbDAstreinte);
+			}
+		}
+		planning.displayResult();
+	}
+
+	/**
+	 * Test du mode d'équilibre ECART : dans chaque catégorie, l'interne qui en fait le plus n'en fait pas plus de
+	 * l'écart toléré de plus que celui qui en fait le moins. Les astreintes groupées par 2 ou 3 jours laissent des
+	 * internes sans astreinte sur 15 jours, l'écart des astreintes passe donc à 3.
+	 */
+	@Test
+	public void equilibreEcartTest() {
+		SolveurPlanning planning = new SolveurPlanning(planningTest.getNbServices(), planningTest.getNbAstreintes(),
+				planningTest.getNbInternes(), planningTest.getNbJours(), planningTest.getNbGardeEcart(), 3,
+				planningTest.getNomServices(), planningTest.getNomAstreintes(), planningTest.getVD(),
+				planningTest.getIndispoForte(), planningTest.getIndispoSouple(), planningTest.getPeutTravailEnsemble(),
+				planningTest.getAptitude());
+		planning.setModeEquilibre(ModeEquilibre.ECART);
+		planning.setStrategie(StrategiesPredefinies.DOM_WDEG);
+		planning.setGraine(0);
+		planning.setLimiteTemps(5000);
+		planning.initialisation();
+		SolutionPlanning solution = planning.solve();
+		assertNotNull(solution);
+
+		ReportPlanning compteurs = new ReportPlanning(planning.getNbInternes()).cumuler(solution, planning.getNomServices());
+		int ecart = planning.getNbGardeEcart();
+		verifierEcart("gardes", compteurs.getGardes(), ecart);
+		verifierEcart("gardes SAMU", compteurs.getGardesSamu(), ecart);
+		verifierEcart("gardes le jeudi", compteurs.getGardesJeudi(), ecart);
+		verifierEcart("gardes le samedi", compteurs.getGardesSamedi(), ecart);
+		verifierEcart("gardes le dimanche", compteurs.getGardesDimanche(), ecart);
+		verifierEcart("astreintes", compteurs.getAstreintes(), planning.getNbAstreintesEcart());
+	}
+
+	private static void verifierEcart(String categorie, int[] compteurs, int ecart) {
+		int min = Integer.MAX_VALUE;
+		int max = 0;
+		for (int compteur : compteurs) {
+			min = Math.min(min, compteur);
+			max = Math.max(max, compteur);
+		}
+		assertTrue(categorie + " entre " + min + " et " + max, max - min <= ecart);
+	}
+
+	/**
+	 * @return une copie du planning de test où l'interne 0 est indisponible la première semaine et l'interne 3 inapte
+	 * au BLOC, pas encore initialisée
+	 */
+	private static SolveurPlanning planningIndisponible(boolean modeleCreux) {
+		SolveurPlanning planning = planningTest.fenetre(0, planningTest.getNbJours());
+		for (int t = 0; t < SolveurPlanning.NB_JOURS_SEMAINE; t++) {
+			planning.getIndispoForte()[0][t] = true;
+		}
+		for (int t = 0; t < planning.getNbJours(); t++) {
+			planning.getAptitude()[2][3][t] = false;
+		}
+		planning.setModeleCreux(modeleCreux);
+		// cette stratégie prouve l'optimum en moins d'une seconde dans les deux modèles
+		planning.setStrategie(StrategiesPredefinies.INTERNE_MOINS_OPTIONS);
+		planning.setLimiteTemps(10000);
+		return planning;
+	}
+
+	/**
+	 * @return true si le planning, figé sur toute la solution, a une solution
+	 */
+	private static boolean accepte(SolveurPlanning planning, SolutionPlanning solution) {
+		planning.initialisation();
+		planning.figer(solution, new boolean[planning.getNbInternes()][planning.getNbJours()]);
+		return planning.solve() != null;
+	}
+
+	/**
+	 * Test du modèle creux : avec des gardes impossibles, il a moins de variables et de contraintes que le modèle
+	 * plein, les deux modèles ont le même optimum et chacun accepte la solution de l'autre
+	 */
+	@Test
+	public void modeleCreuxTest() {
+		SolveurPlanning plein = planningIndisponible(false);
+		SolveurPlanning creux = planningIndisponible(true);
+		plein.initialisation();
+		creux.initialisation();
+		assertTrue(creux.getSolveur().getNbVars() < plein.getSolveur().getNbVars());
+		assertTrue(creux.getSolveur().getNbCstrs() < plein.getSolveur().getNbCstrs());
+
+		SolutionPlanning solutionPleine = plein.solve();
+		SolutionPlanning solutionCreuse = creux.solve();
+		assertNotNull(solutionPleine);
+		assertNotNull(solutionCreuse);
+		assertEquals(solutionPleine.getObjectif(), solutionCreuse.getObjectif());
+		assertTrue(accepte(planningIndisponible(true), solutionPleine));
+		assertTrue(accepte(planningIndisponible(false), solutionCreuse));
+	}
+
+	/**
+	 * Test des symétries : les internes 3 à 9 sont interchangeables, et leurs gardes et astreintes sont ordonnées.
+	 * Sans symétries brisées, la recherche jour par jour ne trouve pas de solution en 20 secondes.
+	 */
+	@Test
+	public void symetriesTest() {
+		SolveurPlanning planning = planningTest.copier();
+		planning.setLimiteTemps(3000);
+		planning.setStrategie(StrategiesPredefinies.JOUR_PAR_JOUR);
+		planning.setBriserSymetries(true);
+		planning.initialisation();
+		SolutionPlanning solution = planning.solve();
+
+		assertNotNull(solution);
+		assertEquals(1, planning.getClassesSymetriques().size());
+		assertArrayEquals(new int[] { 3, 4, 5, 6, 7, 8, 9 }, planning.getClassesSymetriques().get(0));
+		for (int iInterne = 3; iInterne < 9; iInterne++) {
+			int comparaison = 0;
+			for (int t = 0; t < planning.getNbJours() && comparaison == 0; t++) {
+				for (int iService = 0; iService < planning.getNbServices() && comparaison == 0; iService++)
+					comparaison = Boolean.compare(solution.estDeGarde(iService, iInterne, t),
+							solution.estDeGarde(iService, iInterne + 1, t));
+				for (int iAstreinte = 0; iAstreinte < planning.getNbAstreintes() && comparaison == 0; iAstreinte++)
+					comparaison = Boolean.compare(solution.estDAstreinte(iAstreinte, iInterne, t),
+							solution.estDAstreinte(iAstreinte, iInterne + 1, t));
+			}
+			assertTrue("Internes " + iInterne + " et " + (iInterne + 1) + " pas dans l'ordre", comparaison <= 0);
+		}
+	}
+
+	/**
+	 * Test du démarrage à chaud : sans modification, la première solution est la solution précédente, et après
+	 * une indisponibilité nouvelle le planning change peu
+	 */
+	@Test
+	public void solutionPrecedenteTest() {
+		SolutionPlanning precedente = planningTest.getMeilleureSolution();
+		SolveurPlanning planning = planningTest.copier();
+		planning.setLimiteTemps(1000);
+		planning.setSolutionPrecedente(precedente);
+		final List<SolutionPlanning> solutions = new ArrayList<SolutionPlanning>();
+		planning.ajouterEcouteur(new EcouteurSolutions() {
+			@Override
+			public void nouvelleSolution(SolutionPlanning solution) {
+				solutions.add(solution);
+			}
+		});
+		planning.initialisation();
+		planning.solve();
+		assertEquals(0, solutions.get(0).nbDifferences(precedente));
+
+		// l'interne de garde au MAT le mercredi 2 devient indisponible
+		int absent = 0;
+		while (!precedente.estDeGarde(0, absent, 2))
+			absent++;
+		boolean[][] indispoForte = new boolean[planningTest.getNbInternes()][];
+		for (int iInterne = 0; iInterne < indispoForte.length; iInterne++)
+			indispoForte[iInterne] = planningTest.getIndispoForte()[iInterne].clone();
+		indispoForte[absent][2] = true;
+		planning = new SolveurPlanning(planningTest.getNbServices(), planningTest.getNbAstreintes(),
+				planningTest.getNbInternes(), planningTest.getNbJours(), planningTest.getNbGardeEcart(),
+				planningTest.getNbAstreintesEcart(), planningTest.getNomServices(), planningTest.getNomAstreintes(),
+				planningTest.getVD(), indispoForte, planningTest.getIndispoSouple(),
+				planningTest.getPeutTravailEnsemble(), planningTest.getAptitude());
+		planning.setStrategie(StrategiesPredefinies.DOM_WDEG);
+		planning.setGraine(0);
+		planning.setLimiteTemps(3000);
+		planning.setSolutionPrecedente(precedente);
+		planning.setPoidsChangements(1);
+		planning.initialisation();
+		SolutionPlanning solution = planning.solve();
+
+		assertNotNull(solution);
+		assertFalse(solution.estDeGarde(0, absent, 2));
+		assertTrue(solution.nbDifferences(precedente) <= 2*planningTest.getNbInternes());
+	}
+
+	/**
+	 * Test du lot de plannings : les plannings sont deux à deux éloignés, chacun couvre tous les services, et la
+	 * meilleure solution est celle du lot de plus petit objectif
+	 */
+	@Test
+	public void solveDiversesTest() {
+		SolveurPlanning planning = planningTest.copier();
+		planning.setLimiteTemps(5000);
+		planning.initialisation();
+		List<SolutionPlanning> lot = planning.solveDiverses(3, 40);
+
+		assertEquals(3, lot.size());
+		int objectifMin = Integer.MAX_VALUE;
+		for (int k = 0; k < lot.size(); k++) {
+			for (int l = k + 1; l < lot.size(); l++) {
+				assertTrue("Plannings " + k + " et " + l + " trop proches", lot.get(k).nbDifferences(lot.get(l)) >= 40);
+			}
+			for (int iService = 0; iService < planning.getNbServices(); iService++) {
+				assertEquals(planning.getNbJours(), lot.get(k).getNbGardesService(iService));
+			}
+			objectifMin = Math.min(objectifMin, lot.get(k).getObjectif());
+		}
+		assertEquals(objectifMin, planning.getMeilleureSolution().getObjectif());
+	}
+
+	/**
+	 * Test de la libération du modèle : la solution copiée et ses compteurs restent, et le planning peut être
+	 * initialisé à nouveau
+	 */
+	@Test
+	public void libererTest() {
+		SolveurPlanning planning = planningTest.copier();
+		planning.setLimiteTemps(1000);
+		planning.initialisation();
+		SolutionPlanning solution = planning.solve();
+		assertNotNull(solution);
+		planning.liberer();
+
+		assertNull(planning.getSolveur());
+		assertNull(planning.getX());
+		assertNull(planning.getObjectif());
+		assertSame(solution, planning.getMeilleureSolution());
+		int total = 0;
+		for (int iInterne = 0; iInterne < planning.getNbInternes(); iInterne++) {
+			int nbGardes = 0;
+			for (int iService = 0; iService < planning.getNbServices(); iService++) {
+				int nb = 0;
+				for (int t = 0; t < planning.getNbJours(); t++) {
+					if (solution.estDeGarde(iService, iInterne, t))
+						nb++;
+				}
+				assertEquals(nb, solution.getNbGardes(iService, iInterne));
+				nbGardes += nb;
+			}
+			assertEquals(nbGardes, solution.getNbGardesInterne(iInterne));
+			total += solution.getNbAstreintesInterne(iInterne);
+		}
+		assertEquals(planning.getNbJours(), total);
+		assertEquals(planning.getNbJours(), solution.getNbGardesService(1));
+
+		planning.initialisation();
+		assertNotNull(planning.solve());
+	}
+
+	/**
+	 * Test des métriques : les règles se partagent toutes les variables et contraintes du modèle
+	 */
+	@Test
+	public void metriquesTest() {
+		MetriquesPlanning metriques = planningTest.getMetriques();
+		long nbVariables = 0;
+		for (long nb : metriques.getVariablesParRegle().values())
+			nbVariables += nb;
+		long nbContraintes = 0;
+		for (long nb : metriques.getContraintesParRegle().values())
+			nbContraintes += nb;
+		// les constantes créées avec le solveur ne relèvent d'aucune règle
+		Solver vide = new Solver();
+		assertEquals(metriques.getNbVariables() - vide.getNbVars(), nbVariables);
+		assertEquals(metriques.getNbContraintes() - vide.getNbCstrs(), nbContraintes);
+		assertEquals(planningTest.getSolveur().getNbVars(), metriques.getNbVariables());
+		assertTrue(metriques.getContraintesParRegle().get("enchainementsGardes") > 0);
+		assertTrue(metriques.getNbNoeuds() > 0);
+		assertTrue(metriques.getTempsPremiereSolution() >= 0);
+		assertTrue(metriques.getTempsPremiereSolution() <= metriques.getTempsMeilleureSolution());
+		assertTrue(metriques.getMemoireAllouee() > 0);
+	}
+
+	/**
+	 * Test de la publication des métriques dans JMX
+	 */
+	@Test
+	public void puitsJmxTest() throws Exception {
+		SolveurPlanning planning = planningTest.copier();
+		planning.setNom("test-jmx");
+		planning.setLimiteTemps(1000);
+		planning.ajouterPuitsMetriques(new PuitsJmx());
+		planning.initialisation();
+		planning.solve();
+
+		MBeanServer serveur = ManagementFactory.getPlatformMBeanServer();
+		ObjectName nom = PuitsJmx.nomJmx("test-jmx");
+		assertTrue(serveur.isRegistered(nom));
+		assertEquals(planning.getMetriques().getNbNoeuds(), serveur.getAttribute(nom, "NbNoeuds"));
+		serveur.unregisterMBean(nom);
+	}
+
 }
@@ -0,0 +1,110 @@
+package fr.brandon.planning;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import util.ESat;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for StrategiesPredefinies : chaque stratégie trouve un planning valide dans chaque modèle.
+ */
+@RunWith(Parameterized.class)
+public class StrategiesPredefiniesTest {
+
+	private static final int NB_INTERNES = 8;
+	private static final int NB_JOURS = 14;
+
+	private final StrategiesPredefinies strategie;
+	private final ModeleAffectation modele;
+
+	public StrategiesPredefiniesTest(StrategiesPredefinies strategie, ModeleAffectation modele) {
+		this.strategie = strategie;
+		this.modele = modele;
+	}
+
+	@Parameters(name = "{0} {1}")
+	public static Collection<Object[]> strategies() {
+		StrategiesPredefinies[] strategies = { StrategiesPredefinies.JOUR_PAR_JOUR,
+				StrategiesPredefinies.SERVICE_LE_PLUS_CONTRAINT, StrategiesPredefinies.INTERNE_MOINS_OPTIONS,
+				StrategiesPredefinies.ACTIVITE, StrategiesPredefinies.DOM_WDEG };
+		List<Object[]> parametres = new ArrayList<Object[]>();
+		for (StrategiesPredefinies strategie : strategies) {
+			for (ModeleAffectation modele : ModeleAffectation.values()) {
+				parametres.add(new Object[] { strategie, modele });
+			}
+		}
+		return parametres;
+	}
+
+	/**
+	 * Deux services et une astreinte pour 8 internes sur deux semaines, l'interne 0 n'étant apte qu'au premier
+	 * service et l'interne 1 indisponible pour les gardes la première semaine
+	 */
+	private SolveurPlanning planning() {
+		boolean[] respectVD = new boolean[NB_INTERNES];
+		boolean[][] indispoForte = new boolean[NB_INTERNES][NB_JOURS];
+		boolean[][] indispoSouple = new boolean[NB_INTERNES][NB_JOURS];
+		boolean[][] peutTravaillerEnsemble = new boolean[NB_INTERNES][NB_INTERNES];
+		boolean[][][] aptitude = new boolean[2][NB_INTERNES][NB_JOURS];
+		for (int i = 0; i < NB_INTERNES; i++) {
+			respectVD[i] = true;
+			for (int j = 0; j < NB_INTERNES; j++) {
+				peutTravaillerEnsemble[i][j] = true;
+			}
+			for (int t = 0; t < NB_JOURS; t++) {
+				indispoSouple[i][t] = (i + t) % 5 == 0;
+				aptitude[0][i][t] = true;
+				aptitude[1][i][t] = i != 0;
+			}
+		}
+		for (int t = 0; t < SolveurPlanning.NB_JOURS_SEMAINE; t++) {
+			indispoForte[1][t] = true;
+		}
+		SolveurPlanning planning = new SolveurPlanning(2, 1, NB_INTERNES, NB_JOURS, 2, 2, new String[] { "MAT", "SAMU" },
+				new String[] { "AST" }, respectVD, indispoForte, indispoSouple, peutTravaillerEnsemble, aptitude);
+		planning.setModeleAffectation(modele);
+		planning.setStrategie(strategie);
+		planning.setGraine(0);
+		planning.setLimiteTemps(10000);
+		return planning;
+	}
+
+	@Test
+	public void planningValideTest() {
+		SolveurPlanning planning = planning();
+		planning.initialisation();
+		assertEquals(ESat.TRUE, planning.verifier());
+
+		SolutionPlanning solution = planning.getMeilleureSolution();
+		for (int t = 0; t < NB_JOURS; t++) {
+			for (int iService = 0; iService < 2; iService++) {
+				int nbDeGarde = 0;
+				for (int iInterne = 0; iInterne < NB_INTERNES; iInterne++) {
+					if (solution.estDeGarde(iService, iInterne, t))
+						nbDeGarde++;
+				}
+				assertEquals(1, nbDeGarde);
+			}
+			assertFalse(solution.estDeGarde(1, 0, t));
+			int nbDAstreinte = 0;
+			for (int iInterne = 0; iInterne < NB_INTERNES; iInterne++) {
+				assertFalse(solution.estDeGarde(0, iInterne, t) && solution.estDeGarde(1, iInterne, t));
+				boolean deGarde = solution.estDeGarde(0, iInterne, t) || solution.estDeGarde(1, iInterne, t);
+				if (solution.estDAstreinte(0, iInterne, t)) {
+					nbDAstreinte++;
+					assertFalse(deGarde);
+				}
+				if (iInterne == 1 && t < SolveurPlanning.NB_JOURS_SEMAINE)
+					assertFalse(deGarde);
+			}
+			assertEquals(1, nbDAstreinte);
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package fr.brandon.planning;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for TableauBits.
+ */
+public class TableauBitsTest {
+
+	private static boolean[][] aleatoire(Random random, int nbLignes, int nbColonnes) {
+		boolean[][] tableau = new boolean[nbLignes][nbColonnes];
+		for (int i = 0; i < nbLignes; i++) {
+			for (int j = 0; j < nbColonnes; j++) {
+				tableau[i][j] = random.nextDouble() < 0.3;
+			}
+		}
+		return tableau;
+	}
+
+	/**
+	 * Les bits, leur parcours et leur nombre correspondent au tableau de booléens, sur plusieurs mots par ligne
+	 */
+	@Test
+	public void depuisTest() {
+		Random random = new Random(0);
+		boolean[][] tableau = aleatoire(random, 5, 130);
+		TableauBits bits = TableauBits.depuis(tableau);
+		assertEquals(5, bits.getNbLignes());
+		assertEquals(130, bits.getNbColonnes());
+		int total = 0;
+		for (int i = 0; i < 5; i++) {
+			int nb = 0;
+			int suivant = bits.suivant(i, 0);
+			for (int j = 0; j < 130; j++) {
+				assertEquals(tableau[i][j], bits.get(i, j));
+				if (tableau[i][j]) {
+					assertEquals(j, suivant);
+					suivant = bits.suivant(i, j + 1);
+					nb++;
+				}
+			}
+			assertEquals(-1, suivant);
+			assertEquals(nb, bits.cardinalite(i));
+			total += nb;
+		}
+		assertEquals(total, bits.cardinalite());
+	}
+
+	@Test
+	public void transposeTest() {
+		boolean[][] tableau = aleatoire(new Random(1), 70, 9);
+		TableauBits bits = TableauBits.transpose(tableau);
+		assertEquals(9, bits.getNbLignes());
+		assertEquals(70, bits.getNbColonnes());
+		for (int i = 0; i < 70; i++) {
+			for (int j = 0; j < 9; j++) {
+				assertEquals(tableau[i][j], bits.get(j, i));
+			}
+		}
+	}
+
+	/**
+	 * Les opérations mot par mot donnent les mêmes bits que les opérations booléennes
+	 */
+	@Test
+	public void operationsTest() {
+		Random random = new Random(2);
+		boolean[][] a = aleatoire(random, 4, 100);
+		boolean[][] b = aleatoire(random, 4, 100);
+		TableauBits et = TableauBits.depuis(a).et(TableauBits.depuis(b));
+		TableauBits etNon = TableauBits.depuis(a).etNon(TableauBits.depuis(b));
+		TableauBits non = TableauBits.depuis(a).non();
+		for (int i = 0; i < 4; i++) {
+			for (int j = 0; j < 100; j++) {
+				assertEquals(a[i][j] && b[i][j], et.get(i, j));
+				assertEquals(a[i][j] && !b[i][j], etNon.get(i, j));
+				assertEquals(!a[i][j], non.get(i, j));
+			}
+		}
+		// les bits au-delà de la dernière colonne ne sont pas comptés
+		assertEquals(400 - TableauBits.depuis(a).cardinalite(), non.cardinalite());
+		assertEquals(etNon.cardinalite() + TableauBits.depuis(b).etNon(TableauBits.depuis(a)).cardinalite(),
+				TableauBits.depuis(a).nbDifferences(TableauBits.depuis(b)));
+	}
+
+	@Test
+	public void setTest() {
+		TableauBits bits = new TableauBits(3, 70);
+		bits.set(1, 65, true);
+		bits.set(2, 65, true);
+		bits.set(1, 3, true);
+		assertEquals(3, bits.suivant(1, 0));
+		assertEquals(65, bits.suivant(1, 4));
+		assertFalse(bits.lignesEgales(1, 2));
+		bits.set(1, 3, false);
+		assertTrue(bits.lignesEgales(1, 2));
+		assertEquals(bits, bits.non().non());
+	}
+}
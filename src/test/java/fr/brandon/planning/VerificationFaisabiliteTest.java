@@ -0,0 +1,169 @@
+package fr.brandon.planning;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import util.ESat;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for VerificationFaisabilite.
+ */
+public class VerificationFaisabiliteTest {
+
+	private static final int NB_INTERNES = 5;
+	private static final int NB_JOURS = 14;
+
+	private static boolean[][] indispoForte;
+	private static boolean[][][] aptitude;
+
+	/**
+	 * nbServices services et une astreinte pour 5 internes sur deux semaines, tous aptes et disponibles, à
+	 * restreindre avant de créer le planning
+	 */
+	private static void donnees(int nbServices) {
+		indispoForte = new boolean[NB_INTERNES][NB_JOURS];
+		aptitude = new boolean[nbServices][NB_INTERNES][NB_JOURS];
+		for (int k = 0; k < nbServices; k++) {
+			for (int i = 0; i < NB_INTERNES; i++) {
+				for (int t = 0; t < NB_JOURS; t++) {
+					aptitude[k][i][t] = true;
+				}
+			}
+		}
+	}
+
+	private static SolveurPlanning planning() {
+		int nbServices = aptitude.length;
+		boolean[] respectVD = new boolean[NB_INTERNES];
+		boolean[][] peutTravaillerEnsemble = new boolean[NB_INTERNES][NB_INTERNES];
+		for (int i = 0; i < NB_INTERNES; i++) {
+			for (int j = 0; j < NB_INTERNES; j++) {
+				peutTravaillerEnsemble[i][j] = true;
+			}
+		}
+		String[] nomServices = new String[nbServices];
+		for (int k = 0; k < nbServices; k++) {
+			nomServices[k] = "S" + k;
+		}
+		SolveurPlanning planning = new SolveurPlanning(nbServices, 1, NB_INTERNES, NB_JOURS, 1, 2, nomServices,
+				new String[] { "AST" }, respectVD, indispoForte, new boolean[NB_INTERNES][NB_JOURS],
+				peutTravaillerEnsemble, aptitude);
+		planning.setStrategie(StrategiesPredefinies.DOM_WDEG);
+		planning.setGraine(0);
+		return planning;
+	}
+
+	private static void verifierViolation(List<VerificationFaisabilite.Violation> violations, Regle regle, int jour,
+			int service, int interne) {
+		assertFalse(violations.isEmpty());
+		VerificationFaisabilite.Violation violation = violations.get(0);
+		assertEquals(violation.toString(), regle, violation.getRegle());
+		assertEquals(violation.toString(), jour, violation.getJour());
+		assertEquals(violation.toString(), service, violation.getService());
+		assertEquals(violation.toString(), interne, violation.getInterne());
+	}
+
+	@Test
+	public void faisableTest() {
+		donnees(2);
+		assertTrue(new VerificationFaisabilite(planning()).verifier().isEmpty());
+	}
+
+	@Test
+	public void jourSansInterneTest() {
+		donnees(1);
+		for (int i = 0; i < NB_INTERNES; i++) {
+			indispoForte[i][3] = true;
+		}
+		List<VerificationFaisabilite.Violation> violations = new VerificationFaisabilite(planning()).verifier();
+		assertEquals(1, violations.size());
+		verifierViolation(violations, Regle.COUVERTURE_GARDES, 3, 0, -1);
+	}
+
+	/**
+	 * Le service 0 et le service 1 ne peuvent être tenus le jour 2 que par l'interne 4 : l'un des deux reste sans
+	 * interne
+	 */
+	@Test
+	public void servicesTest() {
+		donnees(2);
+		for (int i = 0; i < NB_INTERNES - 1; i++) {
+			indispoForte[i][2] = true;
+		}
+		List<VerificationFaisabilite.Violation> violations = new VerificationFaisabilite(planning()).verifier();
+		assertEquals(1, violations.size());
+		verifierViolation(violations, Regle.COUVERTURE_GARDES, 2, violations.get(0).getService(), -1);
+	}
+
+	/**
+	 * Seul l'interne 0 est disponible les jours 5 et 6 : chaque jour est couvert, mais pas les deux avec le repos
+	 * du lendemain
+	 */
+	@Test
+	public void reposTest() {
+		donnees(1);
+		for (int i = 1; i < NB_INTERNES; i++) {
+			indispoForte[i][5] = true;
+			indispoForte[i][6] = true;
+		}
+		SolveurPlanning planning = planning();
+		List<VerificationFaisabilite.Violation> violations = new VerificationFaisabilite(planning).verifier();
+		assertEquals(1, violations.size());
+		assertEquals(Regle.REPOS_LENDEMAIN, violations.get(0).getRegle());
+		assertTrue(violations.get(0).getJour() == 5 || violations.get(0).getJour() == 6);
+
+		planning.setRegleActive(Regle.REPOS_LENDEMAIN, false);
+		assertTrue(new VerificationFaisabilite(planning).verifier().isEmpty());
+	}
+
+	/**
+	 * Sur 14 gardes pour 5 internes, chaque interne en a au moins 2 : l'interne 0, disponible le seul jour 0, ne
+	 * peut pas les avoir
+	 */
+	@Test
+	public void borneBasseTest() {
+		donnees(1);
+		for (int t = 1; t < NB_JOURS; t++) {
+			indispoForte[0][t] = true;
+		}
+		verifierViolation(new VerificationFaisabilite(planning()).verifier(), Regle.EQUILIBRE_GARDE, -1, -1, 0);
+	}
+
+	/**
+	 * Seuls les internes 0 et 1 sont aptes les 10 premiers jours, alors que chacun a au plus 3 gardes
+	 */
+	@Test
+	public void borneHauteTest() {
+		donnees(1);
+		for (int i = 2; i < NB_INTERNES; i++) {
+			for (int t = 0; t < 10; t++) {
+				aptitude[0][i][t] = false;
+			}
+		}
+		List<VerificationFaisabilite.Violation> violations = new VerificationFaisabilite(planning()).verifier();
+		assertEquals(1, violations.size());
+		assertEquals(Regle.EQUILIBRE_GARDE, violations.get(0).getRegle());
+		assertTrue(violations.get(0).getJour() < 10);
+	}
+
+	/**
+	 * Un planning dont les données ont une violation n'a ni modèle ni recherche
+	 */
+	@Test
+	public void rejetTest() {
+		donnees(1);
+		for (int i = 0; i < NB_INTERNES; i++) {
+			indispoForte[i][3] = true;
+		}
+		SolveurPlanning planning = planning();
+		planning.initialisation();
+		assertEquals(1, planning.getViolations().size());
+		assertNull(planning.getSolveur());
+		assertNull(planning.getX());
+		assertNull(planning.solve());
+		assertEquals(ESat.FALSE, planning.verifier());
+		assertTrue(planning.solveDiverses(2, 1).isEmpty());
+	}
+}